@@ -12,11 +12,16 @@
 
 package com.adobe.aam.shredder.samplecleanup.di;
 
+import com.adobe.aam.shredder.core.command.NoopScriptMetricsListener;
+import com.adobe.aam.shredder.core.command.ScriptMetricsListener;
+import com.adobe.aam.shredder.core.trigger.NoopTriggerRaceListener;
+import com.adobe.aam.shredder.core.trigger.TriggerRaceListener;
 import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
 import com.typesafe.config.Config;
 
 import javax.inject.Named;
+import java.time.Duration;
 
 public class SampleConfigModule  extends AbstractModule {
 
@@ -29,4 +34,48 @@ public class SampleConfigModule  extends AbstractModule {
     public String scriptOutputPath(Config config) {
         return config.getString("script_output_path");
     }
+
+    @Provides
+    @Named("scriptKillGracePeriod")
+    public Duration scriptKillGracePeriod(Config config) {
+        return config.hasPath("script_kill_grace_period")
+                ? config.getDuration("script_kill_grace_period")
+                : Duration.ofSeconds(10);
+    }
+
+    @Provides
+    @Named("scriptShellMode")
+    public String scriptShellMode(Config config) {
+        return config.hasPath("script_shell_mode")
+                ? config.getString("script_shell_mode")
+                : "source-profile";
+    }
+
+    @Provides
+    @Named("triggerWorkers")
+    public int triggerWorkers(Config config) {
+        return config.hasPath("trigger_workers") ? config.getInt("trigger_workers") : 1;
+    }
+
+    @Provides
+    @Named("triggerBacklog")
+    public int triggerBacklog(Config config) {
+        return config.hasPath("trigger_backlog") ? config.getInt("trigger_backlog") : 100;
+    }
+
+    @Provides
+    @Named("ackAfterProcessing")
+    public boolean ackAfterProcessing(Config config) {
+        return config.hasPath("ack_after_processing") && config.getBoolean("ack_after_processing");
+    }
+
+    @Provides
+    public ScriptMetricsListener scriptMetricsListener() {
+        return new NoopScriptMetricsListener();
+    }
+
+    @Provides
+    public TriggerRaceListener triggerRaceListener() {
+        return new NoopTriggerRaceListener();
+    }
 }
@@ -14,36 +14,105 @@ package com.adobe.aam.shredder.samplecleanup.service;
 
 import com.adobe.aam.shredder.core.aws.trigger.TriggerWatcher;
 import com.adobe.aam.shredder.core.command.PlaybookRunner;
+import com.adobe.aam.shredder.core.trigger.KeyedTriggerExecutor;
+import com.adobe.aam.shredder.core.trigger.ReceivedTrigger;
 import com.adobe.aam.shredder.samplecleanup.trigger.ShutdownCompleteMessage;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import io.reactivex.Flowable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.inject.Named;
+import java.util.concurrent.TimeUnit;
+
 @Singleton
 public class CustomCleanupService {
     private static final Logger LOG = LoggerFactory.getLogger(CustomCleanupService.class);
+    private static final long SHUTDOWN_TIMEOUT_MINUTES = 60;
 
     private final TriggerWatcher triggerWatcher;
     private final PlaybookRunner playbookRunner;
+    private final int triggerWorkers;
+    private final int triggerBacklog;
+    private final boolean ackAfterProcessing;
     private final Runnable heartbeat = () -> LOG.info("Heartbeat: Still running command.");
 
     @Inject
     CustomCleanupService(TriggerWatcher triggerWatcher,
-                         PlaybookRunner playbookRunner) {
+                         PlaybookRunner playbookRunner,
+                         @Named("triggerWorkers") int triggerWorkers,
+                         @Named("triggerBacklog") int triggerBacklog,
+                         @Named("ackAfterProcessing") boolean ackAfterProcessing) {
         this.triggerWatcher = triggerWatcher;
         this.playbookRunner = playbookRunner;
+        this.triggerWorkers = triggerWorkers;
+        this.triggerBacklog = triggerBacklog;
+        this.ackAfterProcessing = ackAfterProcessing;
     }
 
     public void listenForTriggers(String queueName) {
-        triggerWatcher
-                .requestTriggers(queueName, ShutdownCompleteMessage.class)
+        if (triggerWorkers > 1) {
+            listenForTriggersConcurrently(queueName);
+            return;
+        }
+
+        receiveTriggers(queueName)
                 .doOnNext(trigger -> LOG.info("Received SHUTDOWN complete signal: {}", trigger))
-                .doOnNext(trigger -> playbookRunner.runCommands(trigger, heartbeat))
-                .doOnNext(trigger -> LOG.info("Finished successfully: {}", trigger))
+                .doOnNext(this::process)
                 .doOnError(e -> LOG.warn("Error while trying to process trigger.", e))
                 .subscribe();
 
         LOG.info("Finished successfully. Exiting now.");
     }
+
+    /**
+     * Processes up to {@code triggerWorkers} triggers at once, so that a slow cleanup doesn't hold back the
+     * triggers behind it. The triggers of the same host are still processed in order.
+     */
+    private void listenForTriggersConcurrently(String queueName) {
+        LOG.info("Processing triggers with {} workers and a backlog of {}.", triggerWorkers, triggerBacklog);
+        KeyedTriggerExecutor<ReceivedTrigger<ShutdownCompleteMessage>> executor = new KeyedTriggerExecutor<>(
+                triggerWorkers, triggerBacklog, received -> received.getTrigger().getHostname(), this::process);
+
+        receiveTriggers(queueName)
+                .doOnNext(trigger -> LOG.info("Received SHUTDOWN complete signal: {}", trigger))
+                .doOnNext(executor::submit)
+                .doOnError(e -> LOG.warn("Error while trying to process trigger.", e))
+                .subscribe();
+
+        try {
+            if (!executor.shutdown(SHUTDOWN_TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+                LOG.error("Gave up waiting for {} triggers in flight.", executor.getInFlight());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        LOG.info("Finished successfully. Exiting now.");
+    }
+
+    /**
+     * When acknowledging after processing, a trigger stays on the queue until its commands ran, so that it is
+     * processed again if the service dies in the meantime.
+     */
+    private Flowable<ReceivedTrigger<ShutdownCompleteMessage>> receiveTriggers(String queueName) {
+        if (ackAfterProcessing) {
+            return triggerWatcher.receiveTriggers(queueName, ShutdownCompleteMessage.class);
+        }
+        return triggerWatcher
+                .requestTriggers(queueName, ShutdownCompleteMessage.class)
+                .map(ReceivedTrigger::acknowledged);
+    }
+
+    private void process(ReceivedTrigger<ShutdownCompleteMessage> received) {
+        try {
+            playbookRunner.runCommands(received.getTrigger(), heartbeat);
+        } catch (RuntimeException e) {
+            received.release();
+            throw e;
+        }
+        received.ack();
+        LOG.info("Finished successfully: {}", received);
+    }
 }
@@ -12,6 +12,7 @@
 
 package com.adobe.aam.shredder.core.di;
 
+import com.adobe.aam.shredder.core.aws.AwsClientRegistry;
 import com.adobe.aam.shredder.core.aws.TriggerHelper;
 import com.adobe.aam.shredder.core.aws.queue.AwsQueueCreator;
 import com.adobe.aam.shredder.core.aws.queue.NoopQueueCreator;
@@ -22,22 +23,27 @@ import com.adobe.aam.shredder.core.aws.servergroup.NoopAutoScaleGroupHelper;
 import com.adobe.aam.shredder.core.aws.sns.AwsQueueSuscriber;
 import com.adobe.aam.shredder.core.aws.sns.NoopQueueSuscriber;
 import com.adobe.aam.shredder.core.aws.sns.QueueSuscriber;
+import com.adobe.aam.shredder.core.aws.trigger.CompositeTriggerWatcher;
+import com.adobe.aam.shredder.core.aws.trigger.FileTriggerWatcher;
+import com.adobe.aam.shredder.core.aws.trigger.ImdsTriggerWatcher;
 import com.adobe.aam.shredder.core.aws.trigger.NoopTriggerWatcher;
 import com.adobe.aam.shredder.core.aws.trigger.SqsTriggerWatcher;
+import com.adobe.aam.shredder.core.aws.trigger.TriggerDeduplicator;
 import com.adobe.aam.shredder.core.aws.trigger.TriggerWatcher;
 import com.adobe.aam.shredder.core.aws.ArnHelper;
+import com.adobe.aam.shredder.core.command.FileScriptJournal;
 import com.adobe.aam.shredder.core.command.MacroReplacer;
+import com.adobe.aam.shredder.core.command.NoopScriptJournal;
+import com.adobe.aam.shredder.core.command.ScriptCgroups;
+import com.adobe.aam.shredder.core.command.ScriptJournal;
 import com.adobe.aam.shredder.core.command.ScriptRunner;
-import com.amazonaws.services.autoscaling.AmazonAutoScaling;
-import com.amazonaws.services.autoscaling.AmazonAutoScalingClientBuilder;
-import com.amazonaws.services.sns.AmazonSNS;
-import com.amazonaws.services.sns.AmazonSNSClientBuilder;
-import com.amazonaws.services.sqs.AmazonSQS;
-import com.amazonaws.services.sqs.AmazonSQSClientBuilder;
+import com.adobe.aam.shredder.core.trigger.TriggerRaceListener;
 import com.amazonaws.util.EC2MetadataUtils;
 import com.fasterxml.jackson.databind.MapperFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.inject.Binder;
 import com.google.inject.Module;
 import com.google.inject.Provides;
@@ -46,7 +52,10 @@ import com.typesafe.config.Config;
 
 import javax.inject.Named;
 import javax.inject.Singleton;
+import java.time.Duration;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class MainModule implements Module {
 
@@ -95,11 +104,32 @@ public class MainModule implements Module {
                 "sns");
     }
 
+    @Provides
+    @Named("sqsVisibilityTimeout")
+    public Duration sqsVisibilityTimeout(Config config) {
+        return config.hasPath("sqs_visibility_timeout")
+                ? config.getDuration("sqs_visibility_timeout")
+                : AwsQueueCreator.DEFAULT_VISIBILITY_TIMEOUT;
+    }
+
+    @Provides @Singleton
+    public AwsClientRegistry awsClientRegistry(Config config) {
+        return new AwsClientRegistry(
+                config.hasPath("aws_client.max_connections")
+                        ? config.getInt("aws_client.max_connections")
+                        : AwsClientRegistry.DEFAULT_MAX_CONNECTIONS,
+                config.hasPath("aws_client.connection_max_idle")
+                        ? config.getDuration("aws_client.connection_max_idle")
+                        : AwsClientRegistry.DEFAULT_CONNECTION_MAX_IDLE);
+    }
+
     @Provides @Singleton
     public QueueCreator queueCreator(@Named("awsEnabled") boolean awsEnabled,
-                                     @Named("region") String region) {
+                                     @Named("region") String region,
+                                     @Named("sqsVisibilityTimeout") Duration visibilityTimeout,
+                                     AwsClientRegistry clients) {
         if (awsEnabled) {
-            return new AwsQueueCreator(sqs(region));
+            return new AwsQueueCreator(clients.sqs(region), visibilityTimeout);
         }
 
         return new NoopQueueCreator();
@@ -107,34 +137,158 @@ public class MainModule implements Module {
 
     @Provides @Singleton
     public QueueSuscriber snsSubcriber(@Named("awsEnabled") boolean awsEnabled,
-                                       @Named("region") String region) {
+                                       @Named("region") String region,
+                                       AwsClientRegistry clients,
+                                       Config config) {
         if (awsEnabled) {
-            return new AwsQueueSuscriber(sqs(region), sns(region));
+            // each instance only receives its own lifecycle messages, instead of those of the whole fleet
+            Map<String, String> messageFilter = config.hasPath("sns_filter_by_instance_id")
+                    && config.getBoolean("sns_filter_by_instance_id")
+                    ? ImmutableMap.of("EC2InstanceId", getInstanceId(config))
+                    : ImmutableMap.of();
+            return new AwsQueueSuscriber(clients.sqs(region), clients.sns(region), messageFilter);
         }
 
         return new NoopQueueSuscriber();
     }
 
+    /**
+     * A single trigger source, or several raced against each other when trigger_source lists several of them, eg.
+     * "imds, sqs, file".
+     */
     @Provides
     public TriggerWatcher triggerWatcher(@Named("awsEnabled") boolean awsEnabled,
                                          @Named("region") String region,
                                          TriggerHelper triggerHelper,
-                                         ObjectMapper objectMapper) {
-        if (awsEnabled) {
-            return new SqsTriggerWatcher(region, triggerHelper, objectMapper);
+                                         ObjectMapper objectMapper,
+                                         TriggerDeduplicator deduplicator,
+                                         @Named("sqsVisibilityTimeout") Duration visibilityTimeout,
+                                         AwsClientRegistry clients,
+                                         AutoScaleGroupHelper asgHelper,
+                                         TriggerRaceListener raceListener,
+                                         Config config) {
+        if (!awsEnabled) {
+            return new NoopTriggerWatcher();
+        }
+
+        List<String> sources = config.hasPath("trigger_source")
+                ? Splitter.on(',').trimResults().omitEmptyStrings().splitToList(config.getString("trigger_source"))
+                : ImmutableList.of("sqs");
+        Map<String, TriggerWatcher> watchers = new LinkedHashMap<>();
+        for (String source : sources) {
+            switch (source) {
+                case "sqs":
+                    watchers.put(source, new SqsTriggerWatcher(region, triggerHelper, objectMapper, deduplicator,
+                            visibilityTimeout, clients));
+                    break;
+                case "imds":
+                    watchers.put(source, imdsTriggerWatcher(config, asgHelper, objectMapper));
+                    break;
+                case "file":
+                    watchers.put(source, fileTriggerWatcher(config, asgHelper, objectMapper));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown trigger source: " + source);
+            }
+        }
+        if (watchers.size() == 1) {
+            return watchers.values().iterator().next();
         }
-        return new NoopTriggerWatcher();
+
+        return new CompositeTriggerWatcher(watchers, objectMapper,
+                config.hasPath("trigger_race.key_fields")
+                        ? config.getStringList("trigger_race.key_fields")
+                        : CompositeTriggerWatcher.DEFAULT_KEY_FIELDS,
+                raceListener,
+                config.hasPath("trigger_race.window")
+                        ? config.getDuration("trigger_race.window")
+                        : CompositeTriggerWatcher.DEFAULT_RACE_WINDOW);
+    }
+
+    private ImdsTriggerWatcher imdsTriggerWatcher(Config config, AutoScaleGroupHelper asgHelper,
+                                                  ObjectMapper objectMapper) {
+        return new ImdsTriggerWatcher(
+                config.hasPath("imds.endpoint")
+                        ? config.getString("imds.endpoint")
+                        : ImdsTriggerWatcher.DEFAULT_ENDPOINT,
+                getInstanceId(config),
+                asgHelper,
+                objectMapper,
+                config.hasPath("imds.poll_interval")
+                        ? config.getDuration("imds.poll_interval")
+                        : ImdsTriggerWatcher.DEFAULT_POLL_INTERVAL,
+                config.hasPath("imds.token_ttl")
+                        ? config.getDuration("imds.token_ttl")
+                        : ImdsTriggerWatcher.DEFAULT_TOKEN_TTL);
+    }
+
+    /**
+     * The file triggers have the instance id, and the fields set in trigger_file.defaults, unless the file sets them.
+     */
+    private FileTriggerWatcher fileTriggerWatcher(Config config, AutoScaleGroupHelper asgHelper,
+                                                  ObjectMapper objectMapper) {
+        Map<String, String> defaults = new LinkedHashMap<>();
+        defaults.put("EC2InstanceId", getInstanceId(config));
+        if (config.hasPath("trigger_file.defaults")) {
+            config.getConfig("trigger_file.defaults").root().unwrapped()
+                    .forEach((field, value) -> defaults.put(field, String.valueOf(value)));
+        }
+        return new FileTriggerWatcher(config.getString("trigger_file.path"), defaults, asgHelper, objectMapper,
+                config.hasPath("trigger_file.poll_interval")
+                        ? config.getDuration("trigger_file.poll_interval")
+                        : FileTriggerWatcher.DEFAULT_POLL_INTERVAL);
+    }
+
+    @Provides
+    @Singleton
+    public TriggerDeduplicator triggerDeduplicator(Config config) {
+        if (!config.hasPath("trigger_dedup")) {
+            return TriggerDeduplicator.inMemory();
+        }
+        return new TriggerDeduplicator(
+                config.getInt("trigger_dedup.max_entries"),
+                config.getDuration("trigger_dedup.ttl"),
+                config.hasPath("trigger_dedup.path") ? config.getString("trigger_dedup.path") : null);
     }
 
     @Provides
     public AutoScaleGroupHelper autoScaleGroupHelper(@Named("awsEnabled") boolean awsEnabled,
-                                                     @Named("region") String region) {
+                                                     @Named("region") String region,
+                                                     AwsClientRegistry clients) {
         if (awsEnabled) {
-            return new AwsAutoScaleGroupHelper(asg(region));
+            return new AwsAutoScaleGroupHelper(clients.autoScaling(region));
         }
         return new NoopAutoScaleGroupHelper();
     }
 
+    @Provides @Singleton
+    public ScriptJournal scriptJournal(Config config) {
+        if (config.hasPath("script_journal_path") && !config.getString("script_journal_path").isEmpty()) {
+            return new FileScriptJournal(config.getString("script_journal_path"));
+        }
+        return new NoopScriptJournal();
+    }
+
+    @Provides
+    @Named("bestEffortScriptsReserve")
+    public Duration bestEffortScriptsReserve(Config config) {
+        return config.hasPath("best_effort_scripts_reserve")
+                ? config.getDuration("best_effort_scripts_reserve")
+                : Duration.ofMinutes(5);
+    }
+
+    @Provides @Singleton
+    public ScriptCgroups scriptCgroups(Config config) {
+        if (!config.hasPath("script_cgroup") || !config.getBoolean("script_cgroup.enabled")) {
+            return ScriptCgroups.disabled();
+        }
+        return new ScriptCgroups(true,
+                config.getString("script_cgroup.root"),
+                config.getInt("script_cgroup.cpu_weight"),
+                config.getInt("script_cgroup.io_weight"),
+                config.getString("script_cgroup.memory_max"));
+    }
+
     @Provides
     @Named("queueName")
     public String queueName(MacroReplacer macroReplacer,
@@ -167,16 +321,4 @@ public class MainModule implements Module {
     public String getEnvironment(Config config) {
         return config.getString("environment");
     }
-
-    private AmazonSNS sns(@Named("region") String region) {
-        return AmazonSNSClientBuilder.standard().withRegion(region).build();
-    }
-
-    private AmazonSQS sqs(@Named("region") String region) {
-        return AmazonSQSClientBuilder.standard().withRegion(region).build();
-    }
-
-    private AmazonAutoScaling asg(@Named("region") String region) {
-        return AmazonAutoScalingClientBuilder.standard().withRegion(region).build();
-    }
 }
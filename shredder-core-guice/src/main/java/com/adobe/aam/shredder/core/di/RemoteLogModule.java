@@ -12,12 +12,11 @@
 
 package com.adobe.aam.shredder.core.di;
 
+import com.adobe.aam.shredder.core.aws.AwsClientRegistry;
 import com.adobe.aam.shredder.core.command.ScriptRunner;
 import com.adobe.aam.shredder.core.log.LogsNoOpUploader;
 import com.adobe.aam.shredder.core.log.LogsS3Uploader;
 import com.adobe.aam.shredder.core.log.LogsUploader;
-import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.AmazonS3ClientBuilder;
 import com.google.inject.Binder;
 import com.google.inject.Module;
 import com.google.inject.Provides;
@@ -39,7 +38,8 @@ public class RemoteLogModule implements Module {
 
     @Provides
     public LogsUploader getLogsUploader(@Named("awsEnabled") boolean awsEnabled,
-                                        Config config) {
+                                        Config config,
+                                        AwsClientRegistry clients) {
         if (!awsEnabled) {
             return new LogsNoOpUploader();
         }
@@ -50,13 +50,9 @@ public class RemoteLogModule implements Module {
         switch (remoteLogDestination) {
             case "s3":
                 String region = config.getString("remote_log_s3_region");
-                return new LogsS3Uploader(getS3Client(region), config.getString("remote_log_s3_bucket"));
+                return new LogsS3Uploader(clients.s3(region), config.getString("remote_log_s3_bucket"));
             default:
                 return new LogsNoOpUploader();
         }
     }
-
-    private AmazonS3 getS3Client(String region) {
-        return AmazonS3ClientBuilder.standard().withRegion(region).build();
-    }
 }
@@ -12,6 +12,8 @@
 
 package com.adobe.aam.shredder.core.di;
 
+import java.time.Duration;
+
 public interface ShredderConfig {
 
     boolean isAwsEnabled();
@@ -23,5 +25,58 @@ public interface ShredderConfig {
     String getSnsTopic();
     String getSqsPrefix();
 
+    /**
+     * @return whether the SNS subscription only lets through the messages about this instance
+     */
+    default boolean isSnsFilterByInstanceId() {
+        return false;
+    }
+
+    /**
+     * @return how long a received trigger stays invisible to the other receivers, unless its lease is extended
+     */
+    default Duration getSqsVisibilityTimeout() {
+        return Duration.ofHours(1);
+    }
+
+    /**
+     * @return "sqs" to receive the lifecycle messages through a queue subscribed to the SNS topic, or "imds" to poll
+     * the target lifecycle state of the instance from the instance metadata. Both, eg. "imds, sqs", race each other:
+     * the first source to deliver a trigger wins.
+     */
+    default String getTriggerSource() {
+        return "sqs";
+    }
+
+    default Duration getImdsPollInterval() {
+        return Duration.ofSeconds(5);
+    }
+
     String getAppName();
+
+    /**
+     * @return the size of the connection pool of each AWS client
+     */
+    default int getAwsMaxConnections() {
+        return 50;
+    }
+
+    default Duration getAwsConnectionMaxIdle() {
+        return Duration.ofMinutes(5);
+    }
+
+    default int getTriggerDedupMaxEntries() {
+        return 10000;
+    }
+
+    default Duration getTriggerDedupTtl() {
+        return Duration.ofHours(1);
+    }
+
+    /**
+     * @return the file the ids of the processed triggers are persisted to, or null to keep them in memory only
+     */
+    default String getTriggerDedupPath() {
+        return null;
+    }
 }
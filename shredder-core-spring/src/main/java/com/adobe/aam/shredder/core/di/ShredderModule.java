@@ -13,6 +13,7 @@
 package com.adobe.aam.shredder.core.di;
 
 import com.adobe.aam.shredder.core.aws.ArnHelper;
+import com.adobe.aam.shredder.core.aws.AwsClientRegistry;
 import com.adobe.aam.shredder.core.aws.TriggerHelper;
 import com.adobe.aam.shredder.core.aws.queue.AwsQueueCreator;
 import com.adobe.aam.shredder.core.aws.queue.NoopQueueCreator;
@@ -23,23 +24,28 @@ import com.adobe.aam.shredder.core.aws.servergroup.NoopAutoScaleGroupHelper;
 import com.adobe.aam.shredder.core.aws.sns.AwsQueueSuscriber;
 import com.adobe.aam.shredder.core.aws.sns.NoopQueueSuscriber;
 import com.adobe.aam.shredder.core.aws.sns.QueueSuscriber;
+import com.adobe.aam.shredder.core.aws.trigger.CompositeTriggerWatcher;
+import com.adobe.aam.shredder.core.aws.trigger.ImdsTriggerWatcher;
 import com.adobe.aam.shredder.core.aws.trigger.NoopTriggerWatcher;
 import com.adobe.aam.shredder.core.aws.trigger.SqsTriggerWatcher;
+import com.adobe.aam.shredder.core.aws.trigger.TriggerDeduplicator;
 import com.adobe.aam.shredder.core.aws.trigger.TriggerWatcher;
+import com.adobe.aam.shredder.core.trigger.NoopTriggerRaceListener;
 import com.amazonaws.services.autoscaling.AmazonAutoScaling;
-import com.amazonaws.services.autoscaling.AmazonAutoScalingClientBuilder;
 import com.amazonaws.services.sns.AmazonSNS;
-import com.amazonaws.services.sns.AmazonSNSClientBuilder;
 import com.amazonaws.services.sqs.AmazonSQS;
-import com.amazonaws.services.sqs.AmazonSQSClientBuilder;
 import com.amazonaws.util.EC2MetadataUtils;
 import com.fasterxml.jackson.databind.MapperFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Splitter;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.stereotype.Component;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
 
 @Component
@@ -79,9 +85,10 @@ public class ShredderModule {
 
     @Bean
     public QueueCreator queueCreator(@Qualifier("awsEnabled") boolean awsEnabled,
-                                     AmazonSQS sqs) {
+                                     AmazonSQS sqs,
+                                     ShredderConfig config) {
         if (awsEnabled) {
-            return new AwsQueueCreator(sqs);
+            return new AwsQueueCreator(sqs, config.getSqsVisibilityTimeout());
         }
 
         return new NoopQueueCreator();
@@ -90,9 +97,13 @@ public class ShredderModule {
     @Bean
     public QueueSuscriber snsSubcriber(@Qualifier("awsEnabled") boolean awsEnabled,
                                        AmazonSQS sqs,
-                                       AmazonSNS sns) {
+                                       AmazonSNS sns,
+                                       ShredderConfig config) {
         if (awsEnabled) {
-            return new AwsQueueSuscriber(sqs, sns);
+            Map<String, String> messageFilter = config.isSnsFilterByInstanceId()
+                    ? Collections.singletonMap("EC2InstanceId", getInstanceId(config))
+                    : Collections.emptyMap();
+            return new AwsQueueSuscriber(sqs, sns, messageFilter);
         }
 
         return new NoopQueueSuscriber();
@@ -102,11 +113,39 @@ public class ShredderModule {
     public TriggerWatcher triggerWatcher(@Qualifier("awsEnabled") boolean awsEnabled,
                                          @Qualifier("region") String region,
                                          TriggerHelper triggerHelper,
-                                         ObjectMapper objectMapper) {
-        if (awsEnabled) {
-            return new SqsTriggerWatcher(region, triggerHelper, objectMapper);
+                                         ObjectMapper objectMapper,
+                                         TriggerDeduplicator deduplicator,
+                                         ShredderConfig config,
+                                         AwsClientRegistry clients,
+                                         AutoScaleGroupHelper asgHelper) {
+        if (!awsEnabled) {
+            return new NoopTriggerWatcher();
+        }
+        Map<String, TriggerWatcher> watchers = new LinkedHashMap<>();
+        for (String source : Splitter.on(',').trimResults().omitEmptyStrings().split(config.getTriggerSource())) {
+            if ("imds".equals(source)) {
+                watchers.put(source, new ImdsTriggerWatcher(ImdsTriggerWatcher.DEFAULT_ENDPOINT, getInstanceId(config),
+                        asgHelper, objectMapper, config.getImdsPollInterval(), ImdsTriggerWatcher.DEFAULT_TOKEN_TTL));
+            } else if ("sqs".equals(source)) {
+                watchers.put(source, new SqsTriggerWatcher(region, triggerHelper, objectMapper, deduplicator,
+                        config.getSqsVisibilityTimeout(), clients));
+            } else {
+                throw new IllegalArgumentException("Unknown trigger source: " + source);
+            }
+        }
+        if (watchers.size() == 1) {
+            return watchers.values().iterator().next();
         }
-        return new NoopTriggerWatcher();
+        return new CompositeTriggerWatcher(watchers, objectMapper, CompositeTriggerWatcher.DEFAULT_KEY_FIELDS,
+                new NoopTriggerRaceListener(), CompositeTriggerWatcher.DEFAULT_RACE_WINDOW);
+    }
+
+    @Bean
+    public TriggerDeduplicator triggerDeduplicator(ShredderConfig config) {
+        return new TriggerDeduplicator(
+                config.getTriggerDedupMaxEntries(),
+                config.getTriggerDedupTtl(),
+                config.getTriggerDedupPath());
     }
 
     @Bean
@@ -143,15 +182,21 @@ public class ShredderModule {
         return objectMapper;
     }
 
+    @Bean
+    public AwsClientRegistry awsClientRegistry(ShredderConfig config) {
+        return new AwsClientRegistry(config.getAwsMaxConnections(), config.getAwsConnectionMaxIdle());
+    }
+
     @Bean
     @ConditionalOnProperty(
             name = "aws.sns.self_managed",
             havingValue="self_managed",
             matchIfMissing = true)
     public AmazonSNS sns(@Qualifier("awsEnabled") boolean awsEnabled,
-                         @Qualifier("region") String region) {
+                         @Qualifier("region") String region,
+                         AwsClientRegistry clients) {
         if (awsEnabled) {
-            return AmazonSNSClientBuilder.standard().withRegion(region).build();
+            return clients.sns(region);
         }
 
         return null;
@@ -163,9 +208,10 @@ public class ShredderModule {
             havingValue="self_managed",
             matchIfMissing = true)
     public AmazonSQS sqs(@Qualifier("awsEnabled") boolean awsEnabled,
-                         @Qualifier("region") String region) {
+                         @Qualifier("region") String region,
+                         AwsClientRegistry clients) {
         if (awsEnabled) {
-            return AmazonSQSClientBuilder.standard().withRegion(region).build();
+            return clients.sqs(region);
         }
 
         return null;
@@ -177,9 +223,10 @@ public class ShredderModule {
             havingValue="self_managed",
             matchIfMissing = true)
     public AmazonAutoScaling asg(@Qualifier("awsEnabled") boolean awsEnabled,
-                                 @Qualifier("region") String region) {
+                                 @Qualifier("region") String region,
+                                 AwsClientRegistry clients) {
         if (awsEnabled) {
-            return AmazonAutoScalingClientBuilder.standard().withRegion(region).build();
+            return clients.autoScaling(region);
         }
 
         return null;
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+package com.adobe.aam.shredder.core.command;
+
+import com.adobe.aam.shredder.core.trigger.TriggerMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders a typical sample-cleanup command for a trigger.
+ * Run with {@code ./gradlew :shredder-core:jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MacroTemplateBenchmark {
+
+    private static final String COMMAND = "aws s3 cp s3://logs-REGION_MACRO/TRIGGER_HOSTNAME_MACRO/ "
+            + "/mnt/archive/TRIGGER_INSTANCEID_MACRO --recursive --region REGION_MACRO # from HOSTNAME_MACRO";
+
+    private final Trigger trigger = new Trigger();
+    private final MacroTemplate template = MacroTemplate.compile(COMMAND);
+
+    @Benchmark
+    public String compiledTemplate() {
+        return template.render(trigger, "ip-10-0-0-1", "us-east-1");
+    }
+
+    @Benchmark
+    public String compileAndRender() {
+        return MacroTemplate.compile(COMMAND).render(trigger, "ip-10-0-0-1", "us-east-1");
+    }
+
+    /**
+     * The previous implementation: bean introspection, reflective getters and one replace pass per macro.
+     */
+    @Benchmark
+    public String introspectionAndReplace() throws Exception {
+        String output = COMMAND;
+        for (PropertyDescriptor pd : Introspector.getBeanInfo(trigger.getClass(), Object.class).getPropertyDescriptors()) {
+            if (pd.getReadMethod() != null) {
+                Object value = pd.getReadMethod().invoke(trigger);
+                output = output.replace("TRIGGER_" + pd.getName().toUpperCase() + "_MACRO", value.toString());
+            }
+        }
+        return output.replace("HOSTNAME_MACRO", "ip-10-0-0-1").replace("REGION_MACRO", "us-east-1");
+    }
+
+    public static class Trigger implements TriggerMessage {
+        public String getHostname() {
+            return "ip-10-0-0-2";
+        }
+
+        public String getInstanceId() {
+            return "i-0123456789abcdef0";
+        }
+
+        public String getAutoScalingGroupName() {
+            return "sample-asg";
+        }
+
+        public String getLifecycleTransition() {
+            return "autoscaling:EC2_INSTANCE_TERMINATING";
+        }
+    }
+}
@@ -12,22 +12,94 @@
 
 package com.adobe.aam.shredder.core;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.inject.Inject;
+import javax.inject.Singleton;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Resolves the local hostname once, then serves the cached value. Once it is older than the TTL, the hostname is
+ * resolved again in the background, so that a slow or broken DNS only ever delays the first caller.
+ */
+@Singleton
 public class HostnameProvider {
     private static final Logger LOG = LoggerFactory.getLogger(HostnameProvider.class);
+    private static final long TTL_MS = TimeUnit.MINUTES.toMillis(10);
+    private static final String NO_HOSTNAME = "no-hostname";
+
+    private final Callable<String> resolver;
+    private final long ttlMs;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private final ExecutorService refresher = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("hostname-refresh").setDaemon(true).build());
+    private volatile String hostname;
+    private volatile long resolvedAt;
+
+    @Inject
+    public HostnameProvider() {
+        this(HostnameProvider::resolve, TTL_MS);
+    }
+
+    HostnameProvider(Callable<String> resolver, long ttlMs) {
+        this.resolver = resolver;
+        this.ttlMs = ttlMs;
+    }
 
     public String getHostname() {
-        System.setProperty("java.net.preferIPv4Stack", "true");
+        String cached = hostname;
+        if (cached == null) {
+            return resolveFirst();
+        }
+        if (System.currentTimeMillis() - resolvedAt > ttlMs && refreshing.compareAndSet(false, true)) {
+            refresher.execute(this::refresh);
+        }
+        return cached;
+    }
+
+    private synchronized String resolveFirst() {
+        if (hostname == null) {
+            try {
+                update(resolver.call());
+            } catch (Exception e) {
+                LOG.error("Unable to fetch hostname", e);
+                // retried in the background by the next caller
+                hostname = NO_HOSTNAME;
+                resolvedAt = 0;
+            }
+        }
+        return hostname;
+    }
+
+    private void refresh() {
         try {
-            return InetAddress.getLocalHost().getHostName();
-        } catch (UnknownHostException e) {
-            LOG.error("Unable to fetch hostname", e);
-            return "no-hostname";
+            update(resolver.call());
+        } catch (Exception e) {
+            LOG.warn("Unable to refresh the hostname, keeping {}. {}", hostname, e.toString());
+            resolvedAt = System.currentTimeMillis();
+        } finally {
+            refreshing.set(false);
+        }
+    }
+
+    private void update(String resolved) {
+        if (hostname != null && !hostname.equals(resolved)) {
+            LOG.info("Hostname changed from {} to {}", hostname, resolved);
         }
+        hostname = resolved;
+        resolvedAt = System.currentTimeMillis();
+    }
+
+    private static String resolve() throws UnknownHostException {
+        System.setProperty("java.net.preferIPv4Stack", "true");
+        return InetAddress.getLocalHost().getHostName();
     }
 }
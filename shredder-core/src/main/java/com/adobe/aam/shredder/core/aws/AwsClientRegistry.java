@@ -0,0 +1,103 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+package com.adobe.aam.shredder.core.aws;
+
+import com.amazonaws.AmazonWebServiceClient;
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.client.builder.AwsClientBuilder;
+import com.amazonaws.services.autoscaling.AmazonAutoScaling;
+import com.amazonaws.services.autoscaling.AmazonAutoScalingClientBuilder;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.amazonaws.services.sns.AmazonSNS;
+import com.amazonaws.services.sns.AmazonSNSClientBuilder;
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.AmazonSQSClientBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Builds each AWS client once per region and shares it between all the components, so that they reuse the same
+ * connection pool and TLS sessions instead of each setting up their own. Idle connections are kept alive for
+ * {@code connectionMaxIdle}, with TCP keep-alive, so that the sporadic calls (eg. heartbeats) don't pay for a new
+ * handshake.
+ * <p>
+ * The clients are thread-safe and live as long as the process: they are only shut down by {@link #shutdown()}, on
+ * exit, either by the Spring context or by the shutdown hook of the SqsTriggerWatcher using them.
+ */
+public class AwsClientRegistry {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AwsClientRegistry.class);
+    // enough for the SQS long polls, which hold a connection for up to 20 seconds, next to the other calls
+    public static final int DEFAULT_MAX_CONNECTIONS = 50;
+    public static final Duration DEFAULT_CONNECTION_MAX_IDLE = Duration.ofMinutes(5);
+
+    private final ClientConfiguration clientConfiguration;
+    private final Map<String, Object> clients = new ConcurrentHashMap<>();
+
+    public AwsClientRegistry() {
+        this(DEFAULT_MAX_CONNECTIONS, DEFAULT_CONNECTION_MAX_IDLE);
+    }
+
+    public AwsClientRegistry(int maxConnections, Duration connectionMaxIdle) {
+        this.clientConfiguration = new ClientConfiguration()
+                .withMaxConnections(maxConnections)
+                .withConnectionMaxIdleMillis(connectionMaxIdle.toMillis())
+                .withTcpKeepAlive(true)
+                .withReaper(true);
+    }
+
+    public AmazonSQS sqs(String region) {
+        return get(AmazonSQS.class, region, AmazonSQSClientBuilder::standard);
+    }
+
+    public AmazonSNS sns(String region) {
+        return get(AmazonSNS.class, region, AmazonSNSClientBuilder::standard);
+    }
+
+    public AmazonAutoScaling autoScaling(String region) {
+        return get(AmazonAutoScaling.class, region, AmazonAutoScalingClientBuilder::standard);
+    }
+
+    public AmazonS3 s3(String region) {
+        return get(AmazonS3.class, region, AmazonS3ClientBuilder::standard);
+    }
+
+    /**
+     * @param builder the builder of the client, used the first time the client is requested for the region
+     * @return the shared client of the given type for the region
+     */
+    public <C> C get(Class<C> type, String region, Supplier<? extends AwsClientBuilder<?, C>> builder) {
+        return type.cast(clients.computeIfAbsent(type.getName() + "@" + region, key -> {
+            LOG.info("Creating the {} client for {}.", type.getSimpleName(), region);
+            AwsClientBuilder<?, C> clientBuilder = builder.get();
+            clientBuilder.setRegion(region);
+            clientBuilder.setClientConfiguration(clientConfiguration);
+            return clientBuilder.build();
+        }));
+    }
+
+    public void shutdown() {
+        for (Object client : clients.values()) {
+            if (client instanceof AmazonWebServiceClient) {
+                ((AmazonWebServiceClient) client).shutdown();
+            }
+        }
+        clients.clear();
+    }
+}
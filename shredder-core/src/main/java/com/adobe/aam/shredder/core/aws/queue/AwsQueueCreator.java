@@ -20,6 +20,7 @@ import com.github.rholder.retry.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
@@ -27,11 +28,18 @@ import java.util.concurrent.TimeUnit;
 public class AwsQueueCreator implements QueueCreator {
 
     private static final Logger LOG = LoggerFactory.getLogger(AwsQueueCreator.class);
+    public static final Duration DEFAULT_VISIBILITY_TIMEOUT = Duration.ofHours(1);
 
     private final AmazonSQS sqs;
+    private final Duration visibilityTimeout;
 
     public AwsQueueCreator(AmazonSQS sqs) {
+        this(sqs, DEFAULT_VISIBILITY_TIMEOUT);
+    }
+
+    public AwsQueueCreator(AmazonSQS sqs, Duration visibilityTimeout) {
         this.sqs = sqs;
+        this.visibilityTimeout = visibilityTimeout;
     }
 
     @Override
@@ -83,11 +91,12 @@ public class AwsQueueCreator implements QueueCreator {
         };
     }
 
-    private static CreateQueueRequest getCreateQueueRequest(String queueName) {
+    private CreateQueueRequest getCreateQueueRequest(String queueName) {
 
         return new CreateQueueRequest()
                 .withQueueName(queueName)
-                .addAttributesEntry(QueueAttributeName.VisibilityTimeout.toString(), "3600")
+                .addAttributesEntry(QueueAttributeName.VisibilityTimeout.toString(),
+                        Long.toString(visibilityTimeout.getSeconds()))
                 .addAttributesEntry(QueueAttributeName.ReceiveMessageWaitTimeSeconds.toString(), "20");
     }
 }
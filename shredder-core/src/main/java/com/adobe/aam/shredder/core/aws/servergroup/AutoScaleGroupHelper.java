@@ -14,6 +14,7 @@ package com.adobe.aam.shredder.core.aws.servergroup;
 
 import com.amazonaws.services.autoscaling.model.AutoScalingInstanceDetails;
 import com.amazonaws.services.autoscaling.model.CompleteLifecycleActionRequest;
+import com.amazonaws.services.autoscaling.model.LifecycleHook;
 import com.amazonaws.services.autoscaling.model.RecordLifecycleActionHeartbeatRequest;
 
 import java.util.Optional;
@@ -24,6 +25,7 @@ public interface AutoScaleGroupHelper {
 
     Optional<AutoScalingInstanceDetails> getCurrentAutoScalingGroup(String instanceId);
     Optional<String> getLifecycleHookName(String autoScaleGroupName, String transitionType);
+    Optional<LifecycleHook> getLifecycleHook(String autoScaleGroupName, String lifecycleHookName);
 
     void recordLifecycleActionHeartbeat(RecordLifecycleActionHeartbeatRequest request);
     void completeLifecycleAction(CompleteLifecycleActionRequest request);
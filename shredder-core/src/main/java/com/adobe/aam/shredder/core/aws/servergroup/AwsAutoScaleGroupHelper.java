@@ -70,6 +70,19 @@ public class AwsAutoScaleGroupHelper implements AutoScaleGroupHelper {
         }
     }
 
+    @Override
+    public Optional<LifecycleHook> getLifecycleHook(String autoScaleGroupName, String lifecycleHookName) {
+        try {
+            DescribeLifecycleHooksRequest request = new DescribeLifecycleHooksRequest()
+                    .withAutoScalingGroupName(autoScaleGroupName)
+                    .withLifecycleHookNames(lifecycleHookName);
+            return asg.describeLifecycleHooks(request).getLifecycleHooks().stream().findFirst();
+        } catch (AmazonClientException e) {
+            LOG.error("Unable to fetch Lifecycle Hook {} of {}", lifecycleHookName, autoScaleGroupName, e);
+            return Optional.empty();
+        }
+    }
+
     @Override
     public void recordLifecycleActionHeartbeat(RecordLifecycleActionHeartbeatRequest request) {
         asg.recordLifecycleActionHeartbeat(request);
@@ -14,6 +14,7 @@ package com.adobe.aam.shredder.core.aws.servergroup;
 
 import com.amazonaws.services.autoscaling.model.AutoScalingInstanceDetails;
 import com.amazonaws.services.autoscaling.model.CompleteLifecycleActionRequest;
+import com.amazonaws.services.autoscaling.model.LifecycleHook;
 import com.amazonaws.services.autoscaling.model.RecordLifecycleActionHeartbeatRequest;
 
 import java.util.Optional;
@@ -30,6 +31,11 @@ public class NoopAutoScaleGroupHelper implements AutoScaleGroupHelper {
         return Optional.empty();
     }
 
+    @Override
+    public Optional<LifecycleHook> getLifecycleHook(String autoScaleGroupName, String lifecycleHookName) {
+        return Optional.empty();
+    }
+
     @Override
     public void recordLifecycleActionHeartbeat(RecordLifecycleActionHeartbeatRequest request) {
 
@@ -23,20 +23,37 @@ import com.amazonaws.services.sns.AmazonSNS;
 import com.amazonaws.services.sqs.AmazonSQS;
 import com.amazonaws.services.sqs.model.QueueAttributeName;
 import com.amazonaws.services.sqs.model.SetQueueAttributesRequest;
+import com.amazonaws.util.json.Jackson;
 import com.google.common.collect.ImmutableList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 public class AwsQueueSuscriber implements QueueSuscriber {
 
     private static final Logger LOG = LoggerFactory.getLogger(AwsQueueSuscriber.class);
 
     private final AmazonSQS sqs;
     private final AmazonSNS sns;
+    private final Map<String, String> messageFilter;
 
     public AwsQueueSuscriber(AmazonSQS sqs, AmazonSNS sns) {
+        this(sqs, sns, Collections.emptyMap());
+    }
+
+    /**
+     * @param messageFilter the values that fields of the SNS message must have for the message to be delivered to the
+     *                      queue, eg. {@code EC2InstanceId}, so that SNS drops the messages meant for other receivers
+     *                      instead of fanning them out to every queue. Filtered messages are delivered raw, without the
+     *                      SNS envelope.
+     */
+    public AwsQueueSuscriber(AmazonSQS sqs, AmazonSNS sns, Map<String, String> messageFilter) {
         this.sqs = sqs;
         this.sns = sns;
+        this.messageFilter = messageFilter;
     }
 
     @Override
@@ -61,6 +78,9 @@ public class AwsQueueSuscriber implements QueueSuscriber {
 
             String snsSubscriptionArn = sns.subscribe(snsTopic, "sqs", queueArn).getSubscriptionArn();
             LOG.info("Subscribed SNS to dedicated SQS queue. subscriptionArn: {}", snsSubscriptionArn);
+            if (!messageFilter.isEmpty()) {
+                setMessageFilter(snsSubscriptionArn);
+            }
 
             return snsSubscriptionArn;
         } catch (AmazonClientException e) {
@@ -69,6 +89,25 @@ public class AwsQueueSuscriber implements QueueSuscriber {
         }
     }
 
+    /**
+     * The receivers still check that the messages are meant for them, so failing to set the filter is not fatal: the
+     * queue just receives all the messages of the topic.
+     */
+    private void setMessageFilter(String snsSubscriptionArn) {
+        Map<String, Object> filterPolicy = new LinkedHashMap<>();
+        messageFilter.forEach((field, value) -> filterPolicy.put(field, Collections.singletonList(value)));
+        try {
+            // the lifecycle messages have no message attributes: the filter applies to the message body
+            sns.setSubscriptionAttributes(snsSubscriptionArn, "FilterPolicyScope", "MessageBody");
+            sns.setSubscriptionAttributes(snsSubscriptionArn, "FilterPolicy", Jackson.toJsonString(filterPolicy));
+            sns.setSubscriptionAttributes(snsSubscriptionArn, "RawMessageDelivery", "true");
+            LOG.info("Filtering the SNS messages delivered to the queue on {}.", messageFilter);
+        } catch (AmazonClientException e) {
+            LOG.warn("Unable to filter the SNS messages delivered to the queue. All the messages will be received. {}",
+                    e.getMessage());
+        }
+    }
+
     @Override
     public void unsubscribe(String snsSubscriptionArn) {
 
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+package com.adobe.aam.shredder.core.aws.trigger;
+
+import com.adobe.aam.shredder.core.trigger.TriggerMessage;
+import com.adobe.aam.shredder.core.trigger.TriggerRaceListener;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import io.reactivex.Flowable;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Watches several trigger sources at once, eg. the target lifecycle state in IMDS and the lifecycle messages in SQS,
+ * and emits each trigger as soon as the first source delivers it. The same trigger delivered by the other sources is
+ * dropped. Triggers are the same when they have the same values for the key fields (eg. EC2InstanceId and
+ * LifecycleTransition), or the same content if no key field is set.
+ * <p>
+ * The sources keep running for the race window after the first delivery, even if the caller stopped listening, so
+ * that the lead time of the winner over the other sources can be reported to the {@link TriggerRaceListener}. A
+ * source which fails is logged and left out; the others carry on.
+ */
+public class CompositeTriggerWatcher implements TriggerWatcher {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CompositeTriggerWatcher.class);
+    public static final Duration DEFAULT_RACE_WINDOW = Duration.ofMinutes(2);
+    public static final List<String> DEFAULT_KEY_FIELDS = ImmutableList.of("EC2InstanceId", "LifecycleTransition");
+
+    private final Map<String, TriggerWatcher> sources;
+    private final ObjectMapper objectMapper;
+    private final List<String> keyFields;
+    private final TriggerRaceListener raceListener;
+    private final long raceWindowMs;
+
+    /**
+     * @param sources the watchers, by source name
+     */
+    public CompositeTriggerWatcher(Map<String, TriggerWatcher> sources, ObjectMapper objectMapper,
+                                   List<String> keyFields, TriggerRaceListener raceListener, Duration raceWindow) {
+        this.sources = new LinkedHashMap<>(sources);
+        this.objectMapper = objectMapper;
+        this.keyFields = keyFields;
+        this.raceListener = raceListener;
+        this.raceWindowMs = raceWindow.toMillis();
+    }
+
+    @Override
+    public <T extends TriggerMessage> Flowable<T> requestTriggers(String queueName, Class<T> triggerType) {
+        return race(source -> source.requestTriggers(queueName, triggerType));
+    }
+
+    @Override
+    public <T extends TriggerMessage> Flowable<T> requestTriggers(String queueName, Class<T> triggerType,
+                                                                  Map<String, String> messageFilter) {
+        return race(source -> source.requestTriggers(queueName, triggerType, messageFilter));
+    }
+
+    private <T extends TriggerMessage> Flowable<T> race(Function<TriggerWatcher, Flowable<T>> request) {
+        return Flowable.defer(() -> {
+            Races races = new Races();
+            List<Flowable<Delivery<T>>> deliveries = new ArrayList<>();
+            sources.forEach((name, source) -> deliveries.add(request.apply(source)
+                    // each source polls on its own thread
+                    .subscribeOn(Schedulers.io())
+                    .map(trigger -> new Delivery<>(name, trigger))
+                    .doOnError(t -> LOG.error("Trigger source {} failed. Carrying on with the other sources.", name, t))
+                    .onErrorResumeNext(Flowable.<Delivery<T>>empty())));
+
+            // the sources are started once both the timing subscriber and the caller are subscribed
+            Flowable<Delivery<T>> merged = Flowable.merge(deliveries)
+                    .doOnNext(races::record)
+                    .publish()
+                    .autoConnect(2, races::setConnection);
+            // keeps the races timed after the caller stopped listening; the caller gets the errors
+            merged.subscribe(delivery -> { }, t -> { });
+            return merged
+                    .filter(delivery -> delivery.first)
+                    .map(delivery -> delivery.trigger)
+                    .doOnCancel(races::cancel);
+        });
+    }
+
+    private String getKey(Object trigger) {
+        @SuppressWarnings("unchecked")
+        Map<String, Object> fields = objectMapper.convertValue(trigger, Map.class);
+        if (keyFields.isEmpty()) {
+            return fields.toString();
+        }
+
+        List<String> key = new ArrayList<>();
+        for (String keyField : keyFields) {
+            fields.entrySet().stream()
+                    .filter(field -> field.getKey().equalsIgnoreCase(keyField))
+                    .findFirst()
+                    .ifPresent(field -> key.add(String.valueOf(field.getValue())));
+        }
+        return String.join("/", key);
+    }
+
+    private static class Delivery<T> {
+        private final String source;
+        private final T trigger;
+        private final long receivedAtMs = System.currentTimeMillis();
+        private boolean first;
+
+        private Delivery(String source, T trigger) {
+            this.source = source;
+            this.trigger = trigger;
+        }
+    }
+
+    private static class Race {
+        private final String winner;
+        private final long startMs;
+        private final Map<String, Long> leadTimesMs = new LinkedHashMap<>();
+        private boolean finished;
+
+        private Race(String winner, long startMs) {
+            this.winner = winner;
+            this.startMs = startMs;
+        }
+    }
+
+    /**
+     * The races of the triggers requested by one caller. Finished races are kept, so that late deliveries of their
+     * trigger are still dropped.
+     */
+    private class Races {
+        private final Map<String, Race> racesByKey = new HashMap<>();
+        private Disposable connection;
+        private boolean cancelled;
+
+        private synchronized void setConnection(Disposable connection) {
+            this.connection = connection;
+        }
+
+        private void record(Delivery<?> delivery) {
+            String key = getKey(delivery.trigger);
+            boolean allDelivered;
+            synchronized (this) {
+                Race race = racesByKey.get(key);
+                if (race == null) {
+                    LOG.info("Trigger source {} delivered trigger {} first.", delivery.source, key);
+                    racesByKey.put(key, new Race(delivery.source, delivery.receivedAtMs));
+                    delivery.first = true;
+                    Schedulers.computation().scheduleDirect(() -> finish(key), raceWindowMs, TimeUnit.MILLISECONDS);
+                    return;
+                }
+                if (race.finished || race.winner.equals(delivery.source)
+                        || race.leadTimesMs.containsKey(delivery.source)) {
+                    return;
+                }
+                race.leadTimesMs.put(delivery.source, delivery.receivedAtMs - race.startMs);
+                allDelivered = race.leadTimesMs.size() == sources.size() - 1;
+            }
+            if (allDelivered) {
+                finish(key);
+            }
+        }
+
+        private void finish(String key) {
+            Race race;
+            synchronized (this) {
+                race = racesByKey.get(key);
+                if (race.finished) {
+                    return;
+                }
+                race.finished = true;
+            }
+            LOG.info("Trigger source {} won the race for trigger {}. Lead time over the other sources: {} ms.",
+                    race.winner, key, race.leadTimesMs);
+            raceListener.onRaceFinished(race.winner, race.leadTimesMs);
+            stopIfDone();
+        }
+
+        private void cancel() {
+            synchronized (this) {
+                cancelled = true;
+            }
+            stopIfDone();
+        }
+
+        /**
+         * Stops the sources once the caller stopped listening and no race is being timed.
+         */
+        private void stopIfDone() {
+            Disposable toDispose;
+            synchronized (this) {
+                boolean timing = racesByKey.values().stream().anyMatch(race -> !race.finished);
+                if (!cancelled || timing || connection == null) {
+                    return;
+                }
+                toDispose = connection;
+            }
+            toDispose.dispose();
+        }
+    }
+}
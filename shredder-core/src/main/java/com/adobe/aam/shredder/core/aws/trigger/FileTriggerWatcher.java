@@ -0,0 +1,115 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+
+package com.adobe.aam.shredder.core.aws.trigger;
+
+import com.adobe.aam.shredder.core.aws.servergroup.AutoScaleGroupHelper;
+import com.adobe.aam.shredder.core.trigger.TriggerMessage;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.reactivex.Flowable;
+import io.reactivex.Maybe;
+import io.reactivex.schedulers.Schedulers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lets an operator trigger the service from the instance, by writing a file. The file holds a JSON object with the
+ * fields of the trigger, which are added to the default fields (eg. the instance id); an empty file only has the
+ * default fields. A trigger is emitted each time the file is created or modified after the watch started; a file
+ * left over from before (eg. from the previous boot) is ignored until it is modified again. Lifecycle triggers which
+ * don't name their lifecycle hook get the hook of the instance, as with {@link ImdsTriggerWatcher}.
+ * <p>
+ * The queue name passed to {@link #requestTriggers(String, Class)} is ignored.
+ */
+public class FileTriggerWatcher implements TriggerWatcher {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FileTriggerWatcher.class);
+    public static final Duration DEFAULT_POLL_INTERVAL = Duration.ofSeconds(1);
+
+    private final Path path;
+    private final Map<String, String> defaults;
+    private final AutoScaleGroupHelper asgHelper;
+    private final ObjectMapper objectMapper;
+    private final long pollIntervalMs;
+
+    public FileTriggerWatcher(String path, Map<String, String> defaults, AutoScaleGroupHelper asgHelper,
+                              ObjectMapper objectMapper, Duration pollInterval) {
+        this.path = Paths.get(path);
+        this.defaults = defaults;
+        this.asgHelper = asgHelper;
+        this.objectMapper = objectMapper;
+        this.pollIntervalMs = pollInterval.toMillis();
+    }
+
+    @Override
+    public <T extends TriggerMessage> Flowable<T> requestTriggers(String queueName, Class<T> triggerType) {
+        return Flowable.defer(() -> {
+            Optional<Instant> stale = getLastModified();
+            if (stale.isPresent()) {
+                LOG.info("Watching for triggers written to {}, ignoring the one already there...", path);
+            } else {
+                LOG.info("Watching for triggers written to {}...", path);
+            }
+            return Flowable.interval(0, pollIntervalMs, TimeUnit.MILLISECONDS, Schedulers.io())
+                    .onBackpressureDrop()
+                    .map(tick -> getLastModified())
+                    .filter(Optional::isPresent)
+                    .map(Optional::get)
+                    .filter(lastModified -> !stale.isPresent() || lastModified.isAfter(stale.get()))
+                    .distinctUntilChanged()
+                    .flatMapMaybe(lastModified -> readTrigger(triggerType));
+        });
+    }
+
+    private Optional<Instant> getLastModified() {
+        try {
+            return Files.isRegularFile(path)
+                    ? Optional.of(Files.getLastModifiedTime(path).toInstant())
+                    : Optional.empty();
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    private <T extends TriggerMessage> Maybe<T> readTrigger(Class<T> triggerType) {
+        try {
+            String content = new String(Files.readAllBytes(path), StandardCharsets.UTF_8).trim();
+            Map<String, String> message = new LinkedHashMap<>(defaults);
+            message.put("Time", Instant.now().toString());
+            if (!content.isEmpty()) {
+                message.putAll(objectMapper.readValue(content, new TypeReference<Map<String, String>>() { }));
+            }
+            if (message.containsKey("LifecycleTransition") && !message.containsKey("LifecycleHookName")) {
+                ImdsTriggerWatcher.addLifecycleHook(message, asgHelper);
+            }
+            LOG.info("Read trigger from {}: {}", path, message);
+            return Maybe.just(objectMapper.convertValue(message, triggerType));
+        } catch (IOException | IllegalArgumentException e) {
+            LOG.error("Unable to read a trigger from {}. {}", path, e.getMessage());
+            return Maybe.empty();
+        }
+    }
+}
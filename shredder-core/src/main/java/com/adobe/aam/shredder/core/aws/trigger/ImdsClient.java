@@ -0,0 +1,116 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+
+package com.adobe.aam.shredder.core.aws.trigger;
+
+import com.google.common.io.ByteStreams;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Reads the instance metadata with IMDSv2. The session token is reused until shortly before it expires, so that
+ * polling costs a single request.
+ */
+class ImdsClient {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ImdsClient.class);
+    static final String TOKEN_PATH = "/latest/api/token";
+    private static final int TIMEOUT_MS = 1000;
+    // a token is renewed this long before it expires, so that a request never races its expiry
+    private static final long TOKEN_RENEWAL_MARGIN_MS = 60_000;
+
+    private final String endpoint;
+    private final Duration tokenTtl;
+    private String token;
+    private long tokenExpiresAtMs;
+    private boolean unavailableLogged;
+
+    ImdsClient(String endpoint, Duration tokenTtl) {
+        this.endpoint = endpoint;
+        this.tokenTtl = tokenTtl;
+    }
+
+    /**
+     * @return the metadata, or empty if it doesn't exist (HTTP 404) or if IMDS can't be reached
+     */
+    synchronized Optional<String> get(String path) {
+        try {
+            HttpURLConnection connection = open(path, "GET");
+            connection.setRequestProperty("X-aws-ec2-metadata-token", getToken());
+            int status = connection.getResponseCode();
+            if (status == HttpURLConnection.HTTP_NOT_FOUND) {
+                return Optional.empty();
+            }
+            if (status == HttpURLConnection.HTTP_UNAUTHORIZED) {
+                // the token expired early, eg. IMDS was restarted
+                token = null;
+                return Optional.empty();
+            }
+            if (status != HttpURLConnection.HTTP_OK) {
+                logUnavailable(path, "HTTP " + status);
+                return Optional.empty();
+            }
+            return Optional.of(read(connection).trim());
+        } catch (IOException e) {
+            logUnavailable(path, e.toString());
+            return Optional.empty();
+        }
+    }
+
+    private String getToken() throws IOException {
+        if (token == null || System.currentTimeMillis() >= tokenExpiresAtMs - TOKEN_RENEWAL_MARGIN_MS) {
+            HttpURLConnection connection = open(TOKEN_PATH, "PUT");
+            connection.setRequestProperty("X-aws-ec2-metadata-token-ttl-seconds", Long.toString(tokenTtl.getSeconds()));
+            if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Unable to get an IMDS token: HTTP " + connection.getResponseCode());
+            }
+            token = read(connection).trim();
+            tokenExpiresAtMs = System.currentTimeMillis() + tokenTtl.toMillis();
+        }
+        return token;
+    }
+
+    private HttpURLConnection open(String path, String method) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(endpoint + path).openConnection();
+        connection.setRequestMethod(method);
+        connection.setConnectTimeout(TIMEOUT_MS);
+        connection.setReadTimeout(TIMEOUT_MS);
+        return connection;
+    }
+
+    private static String read(HttpURLConnection connection) throws IOException {
+        try (InputStream in = connection.getInputStream()) {
+            return new String(ByteStreams.toByteArray(in), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Logged once as a warning, then at debug level, as the metadata keeps being polled.
+     */
+    private void logUnavailable(String path, String reason) {
+        if (unavailableLogged) {
+            LOG.debug("Unable to read {} from the instance metadata. {}", path, reason);
+        } else {
+            unavailableLogged = true;
+            LOG.warn("Unable to read {} from the instance metadata. Will keep trying. {}", path, reason);
+        }
+    }
+}
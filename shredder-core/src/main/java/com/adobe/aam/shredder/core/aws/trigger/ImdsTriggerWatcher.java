@@ -0,0 +1,161 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+
+package com.adobe.aam.shredder.core.aws.trigger;
+
+import com.adobe.aam.shredder.core.aws.servergroup.AutoScaleGroupHelper;
+import com.adobe.aam.shredder.core.trigger.TriggerMessage;
+import com.amazonaws.services.autoscaling.model.AutoScalingInstanceDetails;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.reactivex.Flowable;
+import io.reactivex.Maybe;
+import io.reactivex.schedulers.Schedulers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Learns that the instance is being terminated from the instance metadata (IMDSv2), instead of from an SQS queue
+ * subscribed to the lifecycle SNS topic: no queue, subscription or policy has to be set up when the service starts.
+ * <p>
+ * Polls {@code /latest/meta-data/autoscaling/target-lifecycle-state} and emits a trigger each time the state changes
+ * to one which maps to a lifecycle transition, with the Auto Scale Group and lifecycle hook looked up at that moment.
+ * The lookup is retried a few times, every poll interval, as a trigger without its lifecycle hook can't complete the
+ * lifecycle action.
+ * IMDS has no lifecycle action token: the lifecycle action is completed by instance id. The queue name passed to
+ * {@link #requestTriggers(String, Class)} is ignored.
+ */
+public class ImdsTriggerWatcher implements TriggerWatcher {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ImdsTriggerWatcher.class);
+    public static final String DEFAULT_ENDPOINT = "http://169.254.169.254";
+    public static final Duration DEFAULT_POLL_INTERVAL = Duration.ofSeconds(5);
+    public static final Duration DEFAULT_TOKEN_TTL = Duration.ofHours(6);
+    static final String TARGET_LIFECYCLE_STATE_PATH = "/latest/meta-data/autoscaling/target-lifecycle-state";
+    static final String TERMINATING_TRANSITION = "autoscaling:EC2_INSTANCE_TERMINATING";
+    static final int LOOKUP_RETRIES = 3;
+
+    private final ImdsClient imds;
+    private final String instanceId;
+    private final AutoScaleGroupHelper asgHelper;
+    private final ObjectMapper objectMapper;
+    private final long pollIntervalMs;
+
+    public ImdsTriggerWatcher(String instanceId, AutoScaleGroupHelper asgHelper, ObjectMapper objectMapper) {
+        this(DEFAULT_ENDPOINT, instanceId, asgHelper, objectMapper, DEFAULT_POLL_INTERVAL, DEFAULT_TOKEN_TTL);
+    }
+
+    public ImdsTriggerWatcher(String endpoint, String instanceId, AutoScaleGroupHelper asgHelper,
+                              ObjectMapper objectMapper, Duration pollInterval, Duration tokenTtl) {
+        this.imds = new ImdsClient(endpoint, tokenTtl);
+        this.instanceId = instanceId;
+        this.asgHelper = asgHelper;
+        this.objectMapper = objectMapper;
+        this.pollIntervalMs = pollInterval.toMillis();
+    }
+
+    @Override
+    public <T extends TriggerMessage> Flowable<T> requestTriggers(String queueName, Class<T> triggerType) {
+        LOG.info("Watching the target lifecycle state of {} every {} ms...", instanceId, pollIntervalMs);
+        return Flowable.interval(0, pollIntervalMs, TimeUnit.MILLISECONDS, Schedulers.io())
+                .onBackpressureDrop()
+                // empty if IMDS can't be reached, or if the instance is not part of an Auto Scale Group
+                .map(tick -> imds.get(TARGET_LIFECYCLE_STATE_PATH))
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .distinctUntilChanged()
+                .doOnNext(state -> LOG.info("Target lifecycle state: {}", state))
+                .flatMapMaybe(state -> toTrigger(state, triggerType));
+    }
+
+    /**
+     * @return the lifecycle transition the state stands for, or empty if the state needs no action
+     */
+    static Optional<String> getTransition(String state) {
+        // "Terminated", or "Warmed:Terminated" for an instance of a warm pool
+        return state.endsWith("Terminated") ? Optional.of(TERMINATING_TRANSITION) : Optional.empty();
+    }
+
+    private <T extends TriggerMessage> Maybe<T> toTrigger(String state, Class<T> triggerType) {
+        Optional<String> transition = getTransition(state);
+        if (!transition.isPresent()) {
+            return Maybe.empty();
+        }
+
+        Map<String, String> message = new LinkedHashMap<>();
+        message.put("EC2InstanceId", instanceId);
+        message.put("LifecycleTransition", transition.get());
+        message.put("Time", Instant.now().toString());
+        return Maybe.fromCallable(() -> withLifecycleHook(message))
+                .retryWhen(errors -> {
+                    AtomicInteger counter = new AtomicInteger();
+                    return errors.flatMap(e -> {
+                        int attempt = counter.incrementAndGet();
+                        if (attempt > LOOKUP_RETRIES) {
+                            return Flowable.error(e);
+                        }
+                        LOG.info("{} Will retry in {} ms ({}/{}).", e.getMessage(), pollIntervalMs, attempt,
+                                LOOKUP_RETRIES);
+                        return Flowable.timer(pollIntervalMs, TimeUnit.MILLISECONDS, Schedulers.io());
+                    });
+                })
+                .onErrorReturn(e -> {
+                    LOG.warn("No {} lifecycle hook found for {}. The lifecycle action can't be completed.",
+                            transition.get(), instanceId);
+                    return message;
+                })
+                .map(trigger -> objectMapper.convertValue(trigger, triggerType));
+    }
+
+    private Map<String, String> withLifecycleHook(Map<String, String> message) {
+        Map<String, String> trigger = new LinkedHashMap<>(message);
+        if (!lookUpLifecycleHook(trigger, asgHelper)) {
+            throw new IllegalStateException("Unable to look up the lifecycle hook of " + instanceId + ".");
+        }
+        return trigger;
+    }
+
+    /**
+     * Adds the Auto Scale Group and lifecycle hook of the instance to a lifecycle message which has the EC2InstanceId
+     * and LifecycleTransition fields, as they are needed to complete the lifecycle action.
+     */
+    static void addLifecycleHook(Map<String, String> message, AutoScaleGroupHelper asgHelper) {
+        if (!lookUpLifecycleHook(message, asgHelper)) {
+            LOG.warn("No {} lifecycle hook found for {}. The lifecycle action can't be completed.",
+                    message.get("LifecycleTransition"), message.get("EC2InstanceId"));
+        }
+    }
+
+    /**
+     * @return false if the Auto Scale Group or the lifecycle hook could not be found
+     */
+    private static boolean lookUpLifecycleHook(Map<String, String> message, AutoScaleGroupHelper asgHelper) {
+        String instanceId = message.get("EC2InstanceId");
+        String transition = message.get("LifecycleTransition");
+        Optional<String> asgName = asgHelper.getCurrentAutoScalingGroup(instanceId)
+                .map(AutoScalingInstanceDetails::getAutoScalingGroupName);
+        if (asgName.isPresent()) {
+            message.put("AutoScalingGroupName", asgName.get());
+            asgHelper.getLifecycleHookName(asgName.get(), transition)
+                    .ifPresent(hookName -> message.put("LifecycleHookName", hookName));
+        }
+        return message.containsKey("LifecycleHookName");
+    }
+}
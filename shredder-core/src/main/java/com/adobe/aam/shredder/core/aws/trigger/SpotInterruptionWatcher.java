@@ -0,0 +1,109 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+
+package com.adobe.aam.shredder.core.aws.trigger;
+
+import com.adobe.aam.shredder.core.trigger.TriggerMessage;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.reactivex.Flowable;
+import io.reactivex.schedulers.Schedulers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the instance metadata for the notices EC2 sends before reclaiming a Spot instance: the interruption notice,
+ * about two minutes before the instance is stopped or terminated, and the rebalance recommendation, which usually
+ * comes earlier, when the instance is at an elevated risk of interruption.
+ * <p>
+ * Each kind of notice is emitted once, as a trigger with the {@code EC2InstanceId}, {@code Notice} ("interruption"
+ * or "rebalance-recommendation"), {@code Action} (eg. "terminate") and {@code Time} fields. For an interruption, the
+ * time is when the instance is reclaimed. The queue name passed to {@link #requestTriggers(String, Class)} is ignored.
+ */
+public class SpotInterruptionWatcher implements TriggerWatcher {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SpotInterruptionWatcher.class);
+    public static final String INTERRUPTION = "interruption";
+    public static final String REBALANCE_RECOMMENDATION = "rebalance-recommendation";
+    // the polling interval AWS recommends, so that most of the two minutes are left to act
+    public static final Duration DEFAULT_POLL_INTERVAL = Duration.ofSeconds(5);
+    static final String INSTANCE_ACTION_PATH = "/latest/meta-data/spot/instance-action";
+    static final String REBALANCE_PATH = "/latest/meta-data/events/recommendations/rebalance";
+
+    private final ImdsClient imds;
+    private final String instanceId;
+    private final ObjectMapper objectMapper;
+    private final long pollIntervalMs;
+
+    public SpotInterruptionWatcher(String instanceId, ObjectMapper objectMapper) {
+        this(ImdsTriggerWatcher.DEFAULT_ENDPOINT, instanceId, objectMapper, DEFAULT_POLL_INTERVAL,
+                ImdsTriggerWatcher.DEFAULT_TOKEN_TTL);
+    }
+
+    public SpotInterruptionWatcher(String endpoint, String instanceId, ObjectMapper objectMapper,
+                                   Duration pollInterval, Duration tokenTtl) {
+        this.imds = new ImdsClient(endpoint, tokenTtl);
+        this.instanceId = instanceId;
+        this.objectMapper = objectMapper;
+        this.pollIntervalMs = pollInterval.toMillis();
+    }
+
+    @Override
+    public <T extends TriggerMessage> Flowable<T> requestTriggers(String queueName, Class<T> triggerType) {
+        LOG.info("Watching for Spot interruption notices of {} every {} ms...", instanceId, pollIntervalMs);
+        return Flowable.interval(0, pollIntervalMs, TimeUnit.MILLISECONDS, Schedulers.io())
+                .onBackpressureDrop()
+                .concatMapIterable(tick -> getNotices())
+                .distinct(notice -> notice.get("Notice"))
+                .doOnNext(notice -> LOG.warn("Received Spot {} notice: {}", notice.get("Notice"), notice))
+                .map(notice -> objectMapper.convertValue(notice, triggerType));
+    }
+
+    private List<Map<String, String>> getNotices() {
+        List<Map<String, String>> notices = new ArrayList<>();
+        // {"action": "terminate", "time": "2017-09-18T08:22:00Z"}
+        toNotice(INTERRUPTION, imds.get(INSTANCE_ACTION_PATH), "action", "time").ifPresent(notices::add);
+        // {"noticeTime": "2020-10-27T08:22:00Z"}
+        toNotice(REBALANCE_RECOMMENDATION, imds.get(REBALANCE_PATH), null, "noticeTime").ifPresent(notices::add);
+        return notices;
+    }
+
+    private Optional<Map<String, String>> toNotice(String kind, Optional<String> body, String actionField,
+                                                   String timeField) {
+        if (!body.isPresent()) {
+            return Optional.empty();
+        }
+
+        try {
+            JsonNode json = objectMapper.readTree(body.get());
+            Map<String, String> notice = new LinkedHashMap<>();
+            notice.put("EC2InstanceId", instanceId);
+            notice.put("Notice", kind);
+            notice.put("Action", actionField != null ? json.path(actionField).asText(null) : null);
+            notice.put("Time", json.path(timeField).asText(null));
+            return Optional.of(notice);
+        } catch (IOException e) {
+            LOG.error("Unable to parse the Spot {} notice {}. {}", kind, body.get(), e.getMessage());
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+package com.adobe.aam.shredder.core.aws.trigger;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequest;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchResult;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deletes the received messages in batches of up to 10, the most a DeleteMessageBatch call accepts. A batch is sent
+ * as soon as 10 messages are pending, or at most {@link #FLUSH_INTERVAL_MS} after a message was added.
+ * <p>
+ * Entries which fail are retried with the next batch, up to {@link #MAX_ATTEMPTS} times, unless SQS reports the
+ * failure as the sender's fault (eg. an expired receipt handle), which no retry can fix. A message which is not
+ * deleted is delivered again once its visibility timeout expires.
+ */
+class SqsDeleteBuffer implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SqsDeleteBuffer.class);
+    static final int MAX_BATCH_SIZE = 10;
+    static final long FLUSH_INTERVAL_MS = 1000;
+    static final int MAX_ATTEMPTS = 3;
+
+    private final AmazonSQS sqs;
+    private final String queueUrl;
+    private final Deque<PendingDelete> pending = new ArrayDeque<>();
+    private final Object flushLock = new Object();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("sqs-delete-buffer-%d").setDaemon(true).build());
+    private boolean closed;
+
+    SqsDeleteBuffer(AmazonSQS sqs, String queueUrl) {
+        this.sqs = sqs;
+        this.queueUrl = queueUrl;
+        flusher.scheduleWithFixedDelay(this::flushAll, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Messages added after {@link #close()} are deleted right away.
+     */
+    void add(String receiptHandle) {
+        boolean isClosed;
+        boolean isFullBatch;
+        synchronized (this) {
+            isClosed = closed;
+            if (!closed) {
+                pending.add(new PendingDelete(receiptHandle));
+            }
+            isFullBatch = pending.size() >= MAX_BATCH_SIZE;
+        }
+
+        if (isClosed) {
+            deleteBatch(Collections.singletonList(new PendingDelete(receiptHandle)));
+        } else if (isFullBatch) {
+            try {
+                flusher.execute(this::flushFullBatches);
+            } catch (RejectedExecutionException e) {
+                // closed in the meantime, which flushes everything
+            }
+        }
+    }
+
+    /**
+     * Deletes the pending messages before returning.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        flusher.shutdownNow();
+        flushAll();
+    }
+
+    private void flushFullBatches() {
+        flush(MAX_BATCH_SIZE);
+    }
+
+    private void flushAll() {
+        flush(1);
+    }
+
+    /**
+     * Sends batches while at least {@code minBatchSize} messages are pending. Failed entries go back to the queue
+     * until they run out of attempts, and are retried by the next flush unless the buffer is being closed. The SQS
+     * calls are made without holding the lock that {@link #add(String)} needs.
+     */
+    private void flush(int minBatchSize) {
+        synchronized (flushLock) {
+            while (true) {
+                List<PendingDelete> batch = new ArrayList<>();
+                synchronized (this) {
+                    if (pending.isEmpty() || pending.size() < minBatchSize) {
+                        return;
+                    }
+                    while (batch.size() < MAX_BATCH_SIZE && !pending.isEmpty()) {
+                        batch.add(pending.poll());
+                    }
+                }
+
+                List<PendingDelete> retries = deleteBatch(batch);
+                synchronized (this) {
+                    pending.addAll(retries);
+                    if (!retries.isEmpty() && !closed) {
+                        // give SQS a moment, the next flush retries them
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the entries to retry
+     */
+    private List<PendingDelete> deleteBatch(List<PendingDelete> batch) {
+        List<DeleteMessageBatchRequestEntry> entries = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            entries.add(new DeleteMessageBatchRequestEntry()
+                    .withId(Integer.toString(i))
+                    .withReceiptHandle(batch.get(i).receiptHandle));
+        }
+
+        List<PendingDelete> retries = new ArrayList<>();
+        try {
+            DeleteMessageBatchResult result = sqs.deleteMessageBatch(new DeleteMessageBatchRequest()
+                    .withQueueUrl(queueUrl)
+                    .withEntries(entries));
+            for (BatchResultErrorEntry failed : result.getFailed()) {
+                PendingDelete entry = batch.get(Integer.parseInt(failed.getId()));
+                if (Boolean.TRUE.equals(failed.getSenderFault())) {
+                    LOG.warn("Unable to delete message: {} {}", failed.getCode(), failed.getMessage());
+                } else {
+                    addRetry(retries, entry, failed.getCode());
+                }
+            }
+        } catch (AmazonClientException e) {
+            for (PendingDelete entry : batch) {
+                addRetry(retries, entry, e.getMessage());
+            }
+        }
+        return retries;
+    }
+
+    private static void addRetry(List<PendingDelete> retries, PendingDelete entry, String reason) {
+        entry.attempts++;
+        if (entry.attempts < MAX_ATTEMPTS) {
+            retries.add(entry);
+        } else {
+            LOG.warn("Giving up deleting message after {} attempts. It will be delivered again. {}", entry.attempts, reason);
+        }
+    }
+
+    private static class PendingDelete {
+        private final String receiptHandle;
+        private int attempts;
+
+        private PendingDelete(String receiptHandle) {
+            this.receiptHandle = receiptHandle;
+        }
+    }
+}
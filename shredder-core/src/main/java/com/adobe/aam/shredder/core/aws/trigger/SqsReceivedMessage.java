@@ -0,0 +1,69 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+package com.adobe.aam.shredder.core.aws.trigger;
+
+/**
+ * A message received from the trigger queue.
+ */
+class SqsReceivedMessage {
+
+    private final String messageId;
+    private final String body;
+    private final String receiptHandle;
+    private final SqsDeleteBuffer deleteBuffer;
+    private final VisibilityLeaseExtender leaseExtender;
+
+    SqsReceivedMessage(String messageId, String body, String receiptHandle, SqsDeleteBuffer deleteBuffer,
+                       VisibilityLeaseExtender leaseExtender) {
+        this.messageId = messageId;
+        this.body = body;
+        this.receiptHandle = receiptHandle;
+        this.deleteBuffer = deleteBuffer;
+        this.leaseExtender = leaseExtender;
+    }
+
+    String getMessageId() {
+        return messageId;
+    }
+
+    String getBody() {
+        return body;
+    }
+
+    /**
+     * Deletes the message from the queue, as part of the next batch.
+     */
+    void delete() {
+        leaseExtender.stop(receiptHandle);
+        deleteBuffer.add(receiptHandle);
+    }
+
+    /**
+     * Keeps the message invisible until it is deleted or released.
+     */
+    void lease() {
+        leaseExtender.start(receiptHandle);
+    }
+
+    /**
+     * Lets the message be delivered again once its visibility timeout expires.
+     */
+    void release() {
+        leaseExtender.stop(receiptHandle);
+    }
+
+    @Override
+    public String toString() {
+        return messageId;
+    }
+}
@@ -12,50 +12,125 @@
 
 package com.adobe.aam.shredder.core.aws.trigger;
 
+import com.adobe.aam.shredder.core.aws.AwsClientRegistry;
 import com.adobe.aam.shredder.core.aws.TriggerHelper;
+import com.adobe.aam.shredder.core.aws.queue.AwsQueueCreator;
+import com.adobe.aam.shredder.core.trigger.ReceivedTrigger;
 import com.adobe.aam.shredder.core.trigger.TriggerMessage;
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.services.sqs.AmazonSQS;
-import com.amazonaws.services.sqs.AmazonSQSClientBuilder;
+import com.amazonaws.services.sqs.model.Message;
 import com.amazonaws.services.sqs.model.QueueDoesNotExistException;
+import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.github.davidmoten.rx2.aws.Sqs;
-import com.github.davidmoten.rx2.aws.SqsMessage;
 import io.reactivex.Flowable;
 import io.reactivex.Maybe;
-import org.json.JSONException;
-import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class SqsTriggerWatcher implements TriggerWatcher {
 
     private static final Logger LOG = LoggerFactory.getLogger(SqsTriggerWatcher.class);
     private static final int MAX_SQS_DELAY_SECONDS = 30;
+    private static final int MAX_MESSAGES_PER_RECEIVE = 10;
+    private static final int RECEIVE_WAIT_TIME_SECONDS = 20;
 
     private final String awsRegion;
     private final TriggerHelper triggerHelper;
     private final ObjectMapper objectMapper;
+    private final TriggerDeduplicator deduplicator;
+    private final int visibilityTimeoutSeconds;
+    private final AwsClientRegistry clients;
+    private final Set<SqsDeleteBuffer> deleteBuffers = ConcurrentHashMap.newKeySet();
+    private final Set<String> watchedQueues = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean shutdownHookAdded = new AtomicBoolean();
 
     public SqsTriggerWatcher(String awsRegion, TriggerHelper triggerHelper, ObjectMapper objectMapper) {
+        this(awsRegion, triggerHelper, objectMapper, TriggerDeduplicator.inMemory());
+    }
+
+    public SqsTriggerWatcher(String awsRegion, TriggerHelper triggerHelper, ObjectMapper objectMapper,
+                             TriggerDeduplicator deduplicator) {
+        this(awsRegion, triggerHelper, objectMapper, deduplicator, AwsQueueCreator.DEFAULT_VISIBILITY_TIMEOUT);
+    }
+
+    /**
+     * @param visibilityTimeout how long a received message stays invisible to the other receivers. The triggers
+     *                          received with {@link #receiveTriggers(String, Class)} keep their message invisible until
+     *                          they are acknowledged, however long the processing takes.
+     */
+    public SqsTriggerWatcher(String awsRegion, TriggerHelper triggerHelper, ObjectMapper objectMapper,
+                             TriggerDeduplicator deduplicator, Duration visibilityTimeout) {
+        this(awsRegion, triggerHelper, objectMapper, deduplicator, visibilityTimeout, new AwsClientRegistry());
+    }
+
+    public SqsTriggerWatcher(String awsRegion, TriggerHelper triggerHelper, ObjectMapper objectMapper,
+                             TriggerDeduplicator deduplicator, Duration visibilityTimeout,
+                             AwsClientRegistry clients) {
         this.awsRegion = awsRegion;
         this.triggerHelper = triggerHelper;
         this.objectMapper = objectMapper;
+        this.deduplicator = deduplicator;
+        this.visibilityTimeoutSeconds = (int) visibilityTimeout.getSeconds();
+        this.clients = clients;
     }
 
     @Override
     public <T extends TriggerMessage> Flowable<T> requestTriggers(String queueName, Class<T> triggerType) {
+        return requestTriggers(queueName, triggerType, Collections.emptyMap());
+    }
+
+    /**
+     * The filter is checked on the raw text of the messages, before any trigger is built.
+     */
+    @Override
+    public <T extends TriggerMessage> Flowable<T> requestTriggers(String queueName, Class<T> triggerType,
+                                                                  Map<String, String> messageFilter) {
+        return watch(queueName, triggerType, true, messageFilter).map(ReceivedTrigger::getTrigger);
+    }
+
+    /**
+     * The messages stay on the queue, invisible, until the triggers are acknowledged. A released trigger, or one
+     * which is not acknowledged because the process died, is delivered again once the visibility timeout expires.
+     * Duplicates are only recorded once acknowledged, so that such a trigger is not dropped as a duplicate.
+     */
+    @Override
+    public <T extends TriggerMessage> Flowable<ReceivedTrigger<T>> receiveTriggers(String queueName,
+                                                                                   Class<T> triggerType) {
+        return receiveTriggers(queueName, triggerType, Collections.emptyMap());
+    }
+
+    @Override
+    public <T extends TriggerMessage> Flowable<ReceivedTrigger<T>> receiveTriggers(String queueName,
+                                                                                   Class<T> triggerType,
+                                                                                   Map<String, String> messageFilter) {
+        return watch(queueName, triggerType, false, messageFilter);
+    }
+
+    private <T extends TriggerMessage> Flowable<ReceivedTrigger<T>> watch(String queueName, Class<T> triggerType,
+                                                                          boolean ackOnReceive,
+                                                                          Map<String, String> messageFilter) {
+        TriggerParser parser = new TriggerParser(objectMapper, messageFilter);
         triggerHelper.createQueueAndSubscribe(queueName);
-        Runtime.getRuntime().addShutdownHook(new Thread(() -> triggerHelper.cleanUp(queueName)));
+        watchedQueues.add(queueName);
+        if (shutdownHookAdded.compareAndSet(false, true)) {
+            Runtime.getRuntime().addShutdownHook(new Thread(this::cleanUpOnExit));
+        }
 
         LOG.info("Watching for triggers...");
-        return Sqs.queueName(queueName)
-                .sqsFactory(() -> sqs(awsRegion))
-                .messages()
+        return receiveMessages(queueName, !ackOnReceive)
                 .doOnError(t -> LOG.error("Received error while reading triggers from SQS. {}", t.getMessage()))
                 .doOnError(t -> recreateQueueIfNecessary(t, queueName))
                 .retryWhen(errors -> {
@@ -67,14 +142,71 @@ public class SqsTriggerWatcher implements TriggerWatcher {
                         return Flowable.timer(delaySeconds, TimeUnit.SECONDS);
                     });
                 })
-                .doOnNext(sqsMessage -> LOG.debug("Received message: {}", sqsMessage.message()))
-                .doOnNext(SqsMessage::deleteMessage)
+                .doOnNext(sqsMessage -> LOG.debug("Received message: {}", sqsMessage.getBody()))
+                .doOnNext(sqsMessage -> {
+                    if (ackOnReceive) {
+                        sqsMessage.delete();
+                    }
+                })
                 .doFinally(() -> triggerHelper.cleanUp(queueName))
-                .flatMapMaybe(message -> parseMessage(message, triggerType));
+                .flatMapMaybe(message -> parseMessage(message, parser, triggerType, ackOnReceive));
+    }
+
+    /**
+     * Long polls the queue, up to 10 messages at a time. The messages are deleted in batches, see
+     * {@link SqsDeleteBuffer}; the pending deletes are flushed when the polling stops.
+     *
+     * @param lease whether to keep the messages invisible from the moment they are received, see
+     *              {@link VisibilityLeaseExtender}
+     */
+    private Flowable<SqsReceivedMessage> receiveMessages(String queueName, boolean lease) {
+        return Flowable.defer(() -> {
+            // shared with the retries and the other components, see AwsClientRegistry
+            AmazonSQS sqs = clients.sqs(awsRegion);
+            String queueUrl = sqs.getQueueUrl(queueName).getQueueUrl();
+            SqsDeleteBuffer deleteBuffer = new SqsDeleteBuffer(sqs, queueUrl);
+            deleteBuffers.add(deleteBuffer);
+            VisibilityLeaseExtender leaseExtender =
+                    new VisibilityLeaseExtender(sqs, queueUrl, visibilityTimeoutSeconds);
+            ReceiveMessageRequest request = new ReceiveMessageRequest()
+                    .withQueueUrl(queueUrl)
+                    .withMaxNumberOfMessages(MAX_MESSAGES_PER_RECEIVE)
+                    .withWaitTimeSeconds(RECEIVE_WAIT_TIME_SECONDS)
+                    .withVisibilityTimeout(visibilityTimeoutSeconds);
+
+            // an empty batch is emitted as well, so that the polling goes on whatever the downstream prefetch
+            Flowable<List<SqsReceivedMessage>> batches = Flowable.generate(emitter -> {
+                List<SqsReceivedMessage> received = new ArrayList<>();
+                for (Message message : sqs.receiveMessage(request).getMessages()) {
+                    SqsReceivedMessage sqsMessage = new SqsReceivedMessage(message.getMessageId(), message.getBody(),
+                            message.getReceiptHandle(), deleteBuffer, leaseExtender);
+                    if (lease) {
+                        // right away, as the message may wait for the ones ahead of it to be handled
+                        sqsMessage.lease();
+                    }
+                    received.add(sqsMessage);
+                }
+                emitter.onNext(received);
+            });
+            // no batch is received ahead of the downstream demand
+            return batches
+                    .concatMapIterable(messages -> messages, 1)
+                    .doFinally(() -> {
+                        leaseExtender.close();
+                        deleteBuffer.close();
+                        deleteBuffers.remove(deleteBuffer);
+                    });
+        });
     }
 
-    private AmazonSQS sqs(String awsRegion) {
-        return AmazonSQSClientBuilder.standard().withRegion(awsRegion).build();
+    /**
+     * Flushes the pending deletes and removes the queues, then shuts the AWS clients down: they are closed here, once
+     * the queues are removed with them, rather than from a shutdown hook of their own which could run concurrently.
+     */
+    private void cleanUpOnExit() {
+        deleteBuffers.forEach(SqsDeleteBuffer::close);
+        watchedQueues.forEach(triggerHelper::cleanUp);
+        clients.shutdown();
     }
 
     private void recreateQueueIfNecessary(Throwable throwable, String queueName) {
@@ -90,15 +222,45 @@ public class SqsTriggerWatcher implements TriggerWatcher {
         }
     }
 
-    private <T extends TriggerMessage> Maybe<T> parseMessage(SqsMessage message, Class<T> triggerType) {
+    /**
+     * Unless already deleted when received, the messages which don't yield a trigger are deleted: there is no point in
+     * receiving them again.
+     */
+    private <T extends TriggerMessage> Maybe<ReceivedTrigger<T>> parseMessage(SqsReceivedMessage message,
+                                                                              TriggerParser parser,
+                                                                              Class<T> triggerType,
+                                                                              boolean ackOnReceive) {
         try {
-            JSONObject json = new JSONObject(message.message());
-            return Maybe.just(objectMapper
-                    .readerFor(triggerType)
-                    .readValue(json.getString("Message")));
-        } catch (JSONException | IOException e) {
-            LOG.error("Unexpected error while parsing JSON message {} as {}. {}", message.message(), triggerType, e);
-            return Maybe.empty();
+            TriggerParser.ParsedMessage parsed = parser.parse(message.getBody(), message.getMessageId());
+            if (!parsed.isMatching()) {
+                LOG.debug("Skipping message {}, which doesn't match the filter.", message);
+                return drop(message, ackOnReceive);
+            }
+            List<String> ids = parsed.getTriggerIds();
+            if (ackOnReceive ? deduplicator.isDuplicate(ids) : deduplicator.wasSeen(ids)) {
+                return drop(message, ackOnReceive);
+            }
+            T trigger = parser.readTrigger(parsed, triggerType);
+            if (ackOnReceive) {
+                return Maybe.just(ReceivedTrigger.acknowledged(trigger));
+            }
+            return Maybe.just(new ReceivedTrigger<>(trigger,
+                    () -> {
+                        message.delete();
+                        deduplicator.markSeen(ids);
+                    },
+                    message::release));
+        } catch (IOException e) {
+            LOG.error("Unexpected error while parsing JSON message {} as {}. {}", message.getBody(), triggerType, e);
+            return drop(message, ackOnReceive);
+        }
+    }
+
+    private static <T extends TriggerMessage> Maybe<ReceivedTrigger<T>> drop(SqsReceivedMessage message,
+                                                                             boolean ackOnReceive) {
+        if (!ackOnReceive) {
+            message.delete();
         }
+        return Maybe.empty();
     }
 }
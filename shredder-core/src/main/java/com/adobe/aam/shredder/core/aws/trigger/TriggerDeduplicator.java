@@ -0,0 +1,174 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+package com.adobe.aam.shredder.core.aws.trigger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers the ids of the last {@code maxEntries} triggers for {@code ttl}, so that a trigger delivered more than once
+ * by SNS or SQS is only processed once. A trigger can have several ids (eg. the SNS message id and the lifecycle
+ * action token); it is a duplicate if any of them was seen.
+ * <p>
+ * When a path is given, the ids are also appended to that file and loaded on startup, so that the de-duplication
+ * survives a restart. The file is compacted once it holds twice as many lines as there are entries.
+ */
+public class TriggerDeduplicator {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TriggerDeduplicator.class);
+
+    private final int maxEntries;
+    private final long ttlMs;
+    private final Path path;
+    private final Map<String, Long> seenAt;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private int persistedLines;
+
+    /**
+     * @param path the file the ids are persisted to, or null/empty to keep them in memory only
+     */
+    public TriggerDeduplicator(int maxEntries, Duration ttl, String path) {
+        this.maxEntries = maxEntries;
+        this.ttlMs = ttl.toMillis();
+        this.path = path == null || path.isEmpty() ? null : Paths.get(path);
+        this.seenAt = new LinkedHashMap<String, Long>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > TriggerDeduplicator.this.maxEntries;
+            }
+        };
+        load();
+    }
+
+    public static TriggerDeduplicator inMemory() {
+        return new TriggerDeduplicator(10000, Duration.ofHours(1), null);
+    }
+
+    /**
+     * Records the ids of the trigger as seen.
+     *
+     * @return true if any of the ids was already seen in the last {@code ttl}
+     */
+    public synchronized boolean isDuplicate(Collection<String> ids) {
+        if (wasSeen(ids)) {
+            return true;
+        }
+        markSeen(ids);
+        return false;
+    }
+
+    /**
+     * Like {@link #isDuplicate(Collection)}, without recording the ids: for triggers which are only recorded with
+     * {@link #markSeen(Collection)} once processed, so that a trigger whose processing was interrupted is not dropped
+     * when it is delivered again.
+     */
+    public synchronized boolean wasSeen(Collection<String> ids) {
+        long now = System.currentTimeMillis();
+        for (String id : ids) {
+            Long at = seenAt.get(id);
+            if (at != null && now - at <= ttlMs) {
+                hits.incrementAndGet();
+                LOG.info("Dropping duplicate trigger {} ({} duplicates, {} unique triggers so far).", id, hits, misses);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public synchronized void markSeen(Collection<String> ids) {
+        long now = System.currentTimeMillis();
+        misses.incrementAndGet();
+        List<String> lines = new ArrayList<>();
+        for (String id : ids) {
+            seenAt.remove(id);
+            seenAt.put(id, now);
+            lines.add(now + "\t" + id);
+        }
+        persist(lines);
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private void load() {
+        if (path == null || !Files.isRegularFile(path)) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        try {
+            for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+                String[] fields = line.split("\t", 2);
+                if (fields.length == 2 && now - Long.parseLong(fields[0]) <= ttlMs) {
+                    seenAt.put(fields[1], Long.parseLong(fields[0]));
+                }
+            }
+            LOG.info("Loaded {} trigger ids from {}.", seenAt.size(), path);
+            compact();
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Unable to load the trigger ids from {}. {}", path, e.getMessage());
+        }
+    }
+
+    private void persist(List<String> lines) {
+        if (path == null) {
+            return;
+        }
+
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            if (persistedLines + lines.size() > 2 * maxEntries) {
+                compact();
+            } else {
+                Files.write(path, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                persistedLines += lines.size();
+            }
+        } catch (IOException e) {
+            // only the de-duplication across restarts is lost
+            LOG.warn("Unable to persist the trigger ids to {}. {}", path, e.getMessage());
+        }
+    }
+
+    private void compact() throws IOException {
+        List<String> lines = new ArrayList<>();
+        seenAt.forEach((id, at) -> lines.add(at + "\t" + id));
+        Path compacted = Paths.get(path + ".tmp");
+        Files.write(compacted, lines, StandardCharsets.UTF_8);
+        Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        persistedLines = lines.size();
+    }
+}
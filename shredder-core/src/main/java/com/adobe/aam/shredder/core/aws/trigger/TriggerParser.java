@@ -0,0 +1,150 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+package com.adobe.aam.shredder.core.aws.trigger;
+
+import com.adobe.aam.shredder.core.trigger.TriggerMessage;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reads the SQS messages of the trigger queue, which hold either an SNS envelope with the SNS message as a string, or
+ * the SNS message itself with raw message delivery. Only the top-level fields of the envelope and of the SNS message
+ * that are needed are read, with the Jackson streaming parser, so that a message which is dropped (eg. meant for
+ * another instance) costs a scan of its text and no objects. The trigger itself is then bound with a reader cached
+ * per trigger type.
+ */
+class TriggerParser {
+
+    private static final String TOPIC_ARN = "TopicArn";
+    private static final String MESSAGE = "Message";
+    private static final String MESSAGE_ID = "MessageId";
+    private static final String LIFECYCLE_ACTION_TOKEN = "LifecycleActionToken";
+
+    private final ObjectMapper objectMapper;
+    private final Map<String, String> messageFilter;
+    private final Set<String> messageFields = new HashSet<>();
+    private final Set<String> bodyFields = new HashSet<>();
+    private final Map<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+
+    /**
+     * @param messageFilter the values that top-level fields of the SNS message must have, compared as text
+     */
+    TriggerParser(ObjectMapper objectMapper, Map<String, String> messageFilter) {
+        this.objectMapper = objectMapper;
+        this.messageFilter = messageFilter;
+        messageFields.addAll(messageFilter.keySet());
+        messageFields.add(LIFECYCLE_ACTION_TOKEN);
+        bodyFields.addAll(messageFields);
+        bodyFields.add(TOPIC_ARN);
+        bodyFields.add(MESSAGE);
+        bodyFields.add(MESSAGE_ID);
+    }
+
+    /**
+     * @param sqsMessageId the id of the message, for raw messages which have no SNS message id
+     */
+    ParsedMessage parse(String body, String sqsMessageId) throws IOException {
+        Map<String, String> fields = readFields(body, bodyFields);
+        String snsMessage = body;
+        String messageId = sqsMessageId;
+        if (fields.containsKey(TOPIC_ARN) && fields.containsKey(MESSAGE)) {
+            snsMessage = fields.get(MESSAGE);
+            messageId = fields.get(MESSAGE_ID);
+            fields = readFields(snsMessage, messageFields);
+        }
+
+        for (Map.Entry<String, String> filter : messageFilter.entrySet()) {
+            if (!filter.getValue().equals(fields.get(filter.getKey()))) {
+                return new ParsedMessage(snsMessage, Collections.emptyList(), false);
+            }
+        }
+        return new ParsedMessage(snsMessage, getTriggerIds(messageId, fields.get(LIFECYCLE_ACTION_TOKEN)), true);
+    }
+
+    <T extends TriggerMessage> T readTrigger(ParsedMessage message, Class<T> triggerType) throws IOException {
+        return readers.computeIfAbsent(triggerType, objectMapper::readerFor).readValue(message.snsMessage);
+    }
+
+    /**
+     * @return the message id, and the lifecycle action token if any: a lifecycle action published again gets a new
+     * message id, but keeps its token.
+     */
+    private static List<String> getTriggerIds(String messageId, String lifecycleActionToken) {
+        List<String> ids = new ArrayList<>(2);
+        if (messageId != null && !messageId.isEmpty()) {
+            ids.add(MESSAGE_ID + ":" + messageId);
+        }
+        if (lifecycleActionToken != null && !lifecycleActionToken.isEmpty()) {
+            ids.add(LIFECYCLE_ACTION_TOKEN + ":" + lifecycleActionToken);
+        }
+        return ids;
+    }
+
+    /**
+     * @return the scalar values of the given top-level fields of the JSON object, as text
+     */
+    private Map<String, String> readFields(String json, Set<String> names) throws IOException {
+        Map<String, String> fields = new HashMap<>();
+        try (JsonParser parser = objectMapper.getFactory().createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException("Expected a JSON object", parser.getCurrentLocation());
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (value.isScalarValue() && names.contains(name)) {
+                    fields.put(name, parser.getText());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return fields;
+    }
+
+    static class ParsedMessage {
+        private final String snsMessage;
+        private final List<String> triggerIds;
+        private final boolean matching;
+
+        private ParsedMessage(String snsMessage, List<String> triggerIds, boolean matching) {
+            this.snsMessage = snsMessage;
+            this.triggerIds = triggerIds;
+            this.matching = matching;
+        }
+
+        List<String> getTriggerIds() {
+            return triggerIds;
+        }
+
+        /**
+         * @return false if the message doesn't match the filter
+         */
+        boolean isMatching() {
+            return matching;
+        }
+    }
+}
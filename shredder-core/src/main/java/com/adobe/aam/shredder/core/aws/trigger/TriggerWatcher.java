@@ -12,10 +12,43 @@
 
 package com.adobe.aam.shredder.core.aws.trigger;
 
+import com.adobe.aam.shredder.core.trigger.ReceivedTrigger;
 import com.adobe.aam.shredder.core.trigger.TriggerMessage;
 import io.reactivex.Flowable;
 
+import java.util.Map;
+
 public interface TriggerWatcher {
 
     <T extends TriggerMessage> Flowable<T> requestTriggers(String queueName, Class<T> triggerType);
+
+    /**
+     * Like {@link #requestTriggers(String, Class)}, but skips the messages whose top-level fields don't have the given
+     * values, eg. the lifecycle messages of other instances, ideally before building the triggers. Watchers which
+     * can't filter return all the triggers, so the caller still has to check them.
+     */
+    default <T extends TriggerMessage> Flowable<T> requestTriggers(String queueName, Class<T> triggerType,
+                                                                   Map<String, String> messageFilter) {
+        return requestTriggers(queueName, triggerType);
+    }
+
+    /**
+     * Like {@link #requestTriggers(String, Class)}, but a trigger is only removed from the queue once acknowledged with
+     * {@link ReceivedTrigger#ack()}, so that it is delivered again if its processing is interrupted. Watchers which
+     * can't defer the acknowledgement acknowledge the triggers when they are received.
+     */
+    default <T extends TriggerMessage> Flowable<ReceivedTrigger<T>> receiveTriggers(String queueName,
+                                                                                    Class<T> triggerType) {
+        return requestTriggers(queueName, triggerType).map(ReceivedTrigger::acknowledged);
+    }
+
+    /**
+     * Like {@link #receiveTriggers(String, Class)}, with the message filter of
+     * {@link #requestTriggers(String, Class, Map)}.
+     */
+    default <T extends TriggerMessage> Flowable<ReceivedTrigger<T>> receiveTriggers(String queueName,
+                                                                                    Class<T> triggerType,
+                                                                                    Map<String, String> messageFilter) {
+        return requestTriggers(queueName, triggerType, messageFilter).map(ReceivedTrigger::acknowledged);
+    }
 }
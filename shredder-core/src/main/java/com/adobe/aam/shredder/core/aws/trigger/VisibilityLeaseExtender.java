@@ -0,0 +1,117 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.aam.shredder.core.aws.trigger;
+
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequestEntry;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchResult;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the messages being processed invisible to the other receivers, by extending their visibility timeout every
+ * half timeout, in ChangeMessageVisibilityBatch calls of up to 10 messages. The visibility timeout then only has to
+ * cover the time it takes to notice that a receiver died, not the longest handler.
+ * <p>
+ * SQS doesn't keep a message invisible for more than 12 hours after it was received. Once SQS rejects the extension of
+ * a message, its lease is dropped and the message is delivered again when its visibility timeout expires.
+ */
+class VisibilityLeaseExtender implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(VisibilityLeaseExtender.class);
+    static final int MAX_BATCH_SIZE = 10;
+
+    private final AmazonSQS sqs;
+    private final String queueUrl;
+    private final int visibilityTimeoutSeconds;
+    private final Set<String> leased = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService extender = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("sqs-visibility-lease-%d").setDaemon(true).build());
+
+    VisibilityLeaseExtender(AmazonSQS sqs, String queueUrl, int visibilityTimeoutSeconds) {
+        this.sqs = sqs;
+        this.queueUrl = queueUrl;
+        this.visibilityTimeoutSeconds = visibilityTimeoutSeconds;
+        long periodMs = Math.max(1000, visibilityTimeoutSeconds * 1000L / 2);
+        extender.scheduleWithFixedDelay(this::extendAll, periodMs, periodMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Starts extending the visibility of the message, which must have been received with the same visibility timeout.
+     */
+    void start(String receiptHandle) {
+        leased.add(receiptHandle);
+    }
+
+    /**
+     * Stops extending the visibility of the message. Unless deleted, it is delivered again once its current
+     * visibility timeout expires.
+     */
+    void stop(String receiptHandle) {
+        leased.remove(receiptHandle);
+    }
+
+    int getLeased() {
+        return leased.size();
+    }
+
+    @Override
+    public void close() {
+        extender.shutdownNow();
+        leased.clear();
+    }
+
+    private void extendAll() {
+        List<String> handles = new ArrayList<>(leased);
+        for (int from = 0; from < handles.size(); from += MAX_BATCH_SIZE) {
+            extend(handles.subList(from, Math.min(from + MAX_BATCH_SIZE, handles.size())));
+        }
+    }
+
+    private void extend(List<String> batch) {
+        List<ChangeMessageVisibilityBatchRequestEntry> entries = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            entries.add(new ChangeMessageVisibilityBatchRequestEntry()
+                    .withId(Integer.toString(i))
+                    .withReceiptHandle(batch.get(i))
+                    .withVisibilityTimeout(visibilityTimeoutSeconds));
+        }
+
+        try {
+            ChangeMessageVisibilityBatchResult result = sqs.changeMessageVisibilityBatch(
+                    new ChangeMessageVisibilityBatchRequest()
+                            .withQueueUrl(queueUrl)
+                            .withEntries(entries));
+            for (BatchResultErrorEntry failed : result.getFailed()) {
+                if (Boolean.TRUE.equals(failed.getSenderFault())) {
+                    // deleted in the meantime, or past the 12 hours limit: no retry can fix it
+                    leased.remove(batch.get(Integer.parseInt(failed.getId())));
+                }
+                LOG.warn("Unable to extend the visibility of a message: {} {}", failed.getCode(), failed.getMessage());
+            }
+        } catch (RuntimeException e) {
+            // retried with the next extension, which must not be cancelled by the exception
+            LOG.warn("Unable to extend the visibility of {} messages. {}", batch.size(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+package com.adobe.aam.shredder.core.command;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Ring buffer of output lines which keeps only the last {@code capacity} characters, so that a chatty
+ * script cannot make the daemon run out of memory.
+ */
+class BoundedOutputBuffer {
+
+    private final int capacity;
+    private final Deque<String> lines = new ArrayDeque<>();
+    private int size;
+    private long droppedChars;
+
+    BoundedOutputBuffer(int capacity) {
+        this.capacity = capacity;
+    }
+
+    void append(String line) {
+        append(line, 0);
+    }
+
+    /**
+     * @param alreadyDropped the characters already dropped from the head of the line by the caller
+     */
+    synchronized void append(String line, long alreadyDropped) {
+        droppedChars += alreadyDropped;
+        if (line.length() > capacity) {
+            droppedChars += line.length() - capacity;
+            line = line.substring(line.length() - capacity);
+        }
+
+        lines.addLast(line);
+        size += line.length();
+        while (size > capacity) {
+            String evicted = lines.removeFirst();
+            size -= evicted.length();
+            droppedChars += evicted.length();
+        }
+    }
+
+    synchronized boolean isEmpty() {
+        return lines.isEmpty();
+    }
+
+    /**
+     * @return the retained lines, prefixed by a marker if older output had to be dropped.
+     */
+    @Override
+    public synchronized String toString() {
+        StringBuilder output = new StringBuilder(size + lines.size() + 64);
+        if (droppedChars > 0) {
+            output.append("[... ").append(droppedChars).append(" earlier characters dropped ...]\n");
+        }
+        for (String line : lines) {
+            output.append(line).append('\n');
+        }
+        return output.toString().trim();
+    }
+}
@@ -12,13 +12,18 @@
 
 package com.adobe.aam.shredder.core.command;
 
-import com.amazonaws.util.StringUtils;
+import com.google.common.collect.ImmutableMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import javax.inject.Named;
-import java.io.*;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 import static com.adobe.aam.shredder.core.aws.servergroup.AutoScaleGroupHelper.HEARTBEAT_INTERVAL_MS;
@@ -26,106 +31,185 @@ import static com.adobe.aam.shredder.core.aws.servergroup.AutoScaleGroupHelper.H
 public class CommandRunner extends Thread {
 
     private static final Logger LOG = LoggerFactory.getLogger(CommandRunner.class);
-    private long lastHeartBeat;
+    private static final long FIRST_HEARTBEAT_DELAY_MS = 1000;
+    private static final int MAX_OUTPUT_CHARS = 64 * 1024;
+    private static final long OUTPUT_DRAIN_TIMEOUT_MS = 5000;
+    // the memory is sampled often at first, to catch the peak of short scripts, then less and less often
+    private static final long FIRST_MEMORY_SAMPLE_INTERVAL_MS = 1000;
+    private static final long MAX_MEMORY_SAMPLE_INTERVAL_MS = 60_000;
+    private volatile long lastHeartBeat;
     private final String instanceId;
     private final String region;
     private final String accountId;
     private final String environment;
     private final String scriptOutputPath;
+    private final Duration killGracePeriod;
+    private final ShellEnvironment shellEnvironment;
+    private final ScriptCgroups scriptCgroups;
 
     @Inject
     public CommandRunner(@Named("instanceId") String instanceId,
                          @Named("region") String region,
                          @Named("accountId") String accountId,
                          @Named("environment") String environment,
-                         @Named("scriptOutputPath") String scriptOutputPath) {
+                         @Named("scriptOutputPath") String scriptOutputPath,
+                         @Named("scriptKillGracePeriod") Duration killGracePeriod,
+                         ShellEnvironment shellEnvironment,
+                         ScriptCgroups scriptCgroups) {
         this.instanceId = instanceId;
         this.region = region;
         this.accountId = accountId;
         this.environment = environment;
         this.scriptOutputPath = scriptOutputPath;
+        this.killGracePeriod = killGracePeriod;
+        this.shellEnvironment = shellEnvironment;
+        this.scriptCgroups = scriptCgroups;
+        shellEnvironment.start(getEnvironment());
     }
 
     /**
      * @return the exit code
      */
     public int execute(String commandLine, Runnable heartbeat, long timeoutMs) throws IOException, InterruptedException, TimeoutException {
+        return execute(commandLine, heartbeat, timeoutMs, ImmutableMap.of());
+    }
+
+    /**
+     * @param extraEnvironment variables passed to the command on top of the ones every command gets
+     * @return the exit code
+     */
+    public int execute(String commandLine, Runnable heartbeat, long timeoutMs, Map<String, String> extraEnvironment)
+            throws IOException, InterruptedException, TimeoutException {
+        ScriptMetrics metrics = run(commandLine, heartbeat, timeoutMs, extraEnvironment);
+        if (metrics.isTimedOut()) {
+            throw new TimeoutException("Killed process which exceeded " + timeoutMs + " ms.");
+        }
+        return metrics.getExitCode();
+    }
+
+    /**
+     * Same as {@link #execute(String, Runnable, long, Map)}, but reports a timeout in the returned metrics
+     * instead of throwing, so that the resources used by the command are known in any case.
+     */
+    public ScriptMetrics run(String commandLine, Runnable heartbeat, long timeoutMs, Map<String, String> extraEnvironment)
+            throws IOException, InterruptedException {
 
         Process process = null;
+        OutputPump stdOutput = null;
+        OutputPump stdError = null;
+        ProcessUsage usage = ProcessUsage.create();
+        Optional<ScriptCgroups.Cgroup> cgroup = scriptCgroups.create(commandLine);
+        boolean finished = false;
+        ScriptMetrics metrics;
         try {
+            Map<String, String> environment = new LinkedHashMap<>(getEnvironment());
+            environment.putAll(extraEnvironment);
+            ShellEnvironment.Prepared shell = shellEnvironment.prepare(environment);
             process = Runtime.getRuntime().exec(new String[]{
                     "bash", "-c",
-                    buildCommand(commandLine)
-            }, getEnvironment());
+                    buildCommand(commandLine, shell.isSourceProfile(), cgroup, usage)
+            }, shell.getEnvironment());
+            stdOutput = OutputPump.start(process.getInputStream(), "stdout", MAX_OUTPUT_CHARS);
+            stdError = OutputPump.start(process.getErrorStream(), "stderr", MAX_OUTPUT_CHARS);
 
-            waitProcessFinish(process, heartbeat, timeoutMs);
-            logProcessOutputs(process);
-            return process.exitValue();
+            // the cgroup reports the peak memory itself, there is nothing to sample
+            finished = waitProcessFinish(process, heartbeat, timeoutMs, cgroup.isPresent() ? null : usage);
         } finally {
-            if (process != null) {
-                process.destroy();
+            if (process != null && process.isAlive()) {
+                // timed out or interrupted: the whole tree must be gone before the next script starts
+                ProcessTree.terminate(process, killGracePeriod.toMillis());
+            }
+            if (stdOutput != null && stdError != null) {
+                logProcessOutputs(stdOutput, stdError);
             }
+            // also on failure, as the cgroup and the usage file would otherwise be left behind
+            Optional<ScriptCgroups.Usage> cgroupUsage = cgroup.map(ScriptCgroups.Cgroup::readUsage);
+            cgroup.ifPresent(ScriptCgroups.Cgroup::remove);
+            metrics = usage.toMetrics(commandLine, finished ? process.exitValue() : -1, !finished, cgroupUsage);
         }
+
+        LOG.info("Resources used by {}: {}", commandLine, metrics);
+        return metrics;
     }
 
-    private void waitProcessFinish(Process process, Runnable heartbeat, long timeoutMs) throws InterruptedException, TimeoutException {
+    /**
+     * Blocks on the process exit itself, so that a finished script is noticed right away. The wait is only
+     * interrupted when a heartbeat is due, when the memory usage is sampled or when the timeout expires.
+     *
+     * @param usage where to record the memory samples, or null if the memory doesn't have to be sampled
+     * @return false if the timeout expired
+     */
+    private boolean waitProcessFinish(Process process, Runnable heartbeat, long timeoutMs, ProcessUsage usage)
+            throws InterruptedException {
         long startTime = System.currentTimeMillis();
-        while (process.isAlive()) {
-            Thread.sleep(1000);
-            sendHeartbeat(heartbeat);
-            if (System.currentTimeMillis() - startTime > timeoutMs) {
-                process.destroy();
-                throw new TimeoutException("Killed process which exceeded " + timeoutMs + " ms.");
+        long deadline = startTime + timeoutMs;
+        long nextHeartbeat = Math.max(startTime + FIRST_HEARTBEAT_DELAY_MS, lastHeartBeat + HEARTBEAT_INTERVAL_MS);
+        long sampleIntervalMs = FIRST_MEMORY_SAMPLE_INTERVAL_MS;
+        long nextSample = usage != null ? startTime : Long.MAX_VALUE;
+        while (!process.waitFor(Math.max(0, Math.min(Math.min(deadline, nextHeartbeat), nextSample) - System.currentTimeMillis()),
+                TimeUnit.MILLISECONDS)) {
+            long timeNow = System.currentTimeMillis();
+            if (timeNow >= nextSample) {
+                usage.sample(process);
+                nextSample = timeNow + sampleIntervalMs;
+                sampleIntervalMs = Math.min(2 * sampleIntervalMs, MAX_MEMORY_SAMPLE_INTERVAL_MS);
+            }
+            if (timeNow >= nextHeartbeat) {
+                sendHeartbeat(heartbeat);
+                nextHeartbeat = lastHeartBeat + HEARTBEAT_INTERVAL_MS;
+            }
+            if (timeNow >= deadline) {
+                LOG.error("Killing process which exceeded {} ms.", timeoutMs);
+                return false;
             }
         }
+        return true;
     }
 
-    private void sendHeartbeat(Runnable heartbeat) {
+    private synchronized void sendHeartbeat(Runnable heartbeat) {
         long timeNow = System.currentTimeMillis();
-        if (timeNow - lastHeartBeat > HEARTBEAT_INTERVAL_MS) {
+        if (timeNow - lastHeartBeat >= HEARTBEAT_INTERVAL_MS) {
             lastHeartBeat = timeNow;
             heartbeat.run();
         }
     }
 
-    private static void logProcessOutputs(Process process) throws IOException {
-        String stdOutput = read(process.getInputStream());
-        if (!StringUtils.isNullOrEmpty(stdOutput)) {
-            LOG.info("Command output:\n>>>>>\n{}\n<<<<<", stdOutput);
-        }
-
-        String stdError = read(process.getErrorStream());
-        if (!StringUtils.isNullOrEmpty(stdError)) {
-            LOG.error("Command error:\n>>>>>\n{}\n<<<<<", stdError);
-        }
-    }
+    private static void logProcessOutputs(OutputPump stdOutput, OutputPump stdError) {
+        try {
+            BoundedOutputBuffer output = stdOutput.await(OUTPUT_DRAIN_TIMEOUT_MS);
+            if (!output.isEmpty()) {
+                LOG.info("Command output:\n>>>>>\n{}\n<<<<<", output);
+            }
 
-    private static String read(InputStream stream) throws IOException {
-        BufferedReader stdInput = new BufferedReader(new InputStreamReader(stream));
-        StringBuilder message = new StringBuilder();
-        String line;
-        while ((line = stdInput.readLine()) != null) {
-            message.append(line).append('\n');
+            BoundedOutputBuffer error = stdError.await(OUTPUT_DRAIN_TIMEOUT_MS);
+            if (!error.isEmpty()) {
+                LOG.error("Command error:\n>>>>>\n{}\n<<<<<", error);
+            }
+        } catch (InterruptedException e) {
+            LOG.warn("Interrupted while collecting the command output.");
+            Thread.currentThread().interrupt();
         }
-
-        return message.toString().trim();
     }
 
-    private String[] getEnvironment() {
-        return new String[]{
-                "AWS_INSTANCE_ID=" + instanceId,
-                "AWS_REGION=" + region,
-                "AWS_ACCOUNT_ID=" + accountId,
-                "ENVIRONMENT=" + environment
-        };
+    private Map<String, String> getEnvironment() {
+        return ImmutableMap.of(
+                "AWS_INSTANCE_ID", instanceId,
+                "AWS_REGION", region,
+                "AWS_ACCOUNT_ID", accountId,
+                "ENVIRONMENT", environment);
     }
 
-    private String buildCommand(String command) {
+    private String buildCommand(String command, boolean sourceProfile, Optional<ScriptCgroups.Cgroup> cgroup,
+                                ProcessUsage usage) {
         //template for script execution
         //each script std and err output is redirected to `scriptOutputPath`
-        return String.format("echo $(date -u) 'Executing: %1$s' >> %2$s 2>&1; " +
-                             "source /etc/profile; " +
-                             "%1$s + >> %2$s 2>&1",
-                             command, scriptOutputPath);
+        //the wrapper moves itself to the cgroup of the script first, so that every child process inherits it
+        return String.format((cgroup.isPresent() ? "echo $$ > '%4$s'; " : "") +
+                             "echo $(date -u) 'Executing: %1$s' >> %2$s 2>&1; " +
+                             (sourceProfile ? "source /etc/profile; " : "") +
+                             "%1$s + >> %2$s 2>&1; " +
+                             "%3$s",
+                             command, scriptOutputPath, usage.getWrapperTrailer(),
+                             cgroup.map(ScriptCgroups.Cgroup::getProcsFile).orElse(null));
     }
 }
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+package com.adobe.aam.shredder.core.command;
+
+import java.time.Instant;
+
+/**
+ * The point in time by which a run of scripts must be over, eg. the global timeout of a lifecycle hook.
+ */
+public class Deadline {
+
+    private static final Deadline NONE = new Deadline(Long.MAX_VALUE);
+
+    private final long epochMs;
+
+    private Deadline(long epochMs) {
+        this.epochMs = epochMs;
+    }
+
+    public static Deadline at(Instant instant) {
+        return new Deadline(instant.toEpochMilli());
+    }
+
+    public static Deadline none() {
+        return NONE;
+    }
+
+    public boolean isSet() {
+        return epochMs != Long.MAX_VALUE;
+    }
+
+    public long getEpochMs() {
+        return epochMs;
+    }
+
+    /**
+     * @return the time left until the deadline, possibly negative
+     */
+    public long getRemainingMs() {
+        return isSet() ? epochMs - System.currentTimeMillis() : Long.MAX_VALUE;
+    }
+
+    @Override
+    public String toString() {
+        return isSet() ? Instant.ofEpochMilli(epochMs).toString() : "none";
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+package com.adobe.aam.shredder.core.command;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Append-only journal file, one tab separated event per line:
+ * {@code <run key> <epoch millis> <STARTED|FINISHED> <script> [exit code]}.
+ * Every event is fsync'd before the script starts or the next one is scheduled. Several runs may be in progress at
+ * the same time, eg. a Spot interruption and a lifecycle hook: when a run writes its first event, only the runs which
+ * wrote nothing for {@link #RUN_KEY_TTL} are dropped.
+ */
+public class FileScriptJournal implements ScriptJournal {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FileScriptJournal.class);
+    private static final String STARTED = "STARTED";
+    private static final String FINISHED = "FINISHED";
+    static final Duration RUN_KEY_TTL = Duration.ofDays(7);
+
+    private final Path journalPath;
+    private final Set<String> compactedFor = new HashSet<>();
+
+    public FileScriptJournal(String journalPath) {
+        this.journalPath = Paths.get(journalPath);
+    }
+
+    @Override
+    public synchronized Set<String> getSucceeded(String runKey) {
+        Map<String, String[]> lastEvents = new LinkedHashMap<>();
+        for (String[] event : readEvents()) {
+            if (event[0].equals(runKey)) {
+                lastEvents.put(event[3], event);
+            }
+        }
+
+        return lastEvents.values().stream()
+                .filter(event -> FINISHED.equals(event[2]) && event.length > 4 && "0".equals(event[4]))
+                .map(event -> event[3])
+                .collect(Collectors.toSet());
+    }
+
+    @Override
+    public synchronized void started(String runKey, String script) {
+        append(runKey, STARTED + "\t" + script);
+    }
+
+    @Override
+    public synchronized void finished(String runKey, String script, int exitCode) {
+        append(runKey, FINISHED + "\t" + script + "\t" + exitCode);
+    }
+
+    private void append(String runKey, String event) {
+        try {
+            if (!compactedFor.contains(runKey)) {
+                compact(runKey);
+            }
+            String line = runKey + "\t" + System.currentTimeMillis() + "\t" + event + "\n";
+            try (FileChannel channel = FileChannel.open(journalPath, CREATE, WRITE, APPEND)) {
+                channel.write(ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8)));
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            // the journal only helps resuming, it must never fail the run
+            LOG.warn("Unable to write to the script journal {}. {}", journalPath, e.getMessage());
+        }
+    }
+
+    /**
+     * Atomically rewrites the journal with the complete events of the given run and of the runs which are still live.
+     */
+    private void compact(String runKey) throws IOException {
+        List<String[]> events = readEvents();
+        Map<String, Long> lastWrites = new HashMap<>();
+        for (String[] event : events) {
+            lastWrites.merge(event[0], getTime(event), Math::max);
+        }
+        long expired = System.currentTimeMillis() - RUN_KEY_TTL.toMillis();
+
+        List<String> kept = new ArrayList<>();
+        boolean rewrite = false;
+        for (String[] event : events) {
+            if (event[0].equals(runKey) || lastWrites.get(event[0]) >= expired) {
+                kept.add(String.join("\t", event));
+            } else {
+                rewrite = true;
+            }
+        }
+        if (endsWithTruncatedLine()) {
+            // a crash in the middle of a write: appending right after it would corrupt the next event
+            rewrite = true;
+        }
+
+        if (rewrite) {
+            Files.createDirectories(journalPath.toAbsolutePath().getParent());
+            Path compacted = Paths.get(journalPath + ".tmp");
+            try (FileChannel channel = FileChannel.open(compacted, CREATE, WRITE, TRUNCATE_EXISTING)) {
+                for (String line : kept) {
+                    channel.write(ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8)));
+                }
+                channel.force(false);
+            }
+            Files.move(compacted, journalPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            LOG.info("Compacted the script journal {}.", journalPath);
+        }
+        compactedFor.add(runKey);
+    }
+
+    private static long getTime(String[] event) {
+        try {
+            return Long.parseLong(event[1]);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private boolean endsWithTruncatedLine() throws IOException {
+        if (!Files.isRegularFile(journalPath) || Files.size(journalPath) == 0) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(journalPath)) {
+            ByteBuffer last = ByteBuffer.allocate(1);
+            channel.read(last, channel.size() - 1);
+            return last.get(0) != '\n';
+        }
+    }
+
+    /**
+     * @return the complete events. A truncated last line is ignored.
+     */
+    private List<String[]> readEvents() {
+        if (!Files.isRegularFile(journalPath)) {
+            return Collections.emptyList();
+        }
+
+        try {
+            List<String> lines = Files.readAllLines(journalPath, StandardCharsets.UTF_8);
+            if (!lines.isEmpty() && endsWithTruncatedLine()) {
+                lines.remove(lines.size() - 1);
+            }
+            return lines.stream()
+                    .map(line -> line.split("\t"))
+                    .filter(event -> event.length >= 4)
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            LOG.warn("Unable to read the script journal {}. {}", journalPath, e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+}
@@ -14,75 +14,44 @@
 package com.adobe.aam.shredder.core.command;
 
 import com.adobe.aam.shredder.core.trigger.TriggerMessage;
-import com.amazonaws.util.StringUtils;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import java.beans.IntrospectionException;
-import java.beans.Introspector;
-import java.beans.PropertyDescriptor;
-import java.util.Arrays;
-import java.util.Objects;
-import java.util.stream.Stream;
 
+/**
+ * Collects the values of the macros, then renders the command in a single pass, see {@link MacroTemplate}.
+ */
 class MacroOutputBuilder {
 
-    private static final Logger LOG = LoggerFactory.getLogger(MacroOutputBuilder.class);
-    private String output;
+    private final MacroTemplate template;
+    private TriggerMessage trigger;
+    private String hostname;
+    private String region;
 
     MacroOutputBuilder(String output) {
-        this.output = output;
+        this(MacroTemplate.compile(output));
+    }
+
+    MacroOutputBuilder(MacroTemplate template) {
+        this.template = template;
     }
 
     /**
      * eg. Replaces TRIGGER_HOSTNAME_MACRO with triggerMessage.getHostname()
      */
     <T extends TriggerMessage> MacroOutputBuilder withTriggerInformation(T triggerMessage) {
-
-        getPropertyDescriptors(triggerMessage)
-                .filter(pd -> Objects.nonNull(pd.getReadMethod()))
-                .forEach(pd -> {
-                    String fieldName = pd.getName();
-                    try {
-                        Object value = pd.getReadMethod().invoke(triggerMessage);
-                        withField(fieldName, value);
-                    } catch (Exception e) {
-                        LOG.error("Unable to get value for field {}. {}", fieldName, e);
-                    }
-                });
-
+        this.trigger = triggerMessage;
         return this;
     }
 
-    private <T extends TriggerMessage> Stream<PropertyDescriptor> getPropertyDescriptors(T triggerMessage) {
-        try {
-            return Arrays.stream(
-                    Introspector.getBeanInfo(triggerMessage.getClass(), Object.class)
-                            .getPropertyDescriptors()
-            );
-        } catch (IntrospectionException e) {
-            LOG.error("Unable to fetch getters for trigger {} {}.", triggerMessage, e);
-            return Stream.empty();
-        }
-    }
-
-    private void withField(String fieldName, Object value) {
-        if (!StringUtils.isNullOrEmpty(fieldName)) {
-            output = output.replace("TRIGGER_" + fieldName.toUpperCase() + "_MACRO", value.toString());
-        }
-    }
-
     MacroOutputBuilder withHost(String hostname) {
-        output = output.replace("HOSTNAME_MACRO", hostname == null ? "no-hostname" : hostname);
+        this.hostname = hostname == null ? "no-hostname" : hostname;
         return this;
     }
 
     MacroOutputBuilder withRegion(String region) {
-        output = output.replace("REGION_MACRO", region == null ? "no-region" : region);
+        this.region = region == null ? "no-region" : region;
         return this;
     }
 
     String build() {
-        return output;
+        return template.render(trigger, hostname, region);
     }
 }
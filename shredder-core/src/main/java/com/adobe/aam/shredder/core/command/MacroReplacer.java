@@ -17,11 +17,17 @@ import com.adobe.aam.shredder.core.trigger.TriggerMessage;
 
 import javax.inject.Inject;
 import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+@Singleton
 public class MacroReplacer {
 
     private final String region;
     private final HostnameProvider hostnameProvider;
+    // the commands come from the configuration, so there are only a few of them
+    private final Map<String, MacroTemplate> templates = new ConcurrentHashMap<>();
 
     @Inject
     public MacroReplacer(@Named("region") String region,
@@ -37,7 +43,7 @@ public class MacroReplacer {
      * - replace HOSTNAME_MACRO with this server's hostname
      */
     public String replaceMacros(String command) {
-        return new MacroOutputBuilder(command)
+        return new MacroOutputBuilder(templates.computeIfAbsent(command, MacroTemplate::compile))
                 .withHost(hostnameProvider.getHostname())
                 .withRegion(region)
                 .build();
@@ -48,7 +54,7 @@ public class MacroReplacer {
      * Replaces TRIGGER_{FIELD}_MACRO with data from triggerMessage
      */
     public <T extends TriggerMessage> String replaceMacros(String command, T triggerMessage) {
-        return new MacroOutputBuilder(command)
+        return new MacroOutputBuilder(templates.computeIfAbsent(command, MacroTemplate::compile))
                 .withTriggerInformation(triggerMessage)
                 .withHost(hostnameProvider.getHostname())
                 .withRegion(region)
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+package com.adobe.aam.shredder.core.command;
+
+import com.adobe.aam.shredder.core.trigger.TriggerMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandle;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A command split once into literal text and *_MACRO placeholders, so that rendering it is a single pass.
+ * <p>
+ * A placeholder is the run of upper case letters, digits and underscores before _MACRO. Its longest suffix that is
+ * a known macro is replaced, eg. TRIGGER_HOSTNAME, then HOSTNAME or REGION; anything else is kept as is. The
+ * placeholders are bound to the getters of a trigger class the first time the command is rendered for that class.
+ */
+class MacroTemplate {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MacroTemplate.class);
+    static final String HOSTNAME = "HOSTNAME";
+    static final String REGION = "REGION";
+    private static final String MACRO_SUFFIX = "_MACRO";
+
+    private final String text;
+    // literals.get(i) comes right before names.get(i); there is one more literal than names
+    private final List<String> literals;
+    private final List<String> names;
+    private final Map<Class<?>, Placeholder[]> bindings = new ConcurrentHashMap<>();
+
+    private MacroTemplate(String text, List<String> literals, List<String> names) {
+        this.text = text;
+        this.literals = literals;
+        this.names = names;
+    }
+
+    static MacroTemplate compile(String text) {
+        List<String> literals = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        int literalStart = 0;
+        int suffix = text.indexOf(MACRO_SUFFIX);
+        while (suffix >= 0) {
+            int nameStart = suffix;
+            while (nameStart > literalStart && isNameChar(text.charAt(nameStart - 1))) {
+                nameStart--;
+            }
+            if (nameStart < suffix) {
+                literals.add(text.substring(literalStart, nameStart));
+                names.add(text.substring(nameStart, suffix));
+                literalStart = suffix + MACRO_SUFFIX.length();
+            }
+            suffix = text.indexOf(MACRO_SUFFIX, suffix + MACRO_SUFFIX.length());
+        }
+        literals.add(text.substring(literalStart));
+        return new MacroTemplate(text, literals, names);
+    }
+
+    private static boolean isNameChar(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    /**
+     * @param trigger  the trigger whose getters replace TRIGGER_{FIELD}_MACRO, or null to keep them
+     * @param hostname the value of HOSTNAME_MACRO, or null to keep it
+     * @param region   the value of REGION_MACRO, or null to keep it
+     */
+    String render(TriggerMessage trigger, String hostname, String region) {
+        if (names.isEmpty()) {
+            return text;
+        }
+
+        Placeholder[] placeholders = bindings.computeIfAbsent(
+                trigger == null ? TriggerMessage.class : trigger.getClass(), this::bind);
+        StringBuilder output = new StringBuilder(text.length() + 16 * names.size());
+        for (int i = 0; i < placeholders.length; i++) {
+            output.append(literals.get(i));
+            placeholders[i].appendTo(output, trigger, hostname, region);
+        }
+        return output.append(literals.get(placeholders.length)).toString();
+    }
+
+    private Placeholder[] bind(Class<?> triggerClass) {
+        Map<String, MethodHandle> accessors = triggerClass == TriggerMessage.class
+                ? Collections.<String, MethodHandle>emptyMap()
+                : TriggerAccessors.forClass(triggerClass);
+        Placeholder[] placeholders = new Placeholder[names.size()];
+        for (int i = 0; i < placeholders.length; i++) {
+            placeholders[i] = bind(names.get(i), accessors);
+        }
+        return placeholders;
+    }
+
+    private static Placeholder bind(String name, Map<String, MethodHandle> accessors) {
+        for (int start = 0; start < name.length(); start++) {
+            String macro = name.substring(start);
+            String prefix = name.substring(0, start);
+            MethodHandle accessor = accessors.get(macro);
+            if (accessor != null) {
+                return new Placeholder(prefix, macro, accessor);
+            }
+            if (HOSTNAME.equals(macro) || REGION.equals(macro)) {
+                return new Placeholder(prefix, macro, null);
+            }
+        }
+        return new Placeholder(name, "", null);
+    }
+
+    private static class Placeholder {
+        // the part of the name which is not a macro, kept as is
+        private final String prefix;
+        private final String macro;
+        private final MethodHandle accessor;
+
+        private Placeholder(String prefix, String macro, MethodHandle accessor) {
+            this.prefix = prefix;
+            this.macro = macro;
+            this.accessor = accessor;
+        }
+
+        void appendTo(StringBuilder output, TriggerMessage trigger, String hostname, String region) {
+            output.append(prefix);
+            String value = getValue(trigger, hostname, region);
+            if (value == null) {
+                output.append(macro).append(MACRO_SUFFIX);
+            } else {
+                output.append(value);
+            }
+        }
+
+        private String getValue(TriggerMessage trigger, String hostname, String region) {
+            if (accessor != null) {
+                try {
+                    Object value = (Object) accessor.invokeExact((Object) trigger);
+                    return value == null ? null : value.toString();
+                } catch (Throwable e) {
+                    LOG.error("Unable to get value for macro {}. {}", macro, e);
+                    return null;
+                }
+            }
+            if (HOSTNAME.equals(macro)) {
+                return hostname;
+            }
+            if (REGION.equals(macro)) {
+                return region;
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+package com.adobe.aam.shredder.core.command;
+
+import java.util.Collections;
+import java.util.Set;
+
+public class NoopScriptJournal implements ScriptJournal {
+
+    @Override
+    public Set<String> getSucceeded(String runKey) {
+        return Collections.emptySet();
+    }
+
+    @Override
+    public void started(String runKey, String script) {
+
+    }
+
+    @Override
+    public void finished(String runKey, String script, int exitCode) {
+
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+package com.adobe.aam.shredder.core.command;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Drains a process stream while the process is running, so that the process never blocks on a full pipe. The stream
+ * is read in fixed chunks rather than by line, so that a script printing a huge line without any line break can't
+ * make the daemon run out of memory: only the tail of such a line is kept.
+ */
+class OutputPump implements Runnable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OutputPump.class);
+    private static final int CHUNK_CHARS = 8192;
+
+    private final InputStream stream;
+    private final String name;
+    private final int capacity;
+    private final BoundedOutputBuffer buffer;
+    private final Thread thread;
+    // the line being read, only touched by the pump thread
+    private final StringBuilder line = new StringBuilder();
+    private long lineDroppedChars;
+
+    private OutputPump(InputStream stream, String name, int capacity) {
+        this.stream = stream;
+        this.name = name;
+        this.capacity = capacity;
+        this.buffer = new BoundedOutputBuffer(capacity);
+        this.thread = new Thread(this, "output-pump-" + name);
+        this.thread.setDaemon(true);
+    }
+
+    static OutputPump start(InputStream stream, String name, int capacity) {
+        OutputPump pump = new OutputPump(stream, name, capacity);
+        pump.thread.start();
+        return pump;
+    }
+
+    @Override
+    public void run() {
+        char[] chunk = new char[CHUNK_CHARS];
+        try (Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8)) {
+            int read;
+            while ((read = reader.read(chunk)) != -1) {
+                int lineStart = 0;
+                for (int i = 0; i < read; i++) {
+                    if (chunk[i] == '\n') {
+                        appendToLine(chunk, lineStart, i - lineStart);
+                        endLine();
+                        lineStart = i + 1;
+                    }
+                }
+                appendToLine(chunk, lineStart, read - lineStart);
+            }
+        } catch (IOException e) {
+            LOG.debug("Stopped reading {}. {}", name, e.getMessage());
+        }
+        if (line.length() > 0) {
+            endLine();
+        }
+    }
+
+    private void appendToLine(char[] chunk, int offset, int length) {
+        line.append(chunk, offset, length);
+        // trimmed once twice the capacity is reached, rather than on every chunk, to keep the copies amortized
+        if (line.length() > 2 * capacity) {
+            int excess = line.length() - capacity;
+            line.delete(0, excess);
+            lineDroppedChars += excess;
+        }
+    }
+
+    private void endLine() {
+        int length = line.length();
+        if (length > 0 && line.charAt(length - 1) == '\r') {
+            line.setLength(length - 1);
+        }
+        String text = line.toString();
+        LOG.debug("[{}] {}", name, text);
+        buffer.append(text, lineDroppedChars);
+        line.setLength(0);
+        lineDroppedChars = 0;
+    }
+
+    /**
+     * Waits for the stream to be fully drained. A background child of the script might keep the stream open
+     * after the script exited, hence the wait is bounded.
+     */
+    BoundedOutputBuffer await(long timeoutMs) throws InterruptedException {
+        thread.join(timeoutMs);
+        return buffer;
+    }
+}
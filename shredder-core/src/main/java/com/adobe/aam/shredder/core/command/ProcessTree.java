@@ -0,0 +1,204 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+package com.adobe.aam.shredder.core.command;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Linux process tree helpers, based on /proc. The daemon still targets Java 8, where ProcessHandle is not
+ * available, so the descendants of a script are discovered by walking the parent pids in /proc/[pid]/stat.
+ */
+class ProcessTree {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ProcessTree.class);
+    private static final File PROC = new File("/proc");
+    private static final long POLL_INTERVAL_MS = 100;
+    private static final long SIGNAL_TIMEOUT_MS = 1000;
+
+    private ProcessTree() {
+    }
+
+    /**
+     * Sends SIGTERM to the process and to all its descendants, waits up to gracePeriodMs for them to exit, then
+     * sends SIGKILL to whatever is still alive. An interrupt cuts the grace period short, but the tree is still killed.
+     */
+    static void terminate(Process process, long gracePeriodMs) {
+        Optional<Long> pid = pid(process);
+        if (!pid.isPresent()) {
+            process.destroyForcibly();
+            return;
+        }
+
+        // Snapshot the tree before signalling: orphans get re-parented and can't be found afterwards.
+        Set<Long> tree = new LinkedHashSet<>();
+        tree.add(pid.get());
+        tree.addAll(descendants(pid.get()));
+        LOG.info("Terminating process tree {}.", tree);
+        signal("TERM", tree);
+
+        long deadline = System.currentTimeMillis() + gracePeriodMs;
+        try {
+            while (System.currentTimeMillis() < deadline && !alive(tree).isEmpty()) {
+                process.waitFor(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            LOG.warn("Interrupted during the termination grace period of {}.", tree);
+            Thread.currentThread().interrupt();
+        }
+
+        List<Long> survivors = alive(tree);
+        for (Long survivor : new ArrayList<>(survivors)) {
+            survivors.addAll(descendants(survivor));
+        }
+        if (!survivors.isEmpty()) {
+            LOG.warn("Processes {} ignored SIGTERM for {} ms. Sending SIGKILL.", survivors, gracePeriodMs);
+            signal("KILL", survivors);
+            awaitExit(survivors, SIGNAL_TIMEOUT_MS);
+        }
+        process.destroyForcibly();
+    }
+
+    private static void awaitExit(Collection<Long> pids, long timeoutMs) {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        try {
+            while (System.currentTimeMillis() < deadline && !alive(pids).isEmpty()) {
+                Thread.sleep(POLL_INTERVAL_MS / 10);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static Optional<Long> pid(Process process) {
+        try {
+            // Java 9+
+            return Optional.of((Long) Process.class.getMethod("pid").invoke(process));
+        } catch (ReflectiveOperationException e) {
+            // Java 8: java.lang.UNIXProcess keeps the pid in a private field
+            try {
+                Field field = process.getClass().getDeclaredField("pid");
+                field.setAccessible(true);
+                return Optional.of(field.getLong(process));
+            } catch (ReflectiveOperationException | RuntimeException e2) {
+                LOG.warn("Unable to find the pid of process {}. {}", process, e2.getMessage());
+                return Optional.empty();
+            }
+        }
+    }
+
+    static List<Long> descendants(long pid) {
+        Map<Long, List<Long>> children = new HashMap<>();
+        File[] entries = PROC.listFiles();
+        if (entries == null) {
+            return new ArrayList<>();
+        }
+
+        for (File entry : entries) {
+            if (!isPid(entry.getName())) {
+                continue;
+            }
+            parentOf(Long.parseLong(entry.getName())).ifPresent(parent ->
+                    children.computeIfAbsent(parent, key -> new ArrayList<>()).add(Long.parseLong(entry.getName())));
+        }
+
+        List<Long> descendants = new ArrayList<>();
+        Deque<Long> pending = new ArrayDeque<>(children.getOrDefault(pid, new ArrayList<>()));
+        while (!pending.isEmpty()) {
+            Long next = pending.poll();
+            descendants.add(next);
+            pending.addAll(children.getOrDefault(next, new ArrayList<>()));
+        }
+        return descendants;
+    }
+
+    /**
+     * @return the content of /proc/[pid]/stat after the command name, which can contain spaces and parentheses.
+     */
+    static Optional<String[]> stat(long pid) {
+        try {
+            String stat = new String(Files.readAllBytes(Paths.get("/proc", Long.toString(pid), "stat")), StandardCharsets.UTF_8);
+            return Optional.of(stat.substring(stat.lastIndexOf(')') + 2).trim().split(" "));
+        } catch (IOException | RuntimeException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @return the resident set size of the process, 0 if it is gone
+     */
+    static long rssBytes(long pid) {
+        try {
+            for (String line : Files.readAllLines(Paths.get("/proc", Long.toString(pid), "status"), StandardCharsets.UTF_8)) {
+                // VmRSS:     1234 kB
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.substring("VmRSS:".length()).replace("kB", "").trim()) * 1024;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // the process exited in the meantime
+        }
+        return 0;
+    }
+
+    private static Optional<Long> parentOf(long pid) {
+        // fields after the command name: state, ppid, ...
+        return stat(pid).map(fields -> Long.parseLong(fields[1]));
+    }
+
+    private static boolean isAlive(long pid) {
+        // zombies keep their /proc entry until reaped
+        return stat(pid).map(fields -> !"Z".equals(fields[0])).orElse(false);
+    }
+
+    private static List<Long> alive(Collection<Long> pids) {
+        return pids.stream().filter(ProcessTree::isAlive).collect(Collectors.toList());
+    }
+
+    private static boolean isPid(String name) {
+        return !name.isEmpty() && name.chars().allMatch(Character::isDigit);
+    }
+
+    private static void signal(String signal, Collection<Long> pids) {
+        List<String> command = new ArrayList<>();
+        command.add("kill");
+        command.add("-" + signal);
+        pids.forEach(pid -> command.add(Long.toString(pid)));
+        try {
+            new ProcessBuilder(command).redirectErrorStream(true).start().waitFor(SIGNAL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (IOException e) {
+            LOG.error("Unable to send SIG{} to {}. {}", signal, pids, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
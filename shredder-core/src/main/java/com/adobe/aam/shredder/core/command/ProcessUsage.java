@@ -0,0 +1,115 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+package com.adobe.aam.shredder.core.command;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Measures the resources used by a command and its child processes.
+ * <p>
+ * The CPU time and I/O bytes of the children are accounted to the bash wrapper once it reaps them, so the wrapper
+ * dumps its own /proc/[pid]/stat and /proc/[pid]/io to a file right before exiting. The peak RSS is not
+ * accounted that way and is sampled from the process tree instead, less and less often as the command runs. When the
+ * command runs in a cgroup, the cgroup counters are used, as they are exact even when the command is killed, and the
+ * process tree isn't sampled.
+ */
+class ProcessUsage {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ProcessUsage.class);
+    // USER_HZ, the unit of the times in /proc/[pid]/stat, is 100 on all the architectures we run on
+    private static final long CLOCK_TICKS_PER_SECOND = 100;
+    // indexes of cutime and cstime in /proc/[pid]/stat, counted after the command name
+    private static final int CHILDREN_USER_TIME = 13;
+    private static final int CHILDREN_SYSTEM_TIME = 14;
+
+    private final Path usageFile;
+    private final long startTime = System.currentTimeMillis();
+    private long peakRssBytes = -1;
+
+    private ProcessUsage(Path usageFile) {
+        this.usageFile = usageFile;
+    }
+
+    static ProcessUsage create() throws IOException {
+        return new ProcessUsage(Files.createTempFile("shredder-usage-", ".txt"));
+    }
+
+    /**
+     * @return the shell commands to append to the wrapper, which keep the exit code of the command
+     */
+    String getWrapperTrailer() {
+        return "rc=$?; { cat /proc/$$/stat; cat /proc/$$/io; } > '" + usageFile + "' 2>/dev/null; exit $rc";
+    }
+
+    void sample(Process process) {
+        ProcessTree.pid(process).ifPresent(pid -> {
+            long rss = ProcessTree.rssBytes(pid);
+            for (Long child : ProcessTree.descendants(pid)) {
+                rss += ProcessTree.rssBytes(child);
+            }
+            peakRssBytes = Math.max(peakRssBytes, rss);
+        });
+    }
+
+    ScriptMetrics toMetrics(String command, int exitCode, boolean timedOut, Optional<ScriptCgroups.Usage> cgroupUsage) {
+        long wallTimeMs = System.currentTimeMillis() - startTime;
+        long userCpuMs = -1;
+        long systemCpuMs = -1;
+        long readBytes = -1;
+        long writtenBytes = -1;
+        long peakRss = peakRssBytes;
+        try {
+            List<String> lines = Files.readAllLines(usageFile, StandardCharsets.UTF_8);
+            if (!lines.isEmpty()) {
+                String stat = lines.get(0);
+                String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+                userCpuMs = Long.parseLong(fields[CHILDREN_USER_TIME]) * 1000 / CLOCK_TICKS_PER_SECOND;
+                systemCpuMs = Long.parseLong(fields[CHILDREN_SYSTEM_TIME]) * 1000 / CLOCK_TICKS_PER_SECOND;
+            }
+            for (String line : lines) {
+                if (line.startsWith("read_bytes: ")) {
+                    readBytes = Long.parseLong(line.substring("read_bytes: ".length()).trim());
+                } else if (line.startsWith("write_bytes: ")) {
+                    writtenBytes = Long.parseLong(line.substring("write_bytes: ".length()).trim());
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            LOG.debug("Unable to read the resource usage of {}. {}", command, e.getMessage());
+        } finally {
+            try {
+                Files.deleteIfExists(usageFile);
+            } catch (IOException e) {
+                LOG.debug("Unable to delete {}. {}", usageFile, e.getMessage());
+            }
+        }
+
+        if (cgroupUsage.isPresent()) {
+            ScriptCgroups.Usage usage = cgroupUsage.get();
+            userCpuMs = usage.getUserCpuMs();
+            systemCpuMs = usage.getSystemCpuMs();
+            readBytes = usage.getReadBytes();
+            writtenBytes = usage.getWrittenBytes();
+            peakRss = usage.getPeakMemoryBytes() >= 0 ? usage.getPeakMemoryBytes() : peakRss;
+        }
+        return new ScriptMetrics(command, exitCode, timedOut, wallTimeMs, userCpuMs, systemCpuMs, peakRss,
+                readBytes, writtenBytes);
+    }
+}
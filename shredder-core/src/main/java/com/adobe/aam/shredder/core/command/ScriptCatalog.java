@@ -0,0 +1,254 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+package com.adobe.aam.shredder.core.command;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+/**
+ * Index of the scripts under a directory, sorted by priority and validated ahead of time, so that running
+ * the scripts does not have to walk the directory tree at shutdown time. The index is rebuilt in the background
+ * whenever the directory changes, and periodically for file systems (eg. NFS) on which changes are not reported.
+ * Unchanged scripts are not validated again.
+ */
+class ScriptCatalog {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ScriptCatalog.class);
+    private static final long RESCAN_INTERVAL_MINUTES = 5;
+    private static final long DEBOUNCE_MS = 500;
+    private static final long SYNTAX_CHECK_TIMEOUT_SECONDS = 10;
+
+    private final Path scriptsPath;
+    private final List<String> scriptsPriority;
+    private final Map<Path, Entry> entriesByPath = new HashMap<>();
+    private volatile List<Entry> entries = Collections.emptyList();
+    private WatchService watchService;
+
+    ScriptCatalog(String scriptsPath, List<String> scriptsPriority) {
+        this.scriptsPath = Paths.get(scriptsPath);
+        this.scriptsPriority = scriptsPriority.stream()
+                .map(String::trim)
+                .filter(priority -> !priority.isEmpty())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Builds the index and starts watching the scripts directory.
+     */
+    void start() {
+        try {
+            watchService = scriptsPath.getFileSystem().newWatchService();
+        } catch (IOException e) {
+            LOG.warn("Unable to watch {}, relying on periodic rescans. {}", scriptsPath, e.getMessage());
+        }
+        rebuild();
+
+        Thread watcher = new Thread(this::watch, "script-catalog-" + scriptsPath.getFileName());
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    /**
+     * @return the scripts, in priority order
+     */
+    List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * @return the reason why the script can't be run, if any. Scripts that failed the validation of the index are
+     * checked again, in case the index is stale.
+     */
+    Optional<String> getProblem(String script) {
+        for (Entry entry : entries) {
+            if (entry.getScript().equals(script) && !entry.getProblem().isPresent()) {
+                return Optional.empty();
+            }
+        }
+        return validate(Paths.get(script));
+    }
+
+    synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(scriptsPath)) {
+            files = walk.map(Path::toAbsolutePath).collect(Collectors.toList());
+        } catch (IOException e) {
+            LOG.warn("No execution scripts found in {}", scriptsPath);
+            files = Collections.emptyList();
+        }
+        registerDirectories(files);
+        List<Path> scripts = files.stream()
+                .filter(file -> file.getFileName().toString().endsWith(".sh"))
+                .collect(Collectors.toList());
+
+        List<Entry> rebuilt = new ArrayList<>();
+        for (Path script : scripts) {
+            long lastModified = 31 * script.toFile().lastModified()
+                    + new File(script + ScriptHeader.DEPENDENCIES_SIDECAR_SUFFIX).lastModified();
+            Entry entry = entriesByPath.get(script);
+            if (entry == null || entry.lastModified != lastModified) {
+                entry = new Entry(script.toString(), lastModified, ScriptHeader.read(script.toString()), validate(script));
+                entry.getProblem().ifPresent(problem -> LOG.warn("Script {} will fail: {}", script, problem));
+            }
+            rebuilt.add(entry);
+        }
+        // stable sort: scripts that don't match any priority keep the directory order
+        rebuilt.sort(Comparator.comparingInt(entry -> getPriorityRank(entry.getScript())));
+
+        entriesByPath.clear();
+        rebuilt.forEach(entry -> entriesByPath.put(Paths.get(entry.getScript()), entry));
+        entries = Collections.unmodifiableList(rebuilt);
+        LOG.info("Indexed {} scripts from {} in {} ms.", rebuilt.size(), scriptsPath, System.currentTimeMillis() - start);
+    }
+
+    private int getPriorityRank(String script) {
+        for (int i = 0; i < scriptsPriority.size(); i++) {
+            if (script.endsWith(scriptsPriority.get(i))) {
+                return i;
+            }
+        }
+        return scriptsPriority.size();
+    }
+
+    private void watch() {
+        while (true) {
+            try {
+                WatchKey key = watchService == null
+                        ? null
+                        : watchService.poll(RESCAN_INTERVAL_MINUTES, TimeUnit.MINUTES);
+                if (watchService == null) {
+                    TimeUnit.MINUTES.sleep(RESCAN_INTERVAL_MINUTES);
+                }
+                if (key != null) {
+                    // editors and package managers usually touch a file several times in a row
+                    Thread.sleep(DEBOUNCE_MS);
+                    drain(key);
+                }
+                rebuild();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            } catch (RuntimeException e) {
+                LOG.error("Unable to refresh the scripts from {}", scriptsPath, e);
+            }
+        }
+    }
+
+    private void drain(WatchKey key) {
+        while (key != null) {
+            key.pollEvents();
+            key.reset();
+            key = watchService.poll();
+        }
+    }
+
+    private void registerDirectories(List<Path> files) {
+        if (watchService == null) {
+            return;
+        }
+
+        for (Path directory : files) {
+            if (!Files.isDirectory(directory)) {
+                continue;
+            }
+            try {
+                // registering an already watched directory returns the existing key
+                directory.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+            } catch (IOException e) {
+                LOG.debug("Unable to watch {}. {}", directory, e.getMessage());
+            }
+        }
+    }
+
+    static Optional<String> validate(Path script) {
+        File file = script.toFile();
+        if (!file.isFile()) {
+            return Optional.of("the file does not exist");
+        }
+        if (!file.canExecute()) {
+            return Optional.of("the file is not executable");
+        }
+
+        try {
+            Process process = new ProcessBuilder("bash", "-n", script.toString())
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.PIPE)
+                    .start();
+            OutputPump output = OutputPump.start(process.getInputStream(), "bash-n", 4096);
+            if (!process.waitFor(SYNTAX_CHECK_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                LOG.warn("Syntax check of {} timed out.", script);
+                return Optional.empty();
+            }
+            if (process.exitValue() != 0) {
+                return Optional.of("syntax error. " + output.await(SYNTAX_CHECK_TIMEOUT_SECONDS * 1000));
+            }
+            return Optional.empty();
+        } catch (IOException e) {
+            LOG.warn("Unable to check the syntax of {}. {}", script, e.getMessage());
+            return Optional.empty();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        }
+    }
+
+    static class Entry {
+        private final String script;
+        private final long lastModified;
+        private final ScriptHeader header;
+        private final Optional<String> problem;
+
+        private Entry(String script, long lastModified, ScriptHeader header, Optional<String> problem) {
+            this.script = script;
+            this.lastModified = lastModified;
+            this.header = header;
+            this.problem = problem;
+        }
+
+        String getScript() {
+            return script;
+        }
+
+        ScriptHeader getHeader() {
+            return header;
+        }
+
+        Optional<String> getProblem() {
+            return problem;
+        }
+    }
+}
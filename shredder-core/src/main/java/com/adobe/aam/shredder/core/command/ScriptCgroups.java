@@ -0,0 +1,208 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+package com.adobe.aam.shredder.core.command;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs each script in its own cgroup v2 group under {@code root}, so that the scripts get a bounded share of CPU,
+ * I/O and memory while the service keeps serving, and so that the resources used by each script can be accounted.
+ * Requires the cpu, io and memory controllers to be enabled in the parent of {@code root}, as systemd does.
+ */
+public class ScriptCgroups {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ScriptCgroups.class);
+    private static final int REMOVE_ATTEMPTS = 10;
+    private static final long REMOVE_RETRY_DELAY_MS = 100;
+
+    private final boolean enabled;
+    private final Path root;
+    private final int cpuWeight;
+    private final int ioWeight;
+    private final String memoryMax;
+    private final AtomicLong sequence = new AtomicLong();
+    private volatile boolean unavailable;
+
+    public ScriptCgroups(boolean enabled, String root, int cpuWeight, int ioWeight, String memoryMax) {
+        this.enabled = enabled;
+        this.root = Paths.get(root);
+        this.cpuWeight = cpuWeight;
+        this.ioWeight = ioWeight;
+        this.memoryMax = memoryMax;
+    }
+
+    public static ScriptCgroups disabled() {
+        return new ScriptCgroups(false, "", 0, 0, "max");
+    }
+
+    /**
+     * @return a new cgroup for the script, or empty if cgroups are disabled or can't be used on this host.
+     */
+    Optional<Cgroup> create(String script) {
+        if (!enabled || unavailable) {
+            return Optional.empty();
+        }
+
+        String name = Paths.get(script).getFileName().toString().replaceAll("[^A-Za-z0-9_.-]", "_")
+                + "-" + sequence.incrementAndGet();
+        Path path = root.resolve(name);
+        try {
+            if (!Files.isDirectory(root)) {
+                Files.createDirectory(root);
+            }
+            write(root.resolve("cgroup.subtree_control"), "+cpu +io +memory");
+            Files.createDirectory(path);
+            write(path.resolve("cpu.weight"), Integer.toString(cpuWeight));
+            write(path.resolve("io.weight"), "default " + ioWeight);
+            write(path.resolve("memory.max"), memoryMax);
+            return Optional.of(new Cgroup(path));
+        } catch (IOException e) {
+            // most likely a cgroup v1 host or missing permissions: no point trying again for every script
+            unavailable = true;
+            LOG.error("Unable to create the cgroup {}. Scripts will run without cgroup limits. {}", path, e.toString());
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException ignored) {
+                // nothing else to do
+            }
+            return Optional.empty();
+        }
+    }
+
+    private static void write(Path file, String value) throws IOException {
+        Files.write(file, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static class Cgroup {
+        private final Path path;
+
+        private Cgroup(Path path) {
+            this.path = path;
+        }
+
+        /**
+         * @return the file a process writes its pid to, in order to join the cgroup
+         */
+        Path getProcsFile() {
+            return path.resolve("cgroup.procs");
+        }
+
+        Usage readUsage() {
+            Usage usage = new Usage();
+            for (String line : readLines(path.resolve("cpu.stat"))) {
+                String[] field = line.split(" ");
+                if (field.length == 2 && "user_usec".equals(field[0])) {
+                    usage.userCpuMs = Long.parseLong(field[1]) / 1000;
+                } else if (field.length == 2 && "system_usec".equals(field[0])) {
+                    usage.systemCpuMs = Long.parseLong(field[1]) / 1000;
+                }
+            }
+            // one line per device: "8:0 rbytes=1 wbytes=2 rios=3 wios=4 dbytes=0 dios=0"
+            for (String line : readLines(path.resolve("io.stat"))) {
+                for (String field : line.split(" ")) {
+                    if (field.startsWith("rbytes=")) {
+                        usage.readBytes += Long.parseLong(field.substring("rbytes=".length()));
+                    } else if (field.startsWith("wbytes=")) {
+                        usage.writtenBytes += Long.parseLong(field.substring("wbytes=".length()));
+                    }
+                }
+            }
+            // only available on kernels >= 5.19
+            List<String> peak = readLines(path.resolve("memory.peak"));
+            usage.peakMemoryBytes = peak.isEmpty() ? -1 : Long.parseLong(peak.get(0).trim());
+            return usage;
+        }
+
+        /**
+         * A cgroup can only be removed once all its processes are gone, which takes a moment after they are killed.
+         */
+        void remove() {
+            for (int attempt = 0; attempt < REMOVE_ATTEMPTS; attempt++) {
+                try {
+                    Files.deleteIfExists(path);
+                    return;
+                } catch (IOException e) {
+                    try {
+                        Thread.sleep(REMOVE_RETRY_DELAY_MS);
+                    } catch (InterruptedException interrupted) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            }
+            LOG.warn("Unable to remove the cgroup {}.", path);
+        }
+
+        private static List<String> readLines(Path file) {
+            try {
+                return Files.readAllLines(file, StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                return Collections.emptyList();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return path.toString();
+        }
+    }
+
+    public static class Usage {
+        private long userCpuMs;
+        private long systemCpuMs;
+        private long readBytes;
+        private long writtenBytes;
+        private long peakMemoryBytes;
+
+        public long getUserCpuMs() {
+            return userCpuMs;
+        }
+
+        public long getSystemCpuMs() {
+            return systemCpuMs;
+        }
+
+        public long getReadBytes() {
+            return readBytes;
+        }
+
+        public long getWrittenBytes() {
+            return writtenBytes;
+        }
+
+        /**
+         * @return the peak memory usage, or -1 if the kernel doesn't report it
+         */
+        public long getPeakMemoryBytes() {
+            return peakMemoryBytes;
+        }
+
+        @Override
+        public String toString() {
+            return "cpu: " + userCpuMs + " ms user, " + systemCpuMs + " ms system; io: " + readBytes + " bytes read, "
+                    + writtenBytes + " bytes written; peak memory: "
+                    + (peakMemoryBytes < 0 ? "n/a" : peakMemoryBytes + " bytes");
+        }
+    }
+}
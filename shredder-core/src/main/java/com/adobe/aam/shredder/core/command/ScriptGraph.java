@@ -0,0 +1,142 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+package com.adobe.aam.shredder.core.command;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Dependency graph between scripts. The scripts are kept in their priority order, so that whenever several
+ * scripts are ready to run, the one with the highest priority is picked first.
+ */
+class ScriptGraph {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ScriptGraph.class);
+
+    private final List<String> scripts;
+    private final Map<String, Set<String>> dependencies;
+    private final boolean unresolved;
+
+    private ScriptGraph(List<String> scripts, Map<String, Set<String>> dependencies, boolean unresolved) {
+        this.scripts = scripts;
+        this.dependencies = dependencies;
+        this.unresolved = unresolved;
+    }
+
+    /**
+     * @param orderedScripts       the scripts, in priority order
+     * @param declaredDependencies the dependencies of a script, as trailing path components (see {@link ScriptHeader})
+     */
+    static ScriptGraph build(List<String> orderedScripts, Function<String, Collection<String>> declaredDependencies) {
+        Map<String, Set<String>> dependencies = new LinkedHashMap<>();
+        boolean unresolved = false;
+        for (String script : orderedScripts) {
+            Set<String> resolved = new LinkedHashSet<>();
+            for (String declared : declaredDependencies.apply(script)) {
+                String dependency = declared.trim();
+                List<String> matches = resolve(dependency, orderedScripts);
+                if (matches.size() != 1) {
+                    LOG.error("Script {} depends on {}, which matches {} scripts instead of one: {}.", script,
+                            dependency, matches.size(), matches);
+                    unresolved = true;
+                } else if (!matches.get(0).equals(script)) {
+                    resolved.add(matches.get(0));
+                }
+            }
+            dependencies.put(script, resolved);
+        }
+        return new ScriptGraph(new ArrayList<>(orderedScripts), dependencies, unresolved);
+    }
+
+    /**
+     * @return the scripts whose path is the dependency or ends with it, on a path separator
+     */
+    private static List<String> resolve(String dependency, List<String> scripts) {
+        List<String> matches = new ArrayList<>();
+        for (String script : scripts) {
+            if (script.equals(dependency) || script.endsWith("/" + dependency)) {
+                matches.add(script);
+            }
+        }
+        return matches;
+    }
+
+    List<String> getScripts() {
+        return Collections.unmodifiableList(scripts);
+    }
+
+    Set<String> getDependencies(String script) {
+        return dependencies.getOrDefault(script, Collections.emptySet());
+    }
+
+    /**
+     * @return the scripts that were not started yet and whose dependencies all succeeded, in priority order.
+     */
+    List<String> getReady(Set<String> succeeded, Set<String> started) {
+        List<String> ready = new ArrayList<>();
+        for (String script : scripts) {
+            if (!started.contains(script) && succeeded.containsAll(getDependencies(script))) {
+                ready.add(script);
+            }
+        }
+        return ready;
+    }
+
+    /**
+     * @return whether a declared dependency matches no script, or several
+     */
+    boolean hasUnresolvedDependencies() {
+        return unresolved;
+    }
+
+    boolean hasCycle() {
+        Set<String> visited = new HashSet<>();
+        for (String script : scripts) {
+            if (visit(script, visited, new HashSet<>())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean visit(String script, Set<String> visited, Set<String> path) {
+        if (path.contains(script)) {
+            LOG.error("Dependency cycle detected around script {}.", script);
+            return true;
+        }
+        if (visited.contains(script)) {
+            return false;
+        }
+
+        path.add(script);
+        for (String dependency : getDependencies(script)) {
+            if (visit(dependency, visited, path)) {
+                return true;
+            }
+        }
+        path.remove(script);
+        visited.add(script);
+        return false;
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+package com.adobe.aam.shredder.core.command;
+
+import com.google.common.base.Splitter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Directives a script declares about itself, read from the leading comment block of the script:
+ * <pre>
+ * #!/bin/bash
+ * # shredder-depends-on: myapp/shutdown.sh, route53-utils/remove_dns.sh
+ * # shredder-class: best-effort
+ * # shredder-spot-safe: true
+ * </pre>
+ * Dependencies can also be listed in a sidecar file named after the script (eg. upload.sh.deps), one per line.
+ * Scripts are critical unless they are declared best-effort: a best-effort script is skipped or cut short when
+ * the deadline of the run is close, and its failure doesn't fail the run. Spot-safe scripts are the ones that can
+ * complete within the two minutes of a Spot interruption notice; only they run when the instance is reclaimed.
+ */
+public class ScriptHeader {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ScriptHeader.class);
+    private static final String DIRECTIVE_PREFIX = "shredder-";
+    private static final String DEPENDS_ON = "depends-on";
+    private static final String CLASS = "class";
+    private static final String BEST_EFFORT = "best-effort";
+    private static final String SPOT_SAFE = "spot-safe";
+    static final String DEPENDENCIES_SIDECAR_SUFFIX = ".deps";
+    private static final Splitter LIST_SPLITTER = Splitter.on(',').trimResults().omitEmptyStrings();
+
+    private final Set<String> dependencies;
+    private final boolean bestEffort;
+    private final boolean spotSafe;
+
+    private ScriptHeader(Set<String> dependencies, boolean bestEffort, boolean spotSafe) {
+        this.dependencies = Collections.unmodifiableSet(dependencies);
+        this.bestEffort = bestEffort;
+        this.spotSafe = spotSafe;
+    }
+
+    public static ScriptHeader read(String script) {
+        Set<String> dependencies = new LinkedHashSet<>();
+        boolean bestEffort = false;
+        boolean spotSafe = false;
+        for (String[] directive : readDirectives(Paths.get(script))) {
+            if (DEPENDS_ON.equals(directive[0])) {
+                dependencies.addAll(LIST_SPLITTER.splitToList(directive[1]));
+            } else if (CLASS.equals(directive[0])) {
+                bestEffort = BEST_EFFORT.equalsIgnoreCase(directive[1]);
+            } else if (SPOT_SAFE.equals(directive[0])) {
+                spotSafe = Boolean.parseBoolean(directive[1]);
+            }
+        }
+        dependencies.addAll(readSidecarDependencies(Paths.get(script + DEPENDENCIES_SIDECAR_SUFFIX)));
+        return new ScriptHeader(dependencies, bestEffort, spotSafe);
+    }
+
+    /**
+     * @return the scripts that must finish successfully before this one starts, as path suffixes (eg. myapp/shutdown.sh)
+     */
+    public Set<String> getDependencies() {
+        return dependencies;
+    }
+
+    public boolean isBestEffort() {
+        return bestEffort;
+    }
+
+    public boolean isSpotSafe() {
+        return spotSafe;
+    }
+
+    /**
+     * Only the leading comment block is scanned, so that large scripts are not read entirely.
+     */
+    private static List<String[]> readDirectives(Path script) {
+        List<String[]> directives = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(script, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                if (!line.startsWith("#")) {
+                    break;
+                }
+
+                String comment = line.substring(1).trim();
+                int separator = comment.indexOf(':');
+                if (comment.startsWith(DIRECTIVE_PREFIX) && separator > 0) {
+                    directives.add(new String[]{
+                            comment.substring(DIRECTIVE_PREFIX.length(), separator).trim(),
+                            comment.substring(separator + 1).trim()
+                    });
+                }
+            }
+        } catch (IOException e) {
+            LOG.warn("Unable to read directives from script {}. {}", script, e.getMessage());
+        }
+        return directives;
+    }
+
+    private static List<String> readSidecarDependencies(Path sidecar) {
+        if (!Files.isRegularFile(sidecar)) {
+            return Collections.emptyList();
+        }
+
+        List<String> dependencies = new ArrayList<>();
+        try {
+            for (String line : Files.readAllLines(sidecar, StandardCharsets.UTF_8)) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    dependencies.add(line);
+                }
+            }
+        } catch (IOException e) {
+            LOG.warn("Unable to read script dependencies from {}. {}", sidecar, e.getMessage());
+        }
+        return dependencies;
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+package com.adobe.aam.shredder.core.command;
+
+import java.util.Set;
+
+/**
+ * Records the progress of a script run, so that a run interrupted by a restart of the daemon can be resumed.
+ * A run is identified by a key, eg. the lifecycle action token of the shutdown.
+ */
+public interface ScriptJournal {
+
+    /**
+     * @return the scripts that already finished successfully for the given run
+     */
+    Set<String> getSucceeded(String runKey);
+
+    void started(String runKey, String script);
+
+    void finished(String runKey, String script, int exitCode);
+}
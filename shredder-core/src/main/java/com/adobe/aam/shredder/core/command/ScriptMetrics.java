@@ -0,0 +1,97 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+package com.adobe.aam.shredder.core.command;
+
+/**
+ * Resources used by a command, its child processes included. Values which could not be measured, eg. the CPU time
+ * of a command killed on timeout, are -1.
+ */
+public class ScriptMetrics {
+
+    private final String command;
+    private final int exitCode;
+    private final boolean timedOut;
+    private final long wallTimeMs;
+    private final long userCpuMs;
+    private final long systemCpuMs;
+    private final long peakRssBytes;
+    private final long readBytes;
+    private final long writtenBytes;
+
+    ScriptMetrics(String command, int exitCode, boolean timedOut, long wallTimeMs, long userCpuMs, long systemCpuMs,
+                  long peakRssBytes, long readBytes, long writtenBytes) {
+        this.command = command;
+        this.exitCode = exitCode;
+        this.timedOut = timedOut;
+        this.wallTimeMs = wallTimeMs;
+        this.userCpuMs = userCpuMs;
+        this.systemCpuMs = systemCpuMs;
+        this.peakRssBytes = peakRssBytes;
+        this.readBytes = readBytes;
+        this.writtenBytes = writtenBytes;
+    }
+
+    public String getCommand() {
+        return command;
+    }
+
+    /**
+     * @return the exit code, or -1 if the command timed out
+     */
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    public long getWallTimeMs() {
+        return wallTimeMs;
+    }
+
+    public long getUserCpuMs() {
+        return userCpuMs;
+    }
+
+    public long getSystemCpuMs() {
+        return systemCpuMs;
+    }
+
+    public long getPeakRssBytes() {
+        return peakRssBytes;
+    }
+
+    public long getReadBytes() {
+        return readBytes;
+    }
+
+    public long getWrittenBytes() {
+        return writtenBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "ScriptMetrics{" +
+                "command='" + command + '\'' +
+                ", exitCode=" + exitCode +
+                ", timedOut=" + timedOut +
+                ", wallTimeMs=" + wallTimeMs +
+                ", userCpuMs=" + userCpuMs +
+                ", systemCpuMs=" + systemCpuMs +
+                ", peakRssBytes=" + peakRssBytes +
+                ", readBytes=" + readBytes +
+                ", writtenBytes=" + writtenBytes +
+                '}';
+    }
+}
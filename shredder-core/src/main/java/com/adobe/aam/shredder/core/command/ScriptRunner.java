@@ -12,62 +12,253 @@
 
 package com.adobe.aam.shredder.core.command;
 
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.assistedinject.Assisted;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
-import java.io.File;
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import javax.inject.Named;
+import java.time.Duration;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 public class ScriptRunner {
     private static final Logger LOG = LoggerFactory.getLogger(ScriptRunner.class);
+    public static final String DEADLINE_VARIABLE = "SHREDDER_DEADLINE_EPOCH_MS";
     private final long scriptTimeoutMs;
     private final String scriptsPriority;
     private final String scriptsPath;
+    private final int scriptsParallelism;
     private final CommandRunner commandRunner;
+    private final ScriptCatalog scriptCatalog;
+    private final ScriptJournal scriptJournal;
+    private final long bestEffortReserveMs;
+    private final ScriptMetricsListener scriptMetricsListener;
 
     public interface ScriptRunnerFactory {
         ScriptRunner create(@Assisted("scriptsPath") String scriptsPath,
                             @Assisted("scriptsPriority") String scriptsPriority,
-                            @Assisted("scriptTimeout") long scriptTimeout);
+                            @Assisted("scriptTimeout") long scriptTimeout,
+                            @Assisted("scriptsParallelism") int scriptsParallelism);
     }
 
     @Inject
     public ScriptRunner(@Assisted("scriptsPath") String scriptsPath,
                         @Assisted("scriptsPriority") String scriptsPriority,
                         @Assisted("scriptTimeout") long scriptTimeout,
-                        CommandRunner commandRunner) {
+                        @Assisted("scriptsParallelism") int scriptsParallelism,
+                        CommandRunner commandRunner,
+                        ScriptJournal scriptJournal,
+                        @Named("bestEffortScriptsReserve") Duration bestEffortReserve,
+                        ScriptMetricsListener scriptMetricsListener) {
         this.scriptsPath = scriptsPath;
         this.scriptsPriority = scriptsPriority;
         this.scriptTimeoutMs = scriptTimeout;
+        this.scriptsParallelism = scriptsParallelism;
         this.commandRunner = commandRunner;
+        this.scriptJournal = scriptJournal;
+        this.bestEffortReserveMs = bestEffortReserve.toMillis();
+        this.scriptMetricsListener = scriptMetricsListener;
+        this.scriptCatalog = new ScriptCatalog(scriptsPath, Arrays.asList(scriptsPriority.split(":")));
+        this.scriptCatalog.start();
     }
 
     /**
      * @return true if all scripts finished with exit code 0, false otherwise.
      */
     public boolean runScripts(Runnable heartbeat) {
-        List<String> scriptsPriorityList = Arrays.asList(scriptsPriority.split(":"));
-        return getAllScripts(scriptsPath, scriptsPriorityList)
-                .stream()
-                .allMatch(script -> getRunScriptResult(script, heartbeat));
+        return runScripts(heartbeat, null, Deadline.none());
     }
 
-    private boolean getRunScriptResult(String script, Runnable heartbeat) {
+    /**
+     * Runs the scripts, recording the progress in the {@link ScriptJournal} under the given key. Scripts which
+     * already succeeded under the same key, eg. before the daemon was restarted, are not run again.
+     * <p>
+     * No script runs past the deadline. Best-effort scripts (see {@link ScriptHeader}) are only started while more
+     * than the best-effort reserve is left, and are cut short so that the reserve stays available to the critical
+     * scripts. Their failures don't fail the run.
+     *
+     * @return true if all critical scripts finished with exit code 0, false otherwise.
+     */
+    public boolean runScripts(Runnable heartbeat, String runKey, Deadline deadline) {
+        return runScripts(heartbeat, runKey, deadline, header -> true);
+    }
+
+    /**
+     * Like {@link #runScripts(Runnable, String, Deadline)}, but only runs the scripts whose header matches, eg. the
+     * spot-safe ones. Dependencies on the other scripts are ignored.
+     */
+    public boolean runScripts(Runnable heartbeat, String runKey, Deadline deadline, Predicate<ScriptHeader> selection) {
+        List<ScriptCatalog.Entry> entries = scriptCatalog.getEntries().stream()
+                .filter(entry -> selection.test(entry.getHeader()))
+                .collect(Collectors.toList());
+        List<String> scripts = entries.stream().map(ScriptCatalog.Entry::getScript).collect(Collectors.toList());
+        Map<String, ScriptHeader> headers = entries.stream()
+                .collect(Collectors.toMap(ScriptCatalog.Entry::getScript, ScriptCatalog.Entry::getHeader));
+        Set<String> alreadySucceeded = runKey == null
+                ? Collections.emptySet()
+                : scriptJournal.getSucceeded(runKey).stream().filter(scripts::contains).collect(Collectors.toSet());
+        if (!alreadySucceeded.isEmpty()) {
+            LOG.info("Resuming run {}. Skipping {} scripts which already succeeded: {}",
+                    runKey, alreadySucceeded.size(), alreadySucceeded);
+        }
+        if (deadline.isSet()) {
+            LOG.info("Running scripts with a deadline of {} ({} s left).", deadline, deadline.getRemainingMs() / 1000);
+        }
+
+        Run run = new Run(heartbeat, runKey, deadline, headers, alreadySucceeded);
+        if (scriptsParallelism > 1) {
+            return runScriptsInParallel(scripts, run);
+        }
+
+        return runScriptsSequentially(scripts, run);
+    }
+
+    private boolean runScriptsSequentially(List<String> scripts, Run run) {
+        return scripts.stream()
+                .allMatch(script -> run.alreadySucceeded.contains(script) || getRunScriptResult(script, run));
+    }
+
+    /**
+     * Runs the scripts as a DAG on a pool of {@code scriptsParallelism} workers. A script starts as soon as all the
+     * scripts it depends on (see {@link ScriptHeader}) succeeded; among the ready ones, the priority order decides.
+     * After the first failure no new script is started, mirroring the sequential mode.
+     */
+    private boolean runScriptsInParallel(List<String> scripts, Run run) {
+        ScriptGraph graph = ScriptGraph.build(scripts, script -> run.headers.get(script).getDependencies());
+        if (graph.hasUnresolvedDependencies()) {
+            LOG.error("Script dependencies can't be resolved. Falling back to running scripts sequentially.");
+            return runScriptsSequentially(scripts, run);
+        }
+        if (graph.hasCycle()) {
+            LOG.error("Script dependencies contain a cycle. Falling back to running scripts sequentially.");
+            return runScriptsSequentially(scripts, run);
+        }
+
+        LOG.info("Running {} scripts with up to {} in parallel.", scripts.size(), scriptsParallelism);
+        ExecutorService executor = Executors.newFixedThreadPool(scriptsParallelism,
+                new ThreadFactoryBuilder().setNameFormat("script-runner-%d").setDaemon(true).build());
+        CompletionService<Boolean> completionService = new ExecutorCompletionService<>(executor);
+        Map<Future<Boolean>, String> running = new HashMap<>();
+        Set<String> started = new HashSet<>(run.alreadySucceeded);
+        Set<String> succeeded = new HashSet<>(run.alreadySucceeded);
+        boolean allSucceeded = true;
+
+        try {
+            while (true) {
+                if (allSucceeded) {
+                    for (String script : graph.getReady(succeeded, started)) {
+                        if (running.size() >= scriptsParallelism) {
+                            break;
+                        }
+                        started.add(script);
+                        running.put(completionService.submit(() -> getRunScriptResult(script, run)), script);
+                    }
+                }
+
+                if (running.isEmpty()) {
+                    break;
+                }
+
+                Future<Boolean> finished = completionService.take();
+                String script = running.remove(finished);
+                if (finished.get()) {
+                    succeeded.add(script);
+                } else {
+                    allSucceeded = false;
+                }
+            }
+        } catch (InterruptedException e) {
+            LOG.error("Interrupted while running scripts.", e);
+            Thread.currentThread().interrupt();
+            allSucceeded = false;
+        } catch (ExecutionException e) {
+            LOG.error("Unable to run script", e);
+            allSucceeded = false;
+        } finally {
+            executor.shutdownNow();
+        }
+
+        if (allSucceeded && succeeded.size() < scripts.size()) {
+            LOG.error("Only {} out of {} scripts could be run.", succeeded.size(), scripts.size());
+            return false;
+        }
+        return allSucceeded;
+    }
+
+    /**
+     * @return true if the script succeeded, or if it is a best-effort script
+     */
+    private boolean getRunScriptResult(String script, Run run) {
+        if (Thread.currentThread().isInterrupted()) {
+            LOG.error("Unable to run script {}: the run was interrupted.", script);
+            return false;
+        }
+        boolean bestEffort = run.headers.get(script).isBestEffort();
+        long remainingMs = run.deadline.getRemainingMs();
+        long timeoutMs = Math.min(scriptTimeoutMs, bestEffort ? remainingMs - bestEffortReserveMs : remainingMs);
+        if (timeoutMs <= 0) {
+            if (bestEffort) {
+                LOG.warn("Skipping best-effort script {}: only {} s left until the deadline.", script, remainingMs / 1000);
+                return true;
+            }
+            LOG.error("Unable to run script {}: the deadline {} has passed.", script, run.deadline);
+            return false;
+        }
+
+        boolean successful = runScript(script, run, timeoutMs);
+        if (!successful && bestEffort) {
+            LOG.warn("Best-effort script {} failed. Continuing.", script);
+            return true;
+        }
+        return successful;
+    }
+
+    private boolean runScript(String script, Run run, long timeoutMs) {
         try {
+            Optional<String> problem = scriptCatalog.getProblem(script);
+            if (problem.isPresent()) {
+                LOG.error("Unable to run script {}: {}", script, problem.get());
+                return false;
+            }
+
             LOG.info("Running script: {}", script);
-            int exitCode = commandRunner.execute(script, heartbeat, scriptTimeoutMs);
+            if (run.runKey != null) {
+                scriptJournal.started(run.runKey, script);
+            }
+            ScriptMetrics metrics = commandRunner.run(script, run.heartbeat, timeoutMs, run.environment);
+            scriptMetricsListener.onScriptFinished(metrics);
+            if (metrics.isTimedOut()) {
+                LOG.error("Unable to run script: killed process which exceeded {} ms.", timeoutMs);
+                return false;
+            }
+            int exitCode = metrics.getExitCode();
+            if (run.runKey != null) {
+                scriptJournal.finished(run.runKey, script, exitCode);
+            }
             LOG.info("Command finished with exit code {} - {}.", exitCode, exitCode == 0 ? "SUCCESS" : "ERROR");
             return exitCode == 0;
+        } catch (InterruptedException e) {
+            // the process tree is already gone; the caller stops the run
+            LOG.error("Interrupted while running script {}.", script);
+            Thread.currentThread().interrupt();
+            return false;
         } catch (Exception e) {
             e.printStackTrace();
             LOG.error("Unable to run script", e.getMessage());
@@ -79,32 +270,24 @@ public class ScriptRunner {
         return scriptsPath;
     }
 
-    private static Collection<String> getAllScripts(String scriptsPath, List<String> scriptsPriority) {
-        try {
-            return Files.walk(Paths.get(scriptsPath))
-                    .map(Path::toFile)
-                    .filter(file -> file.getName().endsWith(".sh"))
-                    .map(File::getAbsolutePath)
-                    .sorted((script1, script2) -> compareScriptsPriority(script1, script2, scriptsPriority))
-                    .collect(Collectors.toList());
-        } catch (IOException e) {
-            LOG.warn("No execution scripts found in {}", scriptsPath);
-            return Collections.emptySet();
-        }
-    }
+    private static class Run {
+        private final Runnable heartbeat;
+        private final String runKey;
+        private final Deadline deadline;
+        private final Map<String, ScriptHeader> headers;
+        private final Set<String> alreadySucceeded;
+        private final Map<String, String> environment;
 
-    private static int compareScriptsPriority(String script1, String script2, List<String> scriptsPriority) {
-        for (String scriptPriority : scriptsPriority) {
-            if (script1.endsWith(scriptPriority.trim())) {
-                // script1 should be run before script2
-                return -1;
-            }
-
-            if (script2.endsWith(scriptPriority.trim())) {
-                // script1 should be run after script2
-                return 1;
-            }
+        private Run(Runnable heartbeat, String runKey, Deadline deadline,
+                    Map<String, ScriptHeader> headers, Set<String> alreadySucceeded) {
+            this.heartbeat = heartbeat;
+            this.runKey = runKey;
+            this.deadline = deadline;
+            this.headers = headers;
+            this.alreadySucceeded = alreadySucceeded;
+            this.environment = deadline.isSet()
+                    ? ImmutableMap.of(DEADLINE_VARIABLE, Long.toString(deadline.getEpochMs()))
+                    : ImmutableMap.of();
         }
-        return 0;
     }
 }
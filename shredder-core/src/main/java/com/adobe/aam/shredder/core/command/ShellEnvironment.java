@@ -0,0 +1,197 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+package com.adobe.aam.shredder.core.command;
+
+import com.google.common.collect.ImmutableSet;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The login environment the scripts run in. By default (source-profile), every script sources /etc/profile
+ * itself. In the cached-profile mode, /etc/profile is sourced only once, at start-up, and the resulting environment
+ * variables are handed to every script, which saves the profile.d start-up cost of each script. Note that only
+ * exported variables (and exported functions) survive, aliases and non exported shell state do not.
+ */
+@Singleton
+public class ShellEnvironment {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ShellEnvironment.class);
+    static final String SOURCE_PROFILE = "source-profile";
+    static final String CACHED_PROFILE = "cached-profile";
+    private static final String PROFILE_PATH = "/etc/profile";
+    private static final long CAPTURE_TIMEOUT_MS = 60_000;
+    private static final Set<String> SHELL_STATE_VARIABLES = ImmutableSet.of("_", "PWD", "OLDPWD", "SHLVL");
+
+    private final boolean cached;
+    private final String profilePath;
+    private final long captureTimeoutMs;
+    private final AtomicInteger scriptsServed = new AtomicInteger();
+    private FutureTask<Optional<Map<String, String>>> capture;
+    private volatile long profileTimeMs;
+
+    @Inject
+    public ShellEnvironment(@Named("scriptShellMode") String mode) {
+        this(mode, PROFILE_PATH, CAPTURE_TIMEOUT_MS);
+    }
+
+    ShellEnvironment(String mode, String profilePath, long captureTimeoutMs) {
+        if (!SOURCE_PROFILE.equals(mode) && !CACHED_PROFILE.equals(mode)) {
+            throw new IllegalArgumentException("Unknown script shell mode " + mode + ". Expected "
+                    + SOURCE_PROFILE + " or " + CACHED_PROFILE + ".");
+        }
+        this.cached = CACHED_PROFILE.equals(mode);
+        this.profilePath = profilePath;
+        this.captureTimeoutMs = captureTimeoutMs;
+    }
+
+    /**
+     * Starts capturing the login environment in the background, so that it is ready before the first script runs.
+     * Does nothing in the source-profile mode or if the capture was already started.
+     */
+    public synchronized void start(Map<String, String> baseEnvironment) {
+        if (!cached || capture != null) {
+            return;
+        }
+        Map<String, String> captureEnvironment = new LinkedHashMap<>(baseEnvironment);
+        capture = new FutureTask<>(() -> capture(captureEnvironment));
+        Thread thread = new Thread(capture, "shell-environment-capture");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @return the environment of the script and whether /etc/profile still has to be sourced by the script.
+     */
+    Prepared prepare(Map<String, String> baseEnvironment) throws InterruptedException {
+        start(baseEnvironment);
+        Optional<Map<String, String>> environment = getCapturedEnvironment();
+        if (!environment.isPresent()) {
+            return new Prepared(toArray(baseEnvironment), true);
+        }
+
+        int served = scriptsServed.incrementAndGet();
+        LOG.debug("Using the cached login environment, saved ~{} ms of shell start-up ({} ms over {} scripts).",
+                profileTimeMs, profileTimeMs * served, served);
+
+        // the variables of this script win over the captured ones
+        Map<String, String> scriptEnvironment = new LinkedHashMap<>(environment.get());
+        scriptEnvironment.putAll(baseEnvironment);
+        return new Prepared(toArray(scriptEnvironment), false);
+    }
+
+    private Optional<Map<String, String>> getCapturedEnvironment() throws InterruptedException {
+        FutureTask<Optional<Map<String, String>>> pending;
+        synchronized (this) {
+            pending = capture;
+        }
+        if (pending == null) {
+            return Optional.empty();
+        }
+        try {
+            // bounded, the capture gives up after captureTimeoutMs
+            return pending.get();
+        } catch (ExecutionException e) {
+            LOG.error("Unable to capture the login environment. Scripts will source /etc/profile themselves.",
+                    e.getCause());
+            return Optional.empty();
+        }
+    }
+
+    private Optional<Map<String, String>> capture(Map<String, String> baseEnvironment) throws InterruptedException {
+        long start = System.currentTimeMillis();
+        File output = null;
+        try {
+            // the output goes to a file, so that a hung profile can not block us before the bounded wait
+            output = File.createTempFile("shredder-login-environment", ".env");
+            ProcessBuilder builder = new ProcessBuilder("bash", "-c",
+                    "source " + profilePath + " > /dev/null 2>&1; env -0");
+            builder.environment().clear();
+            builder.environment().putAll(baseEnvironment);
+            builder.redirectErrorStream(true);
+            builder.redirectInput(ProcessBuilder.Redirect.from(new File("/dev/null")));
+            builder.redirectOutput(output);
+            Process process = builder.start();
+            if (!process.waitFor(captureTimeoutMs, TimeUnit.MILLISECONDS)) {
+                ProcessTree.terminate(process, 0);
+                LOG.error("The login environment was not captured within {} ms. "
+                        + "Scripts will source /etc/profile themselves.", captureTimeoutMs);
+                return Optional.empty();
+            }
+            if (process.exitValue() != 0) {
+                LOG.error("Unable to capture the login environment, exit code {}. "
+                        + "Scripts will source /etc/profile themselves.", process.exitValue());
+                return Optional.empty();
+            }
+
+            Map<String, String> variables = new LinkedHashMap<>();
+            String environment = FileUtils.readFileToString(output, StandardCharsets.UTF_8);
+            for (String variable : environment.split("\0")) {
+                int separator = variable.indexOf('=');
+                if (separator > 0 && !SHELL_STATE_VARIABLES.contains(variable.substring(0, separator))) {
+                    variables.put(variable.substring(0, separator), variable.substring(separator + 1));
+                }
+            }
+            profileTimeMs = System.currentTimeMillis() - start;
+            LOG.info("Captured the login environment ({} variables) in {} ms.", variables.size(), profileTimeMs);
+            return Optional.of(variables);
+        } catch (IOException e) {
+            LOG.error("Unable to capture the login environment. Scripts will source /etc/profile themselves. {}",
+                    e.getMessage());
+            return Optional.empty();
+        } finally {
+            if (output != null) {
+                FileUtils.deleteQuietly(output);
+            }
+        }
+    }
+
+    private static String[] toArray(Map<String, String> environment) {
+        return environment.entrySet().stream()
+                .map(entry -> entry.getKey() + "=" + entry.getValue())
+                .toArray(String[]::new);
+    }
+
+    static class Prepared {
+        private final String[] environment;
+        private final boolean sourceProfile;
+
+        private Prepared(String[] environment, boolean sourceProfile) {
+            this.environment = environment;
+            this.sourceProfile = sourceProfile;
+        }
+
+        String[] getEnvironment() {
+            return environment;
+        }
+
+        boolean isSourceProfile() {
+            return sourceProfile;
+        }
+    }
+}
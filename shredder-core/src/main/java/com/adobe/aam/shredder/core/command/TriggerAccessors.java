@@ -0,0 +1,89 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+package com.adobe.aam.shredder.core.command;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The getters of each trigger class, keyed by macro name (eg. TRIGGER_HOSTNAME for getHostname()).
+ * The bean introspection runs once per class.
+ */
+class TriggerAccessors {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TriggerAccessors.class);
+    static final String TRIGGER_PREFIX = "TRIGGER_";
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final ClassValue<Map<String, MethodHandle>> ACCESSORS = new ClassValue<Map<String, MethodHandle>>() {
+        @Override
+        protected Map<String, MethodHandle> computeValue(Class<?> type) {
+            return introspect(type);
+        }
+    };
+
+    private TriggerAccessors() {
+    }
+
+    /**
+     * @return the getters, as handles of type (Object)Object
+     */
+    static Map<String, MethodHandle> forClass(Class<?> triggerClass) {
+        return ACCESSORS.get(triggerClass);
+    }
+
+    private static Map<String, MethodHandle> introspect(Class<?> type) {
+        PropertyDescriptor[] descriptors;
+        try {
+            descriptors = Introspector.getBeanInfo(type, Object.class).getPropertyDescriptors();
+        } catch (IntrospectionException e) {
+            LOG.error("Unable to fetch getters for trigger class {} {}.", type, e);
+            return Collections.emptyMap();
+        }
+
+        Map<String, MethodHandle> accessors = new LinkedHashMap<>();
+        for (PropertyDescriptor descriptor : descriptors) {
+            String fieldName = descriptor.getName();
+            if (descriptor.getReadMethod() == null || fieldName == null || fieldName.isEmpty()) {
+                continue;
+            }
+            try {
+                accessors.putIfAbsent(TRIGGER_PREFIX + fieldName.toUpperCase(), unreflect(descriptor.getReadMethod()));
+            } catch (IllegalAccessException e) {
+                LOG.error("Unable to access field {} of trigger class {}. {}", fieldName, type, e);
+            }
+        }
+        return Collections.unmodifiableMap(accessors);
+    }
+
+    private static MethodHandle unreflect(Method getter) throws IllegalAccessException {
+        try {
+            return MethodHandles.publicLookup().unreflect(getter).asType(GETTER_TYPE);
+        } catch (IllegalAccessException e) {
+            // eg. a public getter declared in a package-private class
+            getter.setAccessible(true);
+            return MethodHandles.lookup().unreflect(getter).asType(GETTER_TYPE);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+package com.adobe.aam.shredder.core.trigger;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Processes triggers on a fixed pool of workers. Triggers with the same key (eg. the same hostname) are processed one
+ * at a time, in the order they were submitted; triggers with different keys are processed in parallel.
+ * <p>
+ * At most {@code capacity} triggers are accepted and not yet processed. Once that many are pending,
+ * {@link #submit(Object)} blocks, which stops the caller from reading more triggers.
+ */
+public class KeyedTriggerExecutor<T> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(KeyedTriggerExecutor.class);
+
+    private final Function<T, String> keyFunction;
+    private final Consumer<T> handler;
+    private final ExecutorService workers;
+    private final Semaphore capacity;
+    // triggers waiting for the one being processed with the same key; a key is present while it is being processed
+    private final Map<String, Queue<T>> pendingByKey = new HashMap<>();
+    private int queued;
+    private int inFlight;
+
+    public KeyedTriggerExecutor(int workers, int capacity, Function<T, String> keyFunction, Consumer<T> handler) {
+        this.keyFunction = keyFunction;
+        this.handler = handler;
+        this.capacity = new Semaphore(capacity);
+        this.workers = Executors.newFixedThreadPool(workers,
+                new ThreadFactoryBuilder().setNameFormat("trigger-worker-%d").setDaemon(true).build());
+    }
+
+    /**
+     * Blocks while the executor is at capacity.
+     */
+    public void submit(T trigger) throws InterruptedException {
+        if (!capacity.tryAcquire()) {
+            LOG.warn("Trigger backlog is full ({} in flight, {} queued). Waiting before accepting {}.",
+                    getInFlight(), getQueued(), trigger);
+            capacity.acquire();
+        }
+
+        String key = keyFunction.apply(trigger);
+        synchronized (this) {
+            queued++;
+            LOG.info("Accepted trigger {} ({} in flight, {} queued).", trigger, inFlight, queued);
+            Queue<T> pending = pendingByKey.get(key);
+            if (pending != null) {
+                pending.add(trigger);
+                return;
+            }
+            pendingByKey.put(key, new ArrayDeque<>());
+        }
+        workers.execute(() -> process(key, trigger));
+    }
+
+    private void process(String key, T first) {
+        T trigger = first;
+        while (trigger != null) {
+            synchronized (this) {
+                queued--;
+                inFlight++;
+            }
+            try {
+                handler.accept(trigger);
+            } catch (RuntimeException e) {
+                LOG.error("Unable to process trigger {}.", trigger, e);
+            } finally {
+                synchronized (this) {
+                    inFlight--;
+                }
+                capacity.release();
+            }
+
+            synchronized (this) {
+                trigger = pendingByKey.get(key).poll();
+                if (trigger == null) {
+                    pendingByKey.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of triggers being processed
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * @return the number of triggers accepted but not yet being processed
+     */
+    public synchronized int getQueued() {
+        return queued;
+    }
+
+    /**
+     * Stops accepting triggers and waits for the accepted ones to be processed.
+     *
+     * @return false if the timeout expired first
+     */
+    public boolean shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+        LOG.info("Waiting for the remaining triggers ({} in flight, {} queued).", getInFlight(), getQueued());
+        // the triggers queued behind a key are processed by the task already running for that key
+        workers.shutdown();
+        return workers.awaitTermination(timeout, unit);
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.adobe.aam.shredder.core.trigger;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A trigger together with the acknowledgement of its delivery. Until {@link #ack()} is called, the trigger may be
+ * delivered again, eg. if the process dies while handling it. Only the first call to {@link #ack()} or
+ * {@link #release()} has an effect.
+ */
+public class ReceivedTrigger<T extends TriggerMessage> {
+
+    private static final Runnable NOTHING = () -> { };
+
+    private final T trigger;
+    private final Runnable ack;
+    private final Runnable release;
+    private final AtomicBoolean settled = new AtomicBoolean();
+
+    public ReceivedTrigger(T trigger, Runnable ack, Runnable release) {
+        this.trigger = trigger;
+        this.ack = ack;
+        this.release = release;
+    }
+
+    /**
+     * @return a trigger whose delivery was already acknowledged when it was received
+     */
+    public static <T extends TriggerMessage> ReceivedTrigger<T> acknowledged(T trigger) {
+        return new ReceivedTrigger<>(trigger, NOTHING, NOTHING);
+    }
+
+    public T getTrigger() {
+        return trigger;
+    }
+
+    /**
+     * Marks the trigger as processed, so that it is not delivered again.
+     */
+    public void ack() {
+        if (settled.compareAndSet(false, true)) {
+            ack.run();
+        }
+    }
+
+    /**
+     * Gives up on the trigger, which is delivered again later.
+     */
+    public void release() {
+        if (settled.compareAndSet(false, true)) {
+            release.run();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return trigger.toString();
+    }
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+package com.adobe.aam.shredder.core.trigger;
+
+import java.util.Map;
+
+/**
+ * Told which trigger source won the race, when several sources deliver the same trigger, see
+ * {@link com.adobe.aam.shredder.core.aws.trigger.CompositeTriggerWatcher}.
+ */
+public interface TriggerRaceListener {
+
+    /**
+     * @param winner      the source which delivered the trigger first
+     * @param leadTimesMs for each other source which delivered the trigger within the race window, how long after
+     *                    the winner it did
+     */
+    void onRaceFinished(String winner, Map<String, Long> leadTimesMs);
+}
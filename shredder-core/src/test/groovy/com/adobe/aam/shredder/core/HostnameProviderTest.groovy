@@ -0,0 +1,64 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+package com.adobe.aam.shredder.core
+
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class HostnameProviderTest extends Specification {
+
+    def "first call resolves, later calls never wait for the refresh"() {
+        setup:
+        def release = new CountDownLatch(1)
+        def calls = 0
+        def provider = new HostnameProvider({
+            if (calls++ > 0) {
+                release.await()
+                return "second-hostname"
+            }
+            return "first-hostname"
+        }, 0)
+
+        expect: "the first call resolves the hostname"
+        provider.getHostname() == "first-hostname"
+
+        when: "the value is stale and the refresh is blocked"
+        Thread.sleep(5)
+        def start = System.nanoTime()
+        def cached = provider.getHostname()
+
+        then: "the cached value is served right away"
+        cached == "first-hostname"
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000
+
+        when: "the refresh completes"
+        release.countDown()
+        def deadline = System.currentTimeMillis() + 5000
+        while (provider.getHostname() != "second-hostname" && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10)
+        }
+
+        then:
+        provider.getHostname() == "second-hostname"
+    }
+
+    def "a failed first resolution falls back to no-hostname"() {
+        setup:
+        def provider = new HostnameProvider({ throw new UnknownHostException("broken dns") }, 60000)
+
+        expect:
+        provider.getHostname() == "no-hostname"
+    }
+}
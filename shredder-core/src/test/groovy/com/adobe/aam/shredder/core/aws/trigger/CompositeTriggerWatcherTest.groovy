@@ -0,0 +1,92 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+package com.adobe.aam.shredder.core.aws.trigger
+
+import com.adobe.aam.shredder.core.trigger.TriggerMessage
+import com.adobe.aam.shredder.core.trigger.TriggerRaceListener
+import com.fasterxml.jackson.databind.ObjectMapper
+import io.reactivex.Flowable
+import spock.lang.Specification
+
+import java.time.Duration
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class CompositeTriggerWatcherTest extends Specification {
+
+    static class LifecycleTrigger implements TriggerMessage {
+        String ec2InstanceId
+        String lifecycleTransition
+        String time
+    }
+
+    def mapper = new ObjectMapper()
+    def finished = new CountDownLatch(1)
+    def race = [:]
+    def listener = { String winner, Map<String, Long> leadTimesMs ->
+        race.winner = winner
+        race.leadTimesMs = leadTimesMs
+        finished.countDown()
+    } as TriggerRaceListener
+
+    def "emits the trigger of the fastest source once and reports its lead time"() {
+        setup:
+        def fast = Stub(TriggerWatcher) {
+            requestTriggers(_, _) >> Flowable.just(trigger("fast"))
+        }
+        def slow = Stub(TriggerWatcher) {
+            requestTriggers(_, _) >> Flowable.just(trigger("slow")).delay(200, TimeUnit.MILLISECONDS)
+        }
+        def watcher = new CompositeTriggerWatcher([fast: fast, slow: slow], mapper,
+                CompositeTriggerWatcher.DEFAULT_KEY_FIELDS, listener, Duration.ofSeconds(10))
+
+        when:
+        def triggers = watcher.requestTriggers("queue", LifecycleTrigger)
+                .take(1, TimeUnit.SECONDS)
+                .toList()
+                .blockingGet()
+
+        then:
+        triggers*.time == ["fast"]
+        finished.await(5, TimeUnit.SECONDS)
+        race.winner == "fast"
+        race.leadTimesMs.keySet() == ["slow"] as Set
+        race.leadTimesMs.slow >= 150
+    }
+
+    def "carries on with the other sources when one fails"() {
+        setup:
+        def failing = Stub(TriggerWatcher) {
+            requestTriggers(_, _) >> Flowable.error(new IllegalStateException("unreachable"))
+        }
+        def working = Stub(TriggerWatcher) {
+            requestTriggers(_, _) >> Flowable.just(trigger("working")).delay(50, TimeUnit.MILLISECONDS)
+        }
+        def watcher = new CompositeTriggerWatcher([failing: failing, working: working], mapper,
+                CompositeTriggerWatcher.DEFAULT_KEY_FIELDS, listener, Duration.ofMillis(100))
+
+        when:
+        def trigger = watcher.requestTriggers("queue", LifecycleTrigger).timeout(5, TimeUnit.SECONDS).blockingFirst()
+
+        then:
+        trigger.time == "working"
+        finished.await(5, TimeUnit.SECONDS)
+        race.winner == "working"
+        race.leadTimesMs.isEmpty()
+    }
+
+    private static LifecycleTrigger trigger(String source) {
+        new LifecycleTrigger(ec2InstanceId: "i-1", lifecycleTransition: "autoscaling:EC2_INSTANCE_TERMINATING",
+                time: source)
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+
+package com.adobe.aam.shredder.core.aws.trigger
+
+import com.adobe.aam.shredder.core.aws.servergroup.AutoScaleGroupHelper
+import com.adobe.aam.shredder.core.trigger.TriggerMessage
+import com.fasterxml.jackson.databind.MapperFeature
+import com.fasterxml.jackson.databind.ObjectMapper
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardCopyOption
+import java.nio.file.attribute.FileTime
+import java.time.Duration
+import java.time.Instant
+
+class FileTriggerWatcherTest extends Specification {
+
+    static class ManualTrigger implements TriggerMessage {
+        String ec2InstanceId
+        String reason
+        String time
+    }
+
+    def mapper = new ObjectMapper().configure(MapperFeature.ACCEPT_CASE_INSENSITIVE_PROPERTIES, true)
+    Path directory
+    Path file
+
+    def setup() {
+        directory = Files.createTempDirectory("shredder-trigger")
+        file = directory.resolve("trigger.json")
+    }
+
+    def cleanup() {
+        directory.toFile().deleteDir()
+    }
+
+    def "emits a trigger when the file is created and again when it is modified"() {
+        setup:
+        def subscriber = watcher().requestTriggers("ignored", ManualTrigger).test()
+
+        when:
+        write('{"Reason": "created"}', Instant.now())
+        subscriber.awaitCount(1)
+        write('{"Reason": "modified"}', Instant.now().plusSeconds(10))
+        subscriber.awaitCount(2)
+
+        then:
+        subscriber.values()*.reason == ["created", "modified"]
+        subscriber.values()*.ec2InstanceId == ["i-1", "i-1"]
+        subscriber.values().every { it.time != null }
+
+        cleanup:
+        subscriber.dispose()
+    }
+
+    def "ignores a file left over from before the watch started"() {
+        setup:
+        write('{"Reason": "stale"}', Instant.now().minusSeconds(3600))
+        def subscriber = watcher().requestTriggers("ignored", ManualTrigger).test()
+
+        when:
+        Thread.sleep(300)
+
+        then:
+        subscriber.valueCount() == 0
+
+        when:
+        write('{"Reason": "fresh"}', Instant.now())
+        subscriber.awaitCount(1)
+
+        then:
+        subscriber.values()*.reason == ["fresh"]
+
+        cleanup:
+        subscriber.dispose()
+    }
+
+    def "skips a file with invalid JSON and keeps watching"() {
+        setup:
+        def subscriber = watcher().requestTriggers("ignored", ManualTrigger).test()
+
+        when:
+        write('{"Reason": ', Instant.now())
+        Thread.sleep(300)
+
+        then:
+        subscriber.valueCount() == 0
+        subscriber.errorCount() == 0
+
+        when:
+        write('{"Reason": "fixed"}', Instant.now().plusSeconds(10))
+        subscriber.awaitCount(1)
+
+        then:
+        subscriber.values()*.reason == ["fixed"]
+
+        cleanup:
+        subscriber.dispose()
+    }
+
+    private FileTriggerWatcher watcher() {
+        new FileTriggerWatcher(file.toString(), [EC2InstanceId: "i-1"], Mock(AutoScaleGroupHelper), mapper,
+                Duration.ofMillis(20))
+    }
+
+    // written aside and moved in place, so the watcher never sees the content with another modification time
+    private void write(String content, Instant lastModified) {
+        def pending = directory.resolve("pending")
+        pending.text = content
+        Files.setLastModifiedTime(pending, FileTime.from(lastModified))
+        Files.move(pending, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+    }
+}
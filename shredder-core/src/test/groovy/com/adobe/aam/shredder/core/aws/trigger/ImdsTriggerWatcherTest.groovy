@@ -0,0 +1,152 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+
+package com.adobe.aam.shredder.core.aws.trigger
+
+import com.adobe.aam.shredder.core.aws.servergroup.AutoScaleGroupHelper
+import com.adobe.aam.shredder.core.trigger.TriggerMessage
+import com.amazonaws.services.autoscaling.model.AutoScalingInstanceDetails
+import com.fasterxml.jackson.databind.MapperFeature
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.sun.net.httpserver.HttpExchange
+import com.sun.net.httpserver.HttpServer
+import spock.lang.Specification
+
+import java.time.Duration
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class ImdsTriggerWatcherTest extends Specification {
+
+    static class LifecycleTrigger implements TriggerMessage {
+        String ec2InstanceId
+        String lifecycleTransition
+        String autoScalingGroupName
+        String lifecycleHookName
+        String time
+    }
+
+    HttpServer imds
+    AtomicInteger tokenRequests = new AtomicInteger()
+    AtomicInteger stateRequests = new AtomicInteger()
+
+    def setup() {
+        imds = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0)
+        imds.createContext(ImdsClient.TOKEN_PATH, { exchange ->
+            tokenRequests.incrementAndGet()
+            respond(exchange, exchange.requestMethod == "PUT" ? 200 : 405, "token")
+        })
+        imds.createContext(ImdsTriggerWatcher.TARGET_LIFECYCLE_STATE_PATH, { exchange ->
+            if (exchange.requestHeaders.getFirst("X-aws-ec2-metadata-token") != "token") {
+                respond(exchange, 401, "")
+            } else {
+                respond(exchange, 200, stateRequests.incrementAndGet() < 3 ? "InService" : "Terminated")
+            }
+        })
+        imds.start()
+    }
+
+    def cleanup() {
+        imds.stop(0)
+    }
+
+    def "emits a terminating trigger once the target lifecycle state changes to Terminated"() {
+        setup:
+        def asg = new AutoScalingInstanceDetails().withAutoScalingGroupName("asg")
+        def asgHelper = Mock(AutoScaleGroupHelper) {
+            getCurrentAutoScalingGroup("i-1") >> Optional.of(asg)
+            getLifecycleHookName("asg", ImdsTriggerWatcher.TERMINATING_TRANSITION) >> Optional.of("hook")
+        }
+        def mapper = new ObjectMapper().configure(MapperFeature.ACCEPT_CASE_INSENSITIVE_PROPERTIES, true)
+        def watcher = new ImdsTriggerWatcher("http://127.0.0.1:" + imds.address.port, "i-1", asgHelper, mapper,
+                Duration.ofMillis(10), Duration.ofHours(6))
+
+        when:
+        def trigger = watcher.requestTriggers("ignored", LifecycleTrigger).timeout(10, TimeUnit.SECONDS).blockingFirst()
+
+        then:
+        trigger.ec2InstanceId == "i-1"
+        trigger.lifecycleTransition == ImdsTriggerWatcher.TERMINATING_TRANSITION
+        trigger.autoScalingGroupName == "asg"
+        trigger.lifecycleHookName == "hook"
+        stateRequests.get() >= 3
+        tokenRequests.get() == 1
+    }
+
+    def "retries the lookup of the lifecycle hook after a transient failure"() {
+        setup:
+        def asg = new AutoScalingInstanceDetails().withAutoScalingGroupName("asg")
+        def lookups = new AtomicInteger()
+        def asgHelper = Mock(AutoScaleGroupHelper) {
+            getCurrentAutoScalingGroup("i-1") >> {
+                lookups.incrementAndGet() < 3 ? Optional.empty() : Optional.of(asg)
+            }
+            getLifecycleHookName("asg", ImdsTriggerWatcher.TERMINATING_TRANSITION) >> Optional.of("hook")
+        }
+        def mapper = new ObjectMapper().configure(MapperFeature.ACCEPT_CASE_INSENSITIVE_PROPERTIES, true)
+        def watcher = new ImdsTriggerWatcher("http://127.0.0.1:" + imds.address.port, "i-1", asgHelper, mapper,
+                Duration.ofMillis(10), Duration.ofHours(6))
+
+        when:
+        def trigger = watcher.requestTriggers("ignored", LifecycleTrigger).timeout(10, TimeUnit.SECONDS).blockingFirst()
+
+        then:
+        lookups.get() == 3
+        trigger.autoScalingGroupName == "asg"
+        trigger.lifecycleHookName == "hook"
+    }
+
+    def "emits the trigger without a lifecycle hook once the lookup retries are exhausted"() {
+        setup:
+        def lookups = new AtomicInteger()
+        def asgHelper = Mock(AutoScaleGroupHelper) {
+            getCurrentAutoScalingGroup("i-1") >> {
+                lookups.incrementAndGet()
+                Optional.empty()
+            }
+        }
+        def mapper = new ObjectMapper().configure(MapperFeature.ACCEPT_CASE_INSENSITIVE_PROPERTIES, true)
+        def watcher = new ImdsTriggerWatcher("http://127.0.0.1:" + imds.address.port, "i-1", asgHelper, mapper,
+                Duration.ofMillis(10), Duration.ofHours(6))
+
+        when:
+        def trigger = watcher.requestTriggers("ignored", LifecycleTrigger).timeout(10, TimeUnit.SECONDS).blockingFirst()
+
+        then:
+        lookups.get() == ImdsTriggerWatcher.LOOKUP_RETRIES + 1
+        trigger.ec2InstanceId == "i-1"
+        trigger.lifecycleTransition == ImdsTriggerWatcher.TERMINATING_TRANSITION
+        trigger.lifecycleHookName == null
+    }
+
+    def "only the Terminated states map to a transition"() {
+        expect:
+        ImdsTriggerWatcher.getTransition(state).isPresent() == terminating
+
+        where:
+        state               | terminating
+        "InService"         | false
+        "Warmed:Stopped"    | false
+        "Terminated"        | true
+        "Warmed:Terminated" | true
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) {
+        byte[] bytes = body.getBytes("UTF-8")
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length)
+        if (bytes.length > 0) {
+            exchange.responseBody.write(bytes)
+        }
+        exchange.close()
+    }
+}
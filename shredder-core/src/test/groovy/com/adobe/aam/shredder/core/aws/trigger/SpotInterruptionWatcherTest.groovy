@@ -0,0 +1,117 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+
+package com.adobe.aam.shredder.core.aws.trigger
+
+import com.adobe.aam.shredder.core.trigger.TriggerMessage
+import com.fasterxml.jackson.databind.MapperFeature
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.sun.net.httpserver.HttpExchange
+import com.sun.net.httpserver.HttpServer
+import spock.lang.Specification
+
+import java.time.Duration
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class SpotInterruptionWatcherTest extends Specification {
+
+    static class SpotTrigger implements TriggerMessage {
+        String ec2InstanceId
+        String notice
+        String action
+        String time
+    }
+
+    def mapper = new ObjectMapper().configure(MapperFeature.ACCEPT_CASE_INSENSITIVE_PROPERTIES, true)
+    HttpServer imds
+    AtomicInteger rebalanceRequests = new AtomicInteger()
+    AtomicInteger instanceActionRequests = new AtomicInteger()
+
+    def setup() {
+        imds = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0)
+        imds.createContext(ImdsClient.TOKEN_PATH, { exchange -> respond(exchange, 200, "token") })
+        // the rebalance recommendation comes first, then the interruption; both keep being served once issued
+        imds.createContext(SpotInterruptionWatcher.REBALANCE_PATH, { exchange ->
+            if (rebalanceRequests.incrementAndGet() < 3) {
+                respond(exchange, 404, "")
+            } else {
+                respond(exchange, 200, '{"noticeTime": "2020-10-27T08:22:00Z"}')
+            }
+        })
+        imds.createContext(SpotInterruptionWatcher.INSTANCE_ACTION_PATH, { exchange ->
+            if (instanceActionRequests.incrementAndGet() < 5) {
+                respond(exchange, 404, "")
+            } else {
+                respond(exchange, 200, '{"action": "terminate", "time": "2020-10-27T08:24:00Z"}')
+            }
+        })
+        imds.start()
+    }
+
+    def cleanup() {
+        imds.stop(0)
+    }
+
+    def "polls the metadata and emits each kind of notice once"() {
+        setup:
+        def watcher = new SpotInterruptionWatcher("http://127.0.0.1:" + imds.address.port, "i-1", mapper,
+                Duration.ofMillis(10), Duration.ofHours(6))
+
+        when:
+        def subscriber = watcher.requestTriggers("ignored", SpotTrigger).test()
+        subscriber.awaitCount(2)
+        def polls = instanceActionRequests.get()
+        while (instanceActionRequests.get() < polls + 5) {
+            Thread.sleep(10)
+        }
+        subscriber.dispose()
+
+        then:
+        subscriber.values()*.notice == [SpotInterruptionWatcher.REBALANCE_RECOMMENDATION,
+                                        SpotInterruptionWatcher.INTERRUPTION]
+        subscriber.values()*.ec2InstanceId == ["i-1", "i-1"]
+        subscriber.values()*.action == [null, "terminate"]
+        subscriber.values()*.time == ["2020-10-27T08:22:00Z", "2020-10-27T08:24:00Z"]
+        rebalanceRequests.get() >= 3
+    }
+
+    def "skips a notice it can't parse and keeps polling"() {
+        setup:
+        imds.removeContext(SpotInterruptionWatcher.INSTANCE_ACTION_PATH)
+        imds.createContext(SpotInterruptionWatcher.INSTANCE_ACTION_PATH, { exchange ->
+            respond(exchange, 200, instanceActionRequests.incrementAndGet() < 3 ? "{not json" : '{"action": "stop"}')
+        })
+        def watcher = new SpotInterruptionWatcher("http://127.0.0.1:" + imds.address.port, "i-1", mapper,
+                Duration.ofMillis(10), Duration.ofHours(6))
+
+        when:
+        def notice = watcher.requestTriggers("ignored", SpotTrigger)
+                .filter { it.notice == SpotInterruptionWatcher.INTERRUPTION }
+                .timeout(10, TimeUnit.SECONDS)
+                .blockingFirst()
+
+        then:
+        notice.action == "stop"
+        instanceActionRequests.get() >= 3
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) {
+        byte[] bytes = body.getBytes("UTF-8")
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length)
+        if (bytes.length > 0) {
+            exchange.responseBody.write(bytes)
+        }
+        exchange.close()
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+package com.adobe.aam.shredder.core.aws.trigger
+
+import com.amazonaws.services.sqs.AmazonSQS
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequest
+import com.amazonaws.services.sqs.model.DeleteMessageBatchResult
+import spock.lang.Specification
+
+class SqsDeleteBufferTest extends Specification {
+
+    def "messages are deleted in batches of 10 and the rest is flushed on close"() {
+        setup:
+        def sqs = Mock(AmazonSQS)
+        def batches = [].asSynchronized()
+        sqs.deleteMessageBatch(_ as DeleteMessageBatchRequest) >> { DeleteMessageBatchRequest request ->
+            batches << request.getEntries()*.getReceiptHandle()
+            new DeleteMessageBatchResult()
+        }
+        def buffer = new SqsDeleteBuffer(sqs, "queue")
+
+        when:
+        (0..<25).each { buffer.add("handle-" + it) }
+        buffer.close()
+
+        then:
+        batches*.size() == [10, 10, 5]
+        batches.flatten() as Set == (0..<25).collect { "handle-" + it } as Set
+    }
+
+    def "failed entries are retried unless the request itself is wrong"() {
+        setup:
+        def sqs = Mock(AmazonSQS)
+        def batches = []
+        sqs.deleteMessageBatch(_ as DeleteMessageBatchRequest) >> { DeleteMessageBatchRequest request ->
+            batches << request.getEntries()*.getReceiptHandle()
+            new DeleteMessageBatchResult().withFailed(request.getEntries()
+                    .findAll { it.getReceiptHandle() != "ok" }
+                    .collect { new BatchResultErrorEntry().withId(it.getId()).withSenderFault(it.getReceiptHandle() == "invalid") })
+        }
+        def buffer = new SqsDeleteBuffer(sqs, "queue")
+
+        when:
+        ["ok", "throttled", "invalid"].each { buffer.add(it) }
+        buffer.close()
+
+        then:
+        batches == [["ok", "throttled", "invalid"], ["throttled"], ["throttled"]]
+    }
+}
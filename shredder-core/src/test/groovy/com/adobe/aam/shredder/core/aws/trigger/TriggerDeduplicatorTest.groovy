@@ -0,0 +1,104 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+package com.adobe.aam.shredder.core.aws.trigger
+
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.time.Duration
+
+class TriggerDeduplicatorTest extends Specification {
+
+    def "a trigger is a duplicate if any of its ids was seen"() {
+        setup:
+        def deduplicator = new TriggerDeduplicator(100, Duration.ofHours(1), null)
+
+        expect:
+        !deduplicator.isDuplicate(["MessageId:1", "LifecycleActionToken:a"])
+        deduplicator.isDuplicate(["MessageId:1"])
+        deduplicator.isDuplicate(["MessageId:2", "LifecycleActionToken:a"])
+        !deduplicator.isDuplicate(["MessageId:3", "LifecycleActionToken:b"])
+        deduplicator.getHits() == 2
+        deduplicator.getMisses() == 2
+    }
+
+    def "ids checked with wasSeen are only recorded once marked as seen"() {
+        setup:
+        def deduplicator = new TriggerDeduplicator(100, Duration.ofHours(1), null)
+
+        expect:
+        !deduplicator.wasSeen(["MessageId:1"])
+        !deduplicator.wasSeen(["MessageId:1"])
+
+        when:
+        deduplicator.markSeen(["MessageId:1"])
+
+        then:
+        deduplicator.wasSeen(["MessageId:1"])
+        deduplicator.isDuplicate(["MessageId:1"])
+    }
+
+    def "only the most recent ids are kept"() {
+        setup:
+        def deduplicator = new TriggerDeduplicator(2, Duration.ofHours(1), null)
+
+        when:
+        deduplicator.isDuplicate(["1"])
+        deduplicator.isDuplicate(["2"])
+        deduplicator.isDuplicate(["3"])
+
+        then:
+        !deduplicator.isDuplicate(["1"])
+        deduplicator.isDuplicate(["3"])
+    }
+
+    def "ids expire after the ttl"() {
+        setup:
+        def deduplicator = new TriggerDeduplicator(100, Duration.ofMillis(1), null)
+
+        when:
+        deduplicator.isDuplicate(["1"])
+        Thread.sleep(10)
+
+        then:
+        !deduplicator.isDuplicate(["1"])
+    }
+
+    def "ids survive a restart when persisted"() {
+        setup:
+        def path = Files.createTempDirectory("dedup").resolve("trigger-dedup.log").toString()
+
+        when:
+        def deduplicator = new TriggerDeduplicator(2, Duration.ofHours(1), path)
+        (1..10).each { deduplicator.isDuplicate([it.toString()]) }
+        def restarted = new TriggerDeduplicator(2, Duration.ofHours(1), path)
+
+        then:
+        restarted.isDuplicate(["10"])
+        restarted.isDuplicate(["9"])
+        !restarted.isDuplicate(["1"])
+        Files.readAllLines(new File(path).toPath()).size() <= 4
+    }
+
+    def "the directory of the persisted ids is created"() {
+        setup:
+        def path = Files.createTempDirectory("dedup").resolve("missing/trigger-dedup.log")
+        def deduplicator = new TriggerDeduplicator(100, Duration.ofHours(1), path.toString())
+
+        when:
+        deduplicator.isDuplicate(["MessageId:1"])
+
+        then:
+        Files.readAllLines(path).size() == 1
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+
+package com.adobe.aam.shredder.core.aws.trigger
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import groovy.json.JsonOutput
+import spock.lang.Specification
+
+class TriggerParserTest extends Specification {
+
+    static final String LIFECYCLE_MESSAGE = JsonOutput.toJson([
+            LifecycleHookName    : "hook",
+            LifecycleTransition  : "autoscaling:EC2_INSTANCE_TERMINATING",
+            EC2InstanceId        : "i-1",
+            LifecycleActionToken : "token",
+            NotificationMetadata : [nested: [1, 2]]])
+    static final String SNS_ENVELOPE = JsonOutput.toJson([
+            Type     : "Notification",
+            MessageId: "sns-id",
+            TopicArn : "arn:aws:sns:us-east-1:1:topic",
+            Message  : LIFECYCLE_MESSAGE])
+
+    def "reads the ids of #description"() {
+        setup:
+        def parser = new TriggerParser(new ObjectMapper(), [:])
+
+        when:
+        def parsed = parser.parse(body, "sqs-id")
+
+        then:
+        parsed.isMatching()
+        parsed.getTriggerIds() == ["MessageId:" + messageId, "LifecycleActionToken:token"]
+
+        where:
+        description          | body              | messageId
+        "an SNS envelope"    | SNS_ENVELOPE      | "sns-id"
+        "a raw notification" | LIFECYCLE_MESSAGE | "sqs-id"
+    }
+
+    def "a message for another instance does not match the filter"() {
+        setup:
+        def parser = new TriggerParser(new ObjectMapper(), [EC2InstanceId: instanceId])
+
+        expect:
+        parser.parse(SNS_ENVELOPE, "sqs-id").isMatching() == matching
+
+        where:
+        instanceId | matching
+        "i-1"      | true
+        "i-2"      | false
+    }
+
+    def "malformed messages are rejected"() {
+        when:
+        new TriggerParser(new ObjectMapper(), [:]).parse("not json", "sqs-id")
+
+        then:
+        thrown(IOException)
+    }
+}
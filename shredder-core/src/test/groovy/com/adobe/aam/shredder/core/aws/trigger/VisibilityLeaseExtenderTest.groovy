@@ -0,0 +1,104 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+package com.adobe.aam.shredder.core.aws.trigger
+
+import com.amazonaws.services.sqs.AmazonSQS
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequest
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchResult
+import spock.lang.Specification
+
+class VisibilityLeaseExtenderTest extends Specification {
+
+    def "the visibility is extended every half timeout, in batches of 10"() {
+        setup:
+        def sqs = Mock(AmazonSQS)
+        def calls = [].asSynchronized()
+        sqs.changeMessageVisibilityBatch(_ as ChangeMessageVisibilityBatchRequest) >> {
+            ChangeMessageVisibilityBatchRequest request ->
+                calls << [time: System.currentTimeMillis(), request: request]
+                new ChangeMessageVisibilityBatchResult()
+        }
+        def start = System.currentTimeMillis()
+        def extender = new VisibilityLeaseExtender(sqs, "queue", 2)
+
+        when:
+        (0..<25).each { extender.start("handle-" + it) }
+        awaitCalls(calls, 3)
+        extender.close()
+
+        then: "the first extension comes after half the 2 s timeout"
+        calls[0].time - start >= 900
+        calls[0].time - start < 2000
+        calls.take(3).collect { it.request.entries.size() } == [10, 10, 5]
+        calls.take(3).collect { it.request.entries*.receiptHandle }.flatten() as Set ==
+                (0..<25).collect { "handle-" + it } as Set
+        calls.every { it.request.queueUrl == "queue" }
+        calls.every { it.request.entries.every { it.visibilityTimeout == 2 } }
+    }
+
+    def "the lease of a message is dropped after a sender fault, and kept after a server fault"() {
+        setup:
+        def sqs = Mock(AmazonSQS)
+        def batches = [].asSynchronized()
+        sqs.changeMessageVisibilityBatch(_ as ChangeMessageVisibilityBatchRequest) >> {
+            ChangeMessageVisibilityBatchRequest request ->
+                batches << (request.entries*.receiptHandle as Set)
+                new ChangeMessageVisibilityBatchResult().withFailed(request.entries
+                        .findAll { it.receiptHandle != "ok" }
+                        .collect {
+                            new BatchResultErrorEntry().withId(it.id).withSenderFault(it.receiptHandle == "deleted")
+                        })
+        }
+        def extender = new VisibilityLeaseExtender(sqs, "queue", 2)
+
+        when:
+        ["ok", "throttled", "deleted"].each { extender.start(it) }
+        awaitCalls(batches, 2)
+        extender.close()
+
+        then:
+        batches[0] == ["ok", "throttled", "deleted"] as Set
+        batches[1] == ["ok", "throttled"] as Set
+    }
+
+    def "a stopped message is no longer extended"() {
+        setup:
+        def sqs = Mock(AmazonSQS)
+        def batches = [].asSynchronized()
+        sqs.changeMessageVisibilityBatch(_ as ChangeMessageVisibilityBatchRequest) >> {
+            ChangeMessageVisibilityBatchRequest request ->
+                batches << (request.entries*.receiptHandle as Set)
+                new ChangeMessageVisibilityBatchResult()
+        }
+        def extender = new VisibilityLeaseExtender(sqs, "queue", 2)
+
+        when:
+        extender.start("done")
+        extender.start("running")
+        extender.stop("done")
+        awaitCalls(batches, 1)
+        extender.close()
+
+        then:
+        batches[0] == ["running"] as Set
+        extender.getLeased() == 0
+    }
+
+    private static void awaitCalls(List calls, int count) {
+        def deadline = System.currentTimeMillis() + 10_000
+        while (calls.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20)
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+package com.adobe.aam.shredder.core.command
+
+import spock.lang.Specification
+
+class BoundedOutputBufferTest extends Specification {
+
+    def "test buffer keeps all lines while under capacity"() {
+        setup:
+        def buffer = new BoundedOutputBuffer(100)
+
+        when:
+        buffer.append("first")
+        buffer.append("second")
+
+        then:
+        buffer.toString() == "first\nsecond"
+    }
+
+    def "test buffer keeps only the last lines once over capacity"() {
+        setup:
+        def buffer = new BoundedOutputBuffer(10)
+
+        when:
+        buffer.append("12345")
+        buffer.append("67890")
+        buffer.append("abcde")
+
+        then:
+        buffer.toString() == "[... 5 earlier characters dropped ...]\n67890\nabcde"
+    }
+
+    def "test a single line larger than the capacity is truncated to its tail"() {
+        setup:
+        def buffer = new BoundedOutputBuffer(4)
+
+        when:
+        buffer.append("0123456789")
+
+        then:
+        buffer.toString() == "[... 6 earlier characters dropped ...]\n6789"
+    }
+
+    def "test empty buffer"() {
+        expect:
+        new BoundedOutputBuffer(10).isEmpty()
+        new BoundedOutputBuffer(10).toString() == ""
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+package com.adobe.aam.shredder.core.command
+
+import spock.lang.Specification
+
+import java.nio.file.Files
+
+class FileScriptJournalTest extends Specification {
+
+    def file = Files.createTempFile("journal", ".log").toFile()
+
+    def cleanup() {
+        file.delete()
+    }
+
+    def "test only scripts which finished with exit code 0 are reported as succeeded"() {
+        setup:
+        def journal = new FileScriptJournal(file.absolutePath)
+
+        when:
+        journal.started("token", "/opt/s/a.sh")
+        journal.finished("token", "/opt/s/a.sh", 0)
+        journal.started("token", "/opt/s/b.sh")
+        journal.finished("token", "/opt/s/b.sh", 1)
+        journal.started("token", "/opt/s/c.sh")
+
+        then:
+        new FileScriptJournal(file.absolutePath).getSucceeded("token") == ["/opt/s/a.sh"] as Set
+        journal.getSucceeded("other-token").isEmpty()
+    }
+
+    def "test the events of expired runs and truncated lines are dropped"() {
+        setup:
+        def now = System.currentTimeMillis()
+        file.text = "old\t1000\tFINISHED\t/opt/s/a.sh\t0\n" +
+                "token\t${now}\tFINISHED\t/opt/s/a.sh\t0\n" +
+                "token\t${now}\tFINI"
+        def journal = new FileScriptJournal(file.absolutePath)
+
+        when:
+        journal.started("token", "/opt/s/b.sh")
+
+        then:
+        file.readLines().collect { it.split("\t").toList() }.collect { [it[0]] + it.drop(2) } == [
+                ["token", "FINISHED", "/opt/s/a.sh", "0"],
+                ["token", "STARTED", "/opt/s/b.sh"]]
+    }
+
+    def "test the runs in progress are kept when another run starts"() {
+        setup:
+        def journal = new FileScriptJournal(file.absolutePath)
+
+        when:
+        journal.started("lifecycle", "/opt/s/a.sh")
+        journal.finished("lifecycle", "/opt/s/a.sh", 0)
+        journal.started("spot", "/opt/s/b.sh")
+        journal.finished("spot", "/opt/s/b.sh", 0)
+        journal.started("lifecycle", "/opt/s/c.sh")
+        journal.finished("lifecycle", "/opt/s/c.sh", 0)
+
+        then:
+        def restarted = new FileScriptJournal(file.absolutePath)
+        restarted.getSucceeded("lifecycle") == ["/opt/s/a.sh", "/opt/s/c.sh"] as Set
+        restarted.getSucceeded("spot") == ["/opt/s/b.sh"] as Set
+    }
+}
@@ -76,6 +76,16 @@ class MacroOutputBuilderTest extends Specification {
         "ls REGION_MACRO TRIGGER_FIELD2_MACRO"                  | "us-east-1" | genTrigger("value1", "value2") | "ls us-east-1 value2"
     }
 
+    def "test compiled template rendered for several triggers"() {
+        setup:
+        def template = MacroTemplate.compile("cp TRIGGER_FIELD2_MACRO MY_HOSTNAME_MACRO REGION_MACRO_MACRO TRIGGER_NONE_MACRO")
+
+        expect:
+        template.render(genTrigger("a", "b"), "somehost", "us-east-1") == "cp b MY_somehost us-east-1_MACRO TRIGGER_NONE_MACRO"
+        template.render(genTrigger("a", "c"), "somehost", "us-east-1") == "cp c MY_somehost us-east-1_MACRO TRIGGER_NONE_MACRO"
+        template.render(null, null, "us-east-1") == "cp TRIGGER_FIELD2_MACRO MY_HOSTNAME_MACRO us-east-1_MACRO TRIGGER_NONE_MACRO"
+    }
+
     private TriggerMessage genTrigger(String field1, String field2) {
         return new TestTrigger(field1, field2)
     }
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+
+package com.adobe.aam.shredder.core.command
+
+import spock.lang.Specification
+
+import java.nio.charset.StandardCharsets
+
+class OutputPumpTest extends Specification {
+
+    def "test the lines of the stream end up in the buffer"() {
+        setup:
+        def stream = new ByteArrayInputStream("first\r\nsecond\n\nlast".getBytes(StandardCharsets.UTF_8))
+
+        when:
+        def buffer = OutputPump.start(stream, "stdout", 100).await(5000)
+
+        then:
+        buffer.toString() == "first\nsecond\n\nlast"
+    }
+
+    def "test only the tail of a line larger than the capacity is kept"() {
+        setup:
+        def huge = "x" * 100_000 + "tail"
+        def stream = new ByteArrayInputStream((huge + "\n").getBytes(StandardCharsets.UTF_8))
+
+        when:
+        def buffer = OutputPump.start(stream, "stdout", 1000).await(5000)
+
+        then:
+        buffer.toString() == "[... 99004 earlier characters dropped ...]\n" + "x" * 996 + "tail"
+    }
+}
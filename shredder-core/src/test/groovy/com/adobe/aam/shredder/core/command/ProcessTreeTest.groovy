@@ -0,0 +1,39 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+package com.adobe.aam.shredder.core.command
+
+import spock.lang.Requires
+import spock.lang.Specification
+
+@Requires({ new File("/proc/self/stat").exists() })
+class ProcessTreeTest extends Specification {
+
+    def "test terminate kills the children of the process"() {
+        setup:
+        def process = new ProcessBuilder("bash", "-c", "trap '' TERM; sleep 300 & sleep 300 & wait").start()
+        def pid = ProcessTree.pid(process).get()
+        def deadline = System.currentTimeMillis() + 5000
+        while (ProcessTree.descendants(pid).size() < 2 && System.currentTimeMillis() < deadline) {
+            sleep(50)
+        }
+        def children = ProcessTree.descendants(pid)
+
+        when:
+        ProcessTree.terminate(process, 500)
+
+        then:
+        children.size() == 2
+        !process.isAlive()
+        children.every { !ProcessTree.stat(it).isPresent() || ProcessTree.stat(it).get()[0] == "Z" }
+    }
+}
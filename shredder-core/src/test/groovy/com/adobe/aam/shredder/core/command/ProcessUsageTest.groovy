@@ -0,0 +1,87 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+package com.adobe.aam.shredder.core.command
+
+import spock.lang.Requires
+import spock.lang.Specification
+
+@Requires({ new File("/proc/self/stat").exists() })
+class ProcessUsageTest extends Specification {
+
+    def "test the usage of the command and its children is read from the wrapper"() {
+        setup:
+        def usage = ProcessUsage.create()
+        def process = new ProcessBuilder("bash", "-c",
+                '(x=0; while [ $x -lt 100000 ]; do x=$((x+1)); done); (exit 3); ' + usage.getWrapperTrailer()).start()
+
+        when:
+        usage.sample(process)
+        process.waitFor()
+        def metrics = usage.toMetrics("/opt/scripts/busy.sh", process.exitValue(), false, Optional.empty())
+
+        then:
+        process.exitValue() == 3
+        metrics.command == "/opt/scripts/busy.sh"
+        metrics.exitCode == 3
+        !metrics.timedOut
+        metrics.wallTimeMs >= 0
+        metrics.userCpuMs + metrics.systemCpuMs > 0
+        metrics.peakRssBytes > 0
+        metrics.readBytes >= 0
+        metrics.writtenBytes >= 0
+    }
+
+    def "test the values which could not be measured are -1"() {
+        setup:
+        def usage = ProcessUsage.create()
+
+        when: "the wrapper was killed before dumping its usage, and the memory was never sampled"
+        def metrics = usage.toMetrics("killed.sh", -1, true, Optional.empty())
+
+        then:
+        metrics.exitCode == -1
+        metrics.timedOut
+        metrics.userCpuMs == -1
+        metrics.systemCpuMs == -1
+        metrics.peakRssBytes == -1
+        metrics.readBytes == -1
+        metrics.writtenBytes == -1
+    }
+
+    def "test the cgroup counters win over the wrapper"() {
+        setup:
+        def usage = ProcessUsage.create()
+        def cgroupUsage = Stub(ScriptCgroups.Usage) {
+            getUserCpuMs() >> 1500
+            getSystemCpuMs() >> 250
+            getReadBytes() >> 4096
+            getWrittenBytes() >> 8192
+            getPeakMemoryBytes() >> peakMemoryBytes
+        }
+
+        when:
+        def metrics = usage.toMetrics("script.sh", 0, false, Optional.of(cgroupUsage))
+
+        then:
+        metrics.userCpuMs == 1500
+        metrics.systemCpuMs == 250
+        metrics.readBytes == 4096
+        metrics.writtenBytes == 8192
+        metrics.peakRssBytes == expectedPeakRssBytes
+
+        where:
+        peakMemoryBytes | expectedPeakRssBytes
+        1 << 20         | 1 << 20
+        -1              | -1
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+package com.adobe.aam.shredder.core.command
+
+import spock.lang.Specification
+
+import java.nio.file.Files
+
+class ScriptCatalogTest extends Specification {
+
+    def dir = Files.createTempDirectory("scripts").toFile()
+
+    def cleanup() {
+        dir.deleteDir()
+    }
+
+    def script(String name, String content, boolean executable = true) {
+        def file = new File(dir, name)
+        file.parentFile.mkdirs()
+        file.text = content
+        file.setExecutable(executable)
+        file
+    }
+
+    def "test scripts are sorted by priority"() {
+        setup:
+        script("a/first.sh", "#!/bin/bash\nexit 0\n")
+        script("b/second.sh", "#!/bin/bash\nexit 0\n")
+        def catalog = new ScriptCatalog(dir.absolutePath, ["b/second.sh", "a/first.sh"])
+
+        when:
+        catalog.rebuild()
+
+        then:
+        catalog.entries*.script == [new File(dir, "b/second.sh").absolutePath, new File(dir, "a/first.sh").absolutePath]
+    }
+
+    def "test invalid scripts are reported"() {
+        setup:
+        def valid = script("valid.sh", "#!/bin/bash\necho ok\n")
+        def notExecutable = script("not_executable.sh", "#!/bin/bash\necho ok\n", false)
+        def syntaxError = script("syntax_error.sh", "#!/bin/bash\nif then fi (\n")
+        def catalog = new ScriptCatalog(dir.absolutePath, [])
+
+        when:
+        catalog.rebuild()
+
+        then:
+        catalog.entries.size() == 3
+        !catalog.getProblem(valid.absolutePath).isPresent()
+        catalog.getProblem(notExecutable.absolutePath).get() == "the file is not executable"
+        catalog.getProblem(syntaxError.absolutePath).get().startsWith("syntax error")
+    }
+
+    def "test the spot-safe scripts are read from the header"() {
+        setup:
+        script("drain.sh", "#!/bin/bash\n# shredder-spot-safe: true\n# shredder-class: best-effort\nexit 0\n")
+        script("backup.sh", "#!/bin/bash\nexit 0\n")
+        def catalog = new ScriptCatalog(dir.absolutePath, [])
+
+        when:
+        catalog.rebuild()
+
+        then:
+        catalog.entries.findAll { it.header.spotSafe }*.script == [new File(dir, "drain.sh").absolutePath]
+        catalog.entries.find { it.header.spotSafe }.header.bestEffort
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+package com.adobe.aam.shredder.core.command
+
+import spock.lang.Specification
+
+class ScriptGraphTest extends Specification {
+
+    def scripts = ["/opt/s/a.sh", "/opt/s/b.sh", "/opt/s/c.sh"]
+
+    def "test ready scripts follow the priority order when no dependency is declared"() {
+        setup:
+        def graph = ScriptGraph.build(scripts, { [] })
+
+        expect:
+        graph.getReady([] as Set, [] as Set) == scripts
+        graph.getReady([] as Set, ["/opt/s/a.sh"] as Set) == ["/opt/s/b.sh", "/opt/s/c.sh"]
+        !graph.hasCycle()
+    }
+
+    def "test a script is ready only after its dependencies succeeded"() {
+        setup:
+        def dependencies = ["/opt/s/a.sh": ["c.sh"], "/opt/s/b.sh": [], "/opt/s/c.sh": []]
+        def graph = ScriptGraph.build(scripts, { dependencies[it] })
+
+        expect:
+        graph.getReady([] as Set, [] as Set) == ["/opt/s/b.sh", "/opt/s/c.sh"]
+        graph.getReady(["/opt/s/c.sh"] as Set, ["/opt/s/b.sh", "/opt/s/c.sh"] as Set) == ["/opt/s/a.sh"]
+    }
+
+    def "test unknown dependencies are reported"() {
+        setup:
+        def graph = ScriptGraph.build(scripts, { it == "/opt/s/a.sh" ? ["missing.sh"] : [] })
+
+        expect:
+        graph.hasUnresolvedDependencies()
+        graph.getDependencies("/opt/s/a.sh").isEmpty()
+    }
+
+    def "test dependencies match whole path components only"() {
+        setup:
+        def scripts = ["/opt/s/app/stop.sh", "/opt/s/myapp/stop.sh", "/opt/s/b.sh"]
+        def dependencies = ["/opt/s/app/stop.sh": [], "/opt/s/myapp/stop.sh": [], "/opt/s/b.sh": ["app/stop.sh"]]
+        def graph = ScriptGraph.build(scripts, { dependencies[it] })
+
+        expect:
+        !graph.hasUnresolvedDependencies()
+        graph.getDependencies("/opt/s/b.sh") == ["/opt/s/app/stop.sh"] as Set
+    }
+
+    def "test ambiguous dependencies are reported"() {
+        setup:
+        def scripts = ["/opt/s/app/stop.sh", "/opt/s/myapp/stop.sh", "/opt/s/b.sh"]
+        def dependencies = ["/opt/s/app/stop.sh": [], "/opt/s/myapp/stop.sh": [], "/opt/s/b.sh": ["stop.sh"]]
+        def graph = ScriptGraph.build(scripts, { dependencies[it] })
+
+        expect:
+        graph.hasUnresolvedDependencies()
+        graph.getDependencies("/opt/s/b.sh").isEmpty()
+    }
+
+    def "test dependency cycles are detected"() {
+        setup:
+        def dependencies = ["/opt/s/a.sh": ["b.sh"], "/opt/s/b.sh": ["c.sh"], "/opt/s/c.sh": ["a.sh"]]
+        def graph = ScriptGraph.build(scripts, { dependencies[it] })
+
+        expect:
+        graph.hasCycle()
+    }
+}
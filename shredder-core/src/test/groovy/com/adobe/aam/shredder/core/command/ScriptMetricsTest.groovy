@@ -0,0 +1,41 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+package com.adobe.aam.shredder.core.command
+
+import spock.lang.Specification
+
+class ScriptMetricsTest extends Specification {
+
+    def "test the metrics keep the measured values"() {
+        when:
+        def metrics = new ScriptMetrics("/opt/scripts/stop.sh", 1, false, 2000, 300, 40, 1 << 20, 4096, -1)
+
+        then:
+        metrics.command == "/opt/scripts/stop.sh"
+        metrics.exitCode == 1
+        !metrics.timedOut
+        metrics.wallTimeMs == 2000
+        metrics.userCpuMs == 300
+        metrics.systemCpuMs == 40
+        metrics.peakRssBytes == 1 << 20
+        metrics.readBytes == 4096
+        metrics.writtenBytes == -1
+    }
+
+    def "test the metrics are logged with all their values"() {
+        expect:
+        new ScriptMetrics("stop.sh", -1, true, 2000, 300, 40, 1024, 0, 0).toString() ==
+                "ScriptMetrics{command='stop.sh', exitCode=-1, timedOut=true, wallTimeMs=2000, userCpuMs=300, " +
+                "systemCpuMs=40, peakRssBytes=1024, readBytes=0, writtenBytes=0}"
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+package com.adobe.aam.shredder.core.command
+
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.time.Duration
+import java.time.Instant
+
+class ScriptRunnerTest extends Specification {
+
+    static final long SCRIPT_TIMEOUT_MS = 60_000
+    static final String BEST_EFFORT = "#!/bin/bash\n# shredder-class: best-effort\nexit 0\n"
+    static final String CRITICAL = "#!/bin/bash\nexit 0\n"
+
+    def dir = Files.createTempDirectory("scripts").toFile()
+    def scripts = []
+    // script name -> timeout given to the command runner
+    def timeouts = [:]
+    Map<String, String> environment
+    // script name -> exit code, -1 for a timeout
+    def exitCodes = [:]
+    def commandRunner = Stub(CommandRunner) {
+        run(_, _, _, _) >> { String script, Runnable heartbeat, long timeoutMs, Map<String, String> env ->
+            def name = new File(script).name
+            timeouts[name] = timeoutMs
+            environment = env
+            def exitCode = exitCodes.getOrDefault(name, 0)
+            new ScriptMetrics(script, exitCode, exitCode == -1, 0, -1, -1, -1, -1, -1)
+        }
+    }
+
+    def cleanup() {
+        dir.deleteDir()
+    }
+
+    def "test the timeout of a script is capped by the deadline"() {
+        setup:
+        script("stop.sh", CRITICAL)
+        def deadline = Deadline.at(Instant.now().plusSeconds(10))
+
+        when:
+        def successful = runner(Duration.ofSeconds(5)).runScripts({ }, null, deadline)
+
+        then:
+        successful
+        timeouts["stop.sh"] <= 10_000
+        timeouts["stop.sh"] > 9_000
+        environment[ScriptRunner.DEADLINE_VARIABLE] == Long.toString(deadline.epochMs)
+    }
+
+    def "test the script timeout applies without a deadline"() {
+        setup:
+        script("stop.sh", CRITICAL)
+
+        when:
+        def successful = runner(Duration.ofSeconds(5)).runScripts({ })
+
+        then:
+        successful
+        timeouts["stop.sh"] == SCRIPT_TIMEOUT_MS
+        environment.isEmpty()
+    }
+
+    def "test a best-effort script is skipped when less than the reserve is left"() {
+        setup:
+        script("a-flush.sh", BEST_EFFORT)
+        script("b-stop.sh", CRITICAL)
+
+        when:
+        def successful = runner(Duration.ofSeconds(30)).runScripts({ }, null,
+                Deadline.at(Instant.now().plusSeconds(10)))
+
+        then:
+        successful
+        timeouts.keySet() == ["b-stop.sh"] as Set
+    }
+
+    def "test a best-effort script is cut short to leave the reserve to the critical scripts"() {
+        setup:
+        script("a-flush.sh", BEST_EFFORT)
+        script("b-stop.sh", CRITICAL)
+
+        when:
+        def successful = runner(Duration.ofSeconds(5)).runScripts({ }, null,
+                Deadline.at(Instant.now().plusSeconds(20)))
+
+        then:
+        successful
+        timeouts["a-flush.sh"] <= 15_000
+        timeouts["a-flush.sh"] > 14_000
+        timeouts["b-stop.sh"] > 15_000
+    }
+
+    def "test the failure of a best-effort script doesn't fail the run"() {
+        setup:
+        script("a-flush.sh", BEST_EFFORT)
+        script("b-stop.sh", CRITICAL)
+        exitCodes["a-flush.sh"] = exitCode
+
+        when:
+        def successful = runner(Duration.ofSeconds(5)).runScripts({ })
+
+        then:
+        successful
+        timeouts.keySet() == ["a-flush.sh", "b-stop.sh"] as Set
+
+        where:
+        exitCode << [1, -1]
+    }
+
+    def "test the failure of a critical script fails the run"() {
+        setup:
+        script("a-stop.sh", CRITICAL)
+        script("b-flush.sh", BEST_EFFORT)
+        exitCodes["a-stop.sh"] = exitCode
+
+        when:
+        def successful = runner(Duration.ofSeconds(5)).runScripts({ })
+
+        then:
+        !successful
+        timeouts.keySet() == ["a-stop.sh"] as Set
+
+        where:
+        exitCode << [1, -1]
+    }
+
+    def "test no script runs once the deadline has passed"() {
+        setup:
+        script("stop.sh", CRITICAL)
+
+        when:
+        def successful = runner(Duration.ofSeconds(5)).runScripts({ }, null,
+                Deadline.at(Instant.now().minusSeconds(1)))
+
+        then:
+        !successful
+        timeouts.isEmpty()
+    }
+
+    private ScriptRunner runner(Duration bestEffortReserve) {
+        // the scripts run in the alphabetical order of their names
+        def priority = scripts.sort().join(":")
+        new ScriptRunner(dir.absolutePath, priority, SCRIPT_TIMEOUT_MS, 1, commandRunner, Mock(ScriptJournal),
+                bestEffortReserve, Mock(ScriptMetricsListener))
+    }
+
+    private void script(String name, String content) {
+        def file = new File(dir, name)
+        file.text = content
+        file.setExecutable(true)
+        scripts << name
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+
+package com.adobe.aam.shredder.core.command
+
+import spock.lang.Requires
+import spock.lang.Specification
+
+@Requires({ new File("/proc/self/stat").exists() })
+class ShellEnvironmentTest extends Specification {
+
+    def baseEnvironment = [PATH: System.getenv("PATH"), AWS_REGION: "us-east-1"]
+
+    def "test the cached profile hands the captured variables to the script"() {
+        setup:
+        def profile = profile("export FOO=bar; export AWS_REGION=captured")
+        def shell = new ShellEnvironment(ShellEnvironment.CACHED_PROFILE, profile.absolutePath, 5000)
+
+        when:
+        shell.start(baseEnvironment)
+        def prepared = shell.prepare(baseEnvironment + [EXTRA: "1"])
+
+        then:
+        !prepared.isSourceProfile()
+        prepared.getEnvironment().contains("FOO=bar")
+        prepared.getEnvironment().contains("AWS_REGION=us-east-1")
+        prepared.getEnvironment().contains("EXTRA=1")
+        !prepared.getEnvironment().any { it.startsWith("SHLVL=") }
+
+        cleanup:
+        profile.delete()
+    }
+
+    def "test the script sources the profile when the capture times out"() {
+        setup:
+        def profile = profile("sleep 30")
+        def shell = new ShellEnvironment(ShellEnvironment.CACHED_PROFILE, profile.absolutePath, 500)
+
+        when:
+        def start = System.currentTimeMillis()
+        shell.start(baseEnvironment)
+        def prepared = shell.prepare(baseEnvironment)
+
+        then:
+        prepared.isSourceProfile()
+        System.currentTimeMillis() - start < 10000
+        prepared.getEnvironment() as List == ["PATH=" + System.getenv("PATH"), "AWS_REGION=us-east-1"]
+
+        cleanup:
+        profile.delete()
+    }
+
+    def "test the script sources the profile when the capture fails"() {
+        setup:
+        def profile = profile("exit 1")
+        def shell = new ShellEnvironment(ShellEnvironment.CACHED_PROFILE, profile.absolutePath, 5000)
+
+        when:
+        def prepared = shell.prepare(baseEnvironment)
+
+        then:
+        prepared.isSourceProfile()
+        !prepared.getEnvironment().any { it.startsWith("FOO=") }
+
+        cleanup:
+        profile.delete()
+    }
+
+    def "test the source profile mode never captures"() {
+        setup:
+        def profile = profile("export FOO=bar")
+        def shell = new ShellEnvironment(ShellEnvironment.SOURCE_PROFILE, profile.absolutePath, 5000)
+
+        when:
+        shell.start(baseEnvironment)
+        def prepared = shell.prepare(baseEnvironment)
+
+        then:
+        prepared.isSourceProfile()
+        !prepared.getEnvironment().contains("FOO=bar")
+
+        cleanup:
+        profile.delete()
+    }
+
+    def "test an unknown mode is rejected"() {
+        when:
+        new ShellEnvironment("login-shell")
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    private static File profile(String content) {
+        def profile = File.createTempFile("shredder-profile", ".sh")
+        profile.text = content + "\n"
+        profile
+    }
+}
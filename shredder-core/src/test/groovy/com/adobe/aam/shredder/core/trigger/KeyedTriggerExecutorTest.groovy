@@ -0,0 +1,90 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+package com.adobe.aam.shredder.core.trigger
+
+import spock.lang.Specification
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class KeyedTriggerExecutorTest extends Specification {
+
+    def "triggers with the same key are processed in order, others are not held back"() {
+        setup:
+        def slowStarted = new CountDownLatch(1)
+        def releaseSlow = new CountDownLatch(1)
+        def processed = new CopyOnWriteArrayList<String>()
+        def executor = new KeyedTriggerExecutor<TestTrigger>(2, 10, { it.key }, { TestTrigger trigger ->
+            if (trigger.key == "slow") {
+                slowStarted.countDown()
+                releaseSlow.await()
+            }
+            processed.add(trigger.key + trigger.sequence)
+        })
+
+        when:
+        executor.submit(new TestTrigger("slow", 1))
+        executor.submit(new TestTrigger("slow", 2))
+        slowStarted.await()
+        (1..5).each { executor.submit(new TestTrigger("fast", it)) }
+        def deadline = System.currentTimeMillis() + 5000
+        while (processed.size() < 5 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10)
+        }
+
+        then: "the fast triggers don't wait for the slow one"
+        processed == ["fast1", "fast2", "fast3", "fast4", "fast5"]
+        executor.getInFlight() == 1
+        executor.getQueued() == 1
+
+        when:
+        releaseSlow.countDown()
+
+        then:
+        executor.shutdown(5, TimeUnit.SECONDS)
+        processed == ["fast1", "fast2", "fast3", "fast4", "fast5", "slow1", "slow2"]
+        executor.getInFlight() == 0
+        executor.getQueued() == 0
+    }
+
+    def "a failing trigger doesn't stop the triggers behind it"() {
+        setup:
+        def processed = ConcurrentHashMap.newKeySet()
+        def executor = new KeyedTriggerExecutor<TestTrigger>(1, 10, { it.key }, { TestTrigger trigger ->
+            if (trigger.sequence == 1) {
+                throw new IllegalStateException("boom")
+            }
+            processed.add(trigger.sequence)
+        })
+
+        when:
+        executor.submit(new TestTrigger("host", 1))
+        executor.submit(new TestTrigger("host", 2))
+
+        then:
+        executor.shutdown(5, TimeUnit.SECONDS)
+        processed == [2] as Set
+    }
+
+    static class TestTrigger implements TriggerMessage {
+        final String key
+        final int sequence
+
+        TestTrigger(String key, int sequence) {
+            this.key = key
+            this.sequence = sequence
+        }
+    }
+}
@@ -14,12 +14,15 @@ package com.adobe.aam.shredder.ec2;
 
 import com.adobe.aam.shredder.ec2.di.InjectorBuilder;
 import com.adobe.aam.shredder.ec2.service.ShutdownService;
+import com.adobe.aam.shredder.ec2.service.SpotInterruptionService;
 import com.adobe.aam.shredder.ec2.service.StartupService;
+import com.adobe.aam.shredder.ec2.trigger.ShutdownLifecycleHookMessage;
 import com.google.inject.Injector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 
 public class Main {
     private static final Logger LOG = LoggerFactory.getLogger(Main.class);
@@ -30,11 +33,16 @@ public class Main {
 
         LOG.info("Starting EC2 shredder daemon.");
 
+        ShutdownService shutdownService = injector.getInstance(ShutdownService.class);
+        CompletableFuture<ShutdownLifecycleHookMessage> shutdownTrigger = shutdownService.listenForShutdownTrigger();
+
+        // a Spot instance can be reclaimed while the startup scripts are still running
+        injector.getInstance(SpotInterruptionService.class).start();
+
         StartupService startupService = injector.getInstance(StartupService.class);
-        boolean startupSuccessful = startupService.getStartupResult();
+        boolean startupSuccessful = startupService.getStartupResult(shutdownTrigger);
 
-        ShutdownService shutdownService = injector.getInstance(ShutdownService.class);
-        boolean shutdownSuccessful = shutdownService.getShutdownResult(startupSuccessful);
+        boolean shutdownSuccessful = shutdownService.getShutdownResult(startupSuccessful, shutdownTrigger.join());
         LOG.error("Exiting. shutdownSuccessful={}", shutdownSuccessful);
     }
 }
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+package com.adobe.aam.shredder.ec2.aws;
+
+import com.adobe.aam.shredder.core.aws.servergroup.AutoScaleGroupHelper;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.adobe.aam.shredder.core.aws.servergroup.AutoScaleGroupHelper.HEARTBEAT_INTERVAL_MS;
+
+/**
+ * Sends the heartbeats of the lifecycle actions, so that they don't expire while a long task runs. Each action gets a
+ * single schedule, shared by all its requesters (eg. the scripts running in parallel), which stops once the last one
+ * closed its {@link Schedule}. The heartbeats are sent at a fraction of the HeartbeatTimeout of the lifecycle hook,
+ * or every {@link AutoScaleGroupHelper#HEARTBEAT_INTERVAL_MS} if the hook can't be looked up.
+ */
+@Singleton
+public class HeartbeatScheduler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HeartbeatScheduler.class);
+    public static final double DEFAULT_TIMEOUT_FRACTION = 0.25;
+    // the shortest HeartbeatTimeout is 30 s
+    private static final long MIN_INTERVAL_MS = 5000;
+
+    /**
+     * The heartbeat to give to the script runners while a schedule is open: the scheduler sends the heartbeats.
+     */
+    public static final Runnable SCHEDULED = () -> { };
+
+    private final LifecycleHandler lifecycleHandler;
+    private final AutoScaleGroupHelper asgHelper;
+    private final double timeoutFraction;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("heartbeat-scheduler-%d").setDaemon(true).build());
+    private final Map<String, ActionHeartbeats> heartbeatsByAction = new HashMap<>();
+
+    @Inject
+    public HeartbeatScheduler(LifecycleHandler lifecycleHandler,
+                              AutoScaleGroupHelper asgHelper,
+                              @Named("heartbeatTimeoutFraction") double timeoutFraction) {
+        this.lifecycleHandler = lifecycleHandler;
+        this.asgHelper = asgHelper;
+        this.timeoutFraction = timeoutFraction;
+    }
+
+    /**
+     * Starts sending the heartbeats of the lifecycle action right away, unless they are already being sent.
+     */
+    public Schedule start(LifecycleHook action) {
+        String key = LifecycleHandler.getKey(action);
+        synchronized (this) {
+            ActionHeartbeats heartbeats = heartbeatsByAction.get(key);
+            if (heartbeats != null) {
+                heartbeats.requesters++;
+                return new Schedule(heartbeats);
+            }
+        }
+
+        // looked up without holding the lock, as it calls AWS
+        long intervalMs = getIntervalMs(action);
+        synchronized (this) {
+            ActionHeartbeats heartbeats = heartbeatsByAction.get(key);
+            if (heartbeats == null) {
+                LOG.info("Sending the heartbeats of {} every {} s.", key, intervalMs / 1000);
+                heartbeats = new ActionHeartbeats(key, executor.scheduleWithFixedDelay(() -> sendHeartbeat(action),
+                        0, intervalMs, TimeUnit.MILLISECONDS));
+                heartbeatsByAction.put(key, heartbeats);
+            }
+            heartbeats.requesters++;
+            return new Schedule(heartbeats);
+        }
+    }
+
+    /**
+     * @return a schedule which sends nothing if there is no lifecycle action, eg. no launching hook
+     */
+    public Schedule start(Optional<? extends LifecycleHook> action) {
+        if (!action.isPresent()) {
+            LOG.info("No lifecycle action. No heartbeat being sent.");
+            return new Schedule(null);
+        }
+        return start(action.get());
+    }
+
+    long getIntervalMs(LifecycleHook action) {
+        return asgHelper.getLifecycleHook(action.getAutoScalingGroupName(), action.getLifecycleHookName())
+                .map(com.amazonaws.services.autoscaling.model.LifecycleHook::getHeartbeatTimeout)
+                .map(timeout -> (long) (Duration.ofSeconds(timeout).toMillis() * timeoutFraction))
+                .map(intervalMs -> Math.max(MIN_INTERVAL_MS, intervalMs))
+                .orElse((long) HEARTBEAT_INTERVAL_MS);
+    }
+
+    private void sendHeartbeat(LifecycleHook action) {
+        try {
+            lifecycleHandler.sendHeartbeat(action);
+        } catch (RuntimeException e) {
+            // an exception would cancel the schedule
+            LOG.warn("Unable to send heartbeat for lifecycle {}, {}", action, e.getMessage());
+        }
+    }
+
+    private synchronized void release(ActionHeartbeats heartbeats) {
+        heartbeats.requesters--;
+        if (heartbeats.requesters == 0) {
+            LOG.info("Stopped sending the heartbeats of {}.", heartbeats.key);
+            heartbeats.future.cancel(false);
+            heartbeatsByAction.remove(heartbeats.key);
+        }
+    }
+
+    private static class ActionHeartbeats {
+        private final String key;
+        private final ScheduledFuture<?> future;
+        private int requesters;
+
+        private ActionHeartbeats(String key, ScheduledFuture<?> future) {
+            this.key = key;
+            this.future = future;
+        }
+    }
+
+    /**
+     * Keeps the heartbeats of a lifecycle action going until closed.
+     */
+    public class Schedule implements AutoCloseable {
+        private final ActionHeartbeats heartbeats;
+        private boolean closed;
+
+        private Schedule(ActionHeartbeats heartbeats) {
+            this.heartbeats = heartbeats;
+        }
+
+        @Override
+        public void close() {
+            synchronized (HeartbeatScheduler.this) {
+                if (closed || heartbeats == null) {
+                    return;
+                }
+                closed = true;
+            }
+            release(heartbeats);
+        }
+    }
+}
@@ -13,39 +13,48 @@
 package com.adobe.aam.shredder.ec2.aws;
 
 import com.adobe.aam.shredder.core.aws.servergroup.AutoScaleGroupHelper;
+import com.adobe.aam.shredder.ec2.monitoring.MonitoringService;
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.services.autoscaling.model.CompleteLifecycleActionRequest;
 import com.amazonaws.services.autoscaling.model.RecordLifecycleActionHeartbeatRequest;
 import com.github.rholder.retry.*;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+@Singleton
 public class LifecycleHandler {
 
     private static final Logger LOG = LoggerFactory.getLogger(LifecycleHandler.class);
     private final AutoScaleGroupHelper asgHelper;
-    private final Retryer<Boolean> retryer = RetryerBuilder.<Boolean>newBuilder()
-            .retryIfException(this::shouldRetryOnException)
-            .withWaitStrategy(WaitStrategies.randomWait(2, TimeUnit.MINUTES))
-            .withStopStrategy(StopStrategies.stopAfterAttempt(7))
-            .withRetryListener(new RetryListener() {
-                @Override
-                public <V> void onRetry(Attempt<V> attempt) {
-                    if (attempt.hasException()) {
-                        LOG.warn("Failed to send lifecycle event to AWS. {}", attempt.getExceptionCause().getMessage());
-                    }
-                }
-            })
-            .build();
+    private final LifecycleRetryPolicy retryPolicy;
+    private final MonitoringService monitoringService;
+    private final String region;
+    // when the heartbeat timeout of each lifecycle action was last reset
+    private final Map<String, Instant> lastHeartbeats = new ConcurrentHashMap<>();
 
     @Inject
-    public LifecycleHandler(AutoScaleGroupHelper asgHelper) {
+    public LifecycleHandler(AutoScaleGroupHelper asgHelper,
+                            LifecycleRetryPolicy retryPolicy,
+                            MonitoringService monitoringService,
+                            @Named("region") String region) {
         this.asgHelper = asgHelper;
+        this.retryPolicy = retryPolicy;
+        this.monitoringService = monitoringService;
+        this.region = region;
     }
 
     public void sendHeartbeat(LifecycleHook message) {
@@ -57,11 +66,21 @@ public class LifecycleHandler {
                     .withAutoScalingGroupName(message.getAutoScalingGroupName())
                     .withLifecycleHookName(message.getLifecycleHookName())
             );
+            lastHeartbeats.put(getKey(message), Instant.now());
         } catch (AmazonClientException e) {
             LOG.warn("Unable to send heartbeat for lifecycle {}, {}", message, e.getMessage());
         }
     }
 
+    /**
+     * @return the maximum time the instance can stay in the lifecycle hook, heartbeats included
+     */
+    public Optional<Duration> getGlobalTimeout(LifecycleHook message) {
+        return asgHelper.getLifecycleHook(message.getAutoScalingGroupName(), message.getLifecycleHookName())
+                .map(com.amazonaws.services.autoscaling.model.LifecycleHook::getGlobalTimeout)
+                .map(Duration::ofSeconds);
+    }
+
     public void successfulCompleteLifecycle(LifecycleHook message) {
         completeLifecycle(message, "CONTINUE");
     }
@@ -70,12 +89,47 @@ public class LifecycleHandler {
         completeLifecycle(message, "ABANDON");
     }
 
+    /**
+     * Retries according to the {@link LifecycleRetryPolicy}, until the lifecycle action expires: past that point the
+     * Auto Scale Group carries on by itself and a retry can only fail. The number of attempts and the time it took
+     * are sent to the {@link MonitoringService}.
+     */
     private void completeLifecycle(LifecycleHook message, String actionResult) {
+        long startMs = System.currentTimeMillis();
+        AtomicLong attempts = new AtomicLong();
+        // only looked up if the first attempt fails
+        Supplier<Instant> deadline = Suppliers.memoize(() -> getDeadline(message));
+        Retryer<Boolean> retryer = RetryerBuilder.<Boolean>newBuilder()
+                .retryIfException(retryPolicy::isRetryable)
+                .withWaitStrategy(attempt -> Math.min(
+                        retryPolicy.getDelayMs(attempt.getAttemptNumber(), attempt.getExceptionCause()),
+                        Math.max(0, Duration.between(Instant.now(), deadline.get()).toMillis())))
+                .withStopStrategy(attempt -> !Instant.now().isBefore(deadline.get()))
+                .withRetryListener(new RetryListener() {
+                    @Override
+                    public <V> void onRetry(Attempt<V> attempt) {
+                        attempts.set(attempt.getAttemptNumber());
+                        if (attempt.hasException()) {
+                            LOG.warn("Failed to send lifecycle event to AWS (attempt {}, {}). {}",
+                                    attempt.getAttemptNumber(),
+                                    LifecycleRetryPolicy.classify(attempt.getExceptionCause()),
+                                    attempt.getExceptionCause().getMessage());
+                        }
+                    }
+                })
+                .build();
+
+        boolean successful = false;
         try {
             retryer.call(getCompleteLifecycleCommand(message, actionResult));
+            successful = true;
         } catch (ExecutionException | RetryException e) {
             LOG.warn("Unable to send COMPLETE lifecycle action for {}, {}", message, e.getMessage());
         }
+
+        monitoringService.sendLifecycleActionMetrics(new InstanceDetails(message.getEc2InstanceId(),
+                        message.getLifecycleHookName(), message.getAutoScalingGroupName(), region),
+                actionResult, successful, attempts.get(), System.currentTimeMillis() - startMs);
     }
 
     private Callable<Boolean> getCompleteLifecycleCommand(LifecycleHook message, String actionResult) {
@@ -93,14 +147,23 @@ public class LifecycleHandler {
     }
 
     /**
-     * On some exceptions, a retry would yield no change. If we keep retrying we would lose time with the random wait,
-     * so we want to avoid that.
-     * For instance, if we can't find an active Lifecycle Action for the current instance id, we won't find any on
-     * subsequent retries either.
+     * The lifecycle action expires once its heartbeat timeout elapsed since the last heartbeat, or since now if none
+     * was sent by this daemon. The retries stop at the policy's max duration in any case, eg. when the hook can't be
+     * looked up.
      */
-    private boolean shouldRetryOnException(Throwable throwable) {
-        return throwable != null
-                && throwable.getMessage() != null
-                && !throwable.getMessage().contains("No active Lifecycle Action found");
+    private Instant getDeadline(LifecycleHook message) {
+        Instant now = Instant.now();
+        Instant maxDeadline = now.plus(retryPolicy.getMaxDuration());
+        Instant lastHeartbeat = lastHeartbeats.getOrDefault(getKey(message), now);
+        return asgHelper.getLifecycleHook(message.getAutoScalingGroupName(), message.getLifecycleHookName())
+                .map(com.amazonaws.services.autoscaling.model.LifecycleHook::getHeartbeatTimeout)
+                .map(lastHeartbeat::plusSeconds)
+                .filter(expiry -> expiry.isBefore(maxDeadline))
+                .orElse(maxDeadline);
+    }
+
+    static String getKey(LifecycleHook message) {
+        return message.getAutoScalingGroupName() + "/" + message.getLifecycleHookName() + "/"
+                + message.getEc2InstanceId();
     }
 }
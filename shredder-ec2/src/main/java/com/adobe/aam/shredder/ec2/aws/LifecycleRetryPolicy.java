@@ -0,0 +1,97 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+package com.adobe.aam.shredder.ec2.aws;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.google.common.collect.ImmutableSet;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * When and how long to wait before retrying a failed lifecycle action call: exponential backoff with full jitter,
+ * ie. a random delay between 0 and {@code baseDelay * 2^(attempt - 1)}, capped by {@code maxDelay}. Throttled calls
+ * back off from a larger base, so that a throttled fleet spreads its calls. Calls rejected by the service (eg. a
+ * validation error, such as no active lifecycle action for the instance) are not retried, since no retry would
+ * change the outcome.
+ */
+public class LifecycleRetryPolicy {
+
+    public static final Duration DEFAULT_BASE_DELAY = Duration.ofMillis(500);
+    public static final Duration DEFAULT_MAX_DELAY = Duration.ofSeconds(20);
+    public static final Duration DEFAULT_MAX_DURATION = Duration.ofMinutes(5);
+    private static final int THROTTLING_BASE_DELAY_FACTOR = 4;
+    private static final Set<String> THROTTLING_ERROR_CODES = ImmutableSet.of("Throttling", "ThrottlingException",
+            "ThrottledException", "RequestThrottled", "RequestThrottledException", "RequestLimitExceeded",
+            "TooManyRequestsException", "SlowDown");
+
+    public enum Failure {
+        /** the call was throttled: retried, with a larger backoff */
+        THROTTLED,
+        /** the service failed (5xx): retried */
+        SERVER_ERROR,
+        /** the service was not reached, eg. a network error or a timeout: retried */
+        CLIENT_ERROR,
+        /** the service rejected the call (4xx), eg. a validation error: not retried */
+        REJECTED
+    }
+
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+    private final Duration maxDuration;
+
+    /**
+     * @param maxDuration how long to retry for at most, even if the lifecycle action doesn't expire before
+     */
+    public LifecycleRetryPolicy(Duration baseDelay, Duration maxDelay, Duration maxDuration) {
+        this.baseDelayMs = baseDelay.toMillis();
+        this.maxDelayMs = maxDelay.toMillis();
+        this.maxDuration = maxDuration;
+    }
+
+    public static Failure classify(Throwable throwable) {
+        if (throwable instanceof AmazonServiceException) {
+            AmazonServiceException e = (AmazonServiceException) throwable;
+            if (THROTTLING_ERROR_CODES.contains(e.getErrorCode()) || e.getStatusCode() == 429) {
+                return Failure.THROTTLED;
+            }
+            if (e.getStatusCode() >= 500 || e.getErrorType() == AmazonServiceException.ErrorType.Service) {
+                return Failure.SERVER_ERROR;
+            }
+            return Failure.REJECTED;
+        }
+        if (throwable instanceof AmazonClientException && ((AmazonClientException) throwable).isRetryable()) {
+            return Failure.CLIENT_ERROR;
+        }
+        return Failure.REJECTED;
+    }
+
+    public boolean isRetryable(Throwable throwable) {
+        return classify(throwable) != Failure.REJECTED;
+    }
+
+    /**
+     * @param attemptNumber the number of the attempt which failed, starting at 1
+     */
+    public long getDelayMs(long attemptNumber, Throwable failure) {
+        long baseMs = classify(failure) == Failure.THROTTLED ? baseDelayMs * THROTTLING_BASE_DELAY_FACTOR : baseDelayMs;
+        long ceilingMs = Math.min(maxDelayMs, baseMs << Math.min(attemptNumber - 1, 30));
+        return ThreadLocalRandom.current().nextLong(ceilingMs + 1);
+    }
+
+    public Duration getMaxDuration() {
+        return maxDuration;
+    }
+}
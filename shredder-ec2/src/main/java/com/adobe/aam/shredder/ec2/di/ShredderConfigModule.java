@@ -12,13 +12,21 @@
 
 package com.adobe.aam.shredder.ec2.di;
 
+import com.adobe.aam.shredder.core.aws.trigger.ImdsTriggerWatcher;
+import com.adobe.aam.shredder.core.aws.trigger.NoopTriggerWatcher;
+import com.adobe.aam.shredder.core.aws.trigger.SpotInterruptionWatcher;
+import com.adobe.aam.shredder.core.aws.trigger.TriggerWatcher;
 import com.adobe.aam.shredder.core.command.ScriptRunner;
 import com.adobe.aam.shredder.core.command.ScriptRunner.ScriptRunnerFactory;
+import com.adobe.aam.shredder.ec2.aws.HeartbeatScheduler;
+import com.adobe.aam.shredder.ec2.aws.LifecycleRetryPolicy;
 import com.google.inject.AbstractModule;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.inject.Provides;
 import com.typesafe.config.Config;
 
 import javax.inject.Named;
+import javax.inject.Singleton;
 import java.time.Duration;
 
 public class ShredderConfigModule extends AbstractModule {
@@ -33,13 +41,29 @@ public class ShredderConfigModule extends AbstractModule {
         return config.getString("script_output_path");
     }
 
+    @Provides
+    @Named("scriptKillGracePeriod")
+    public Duration scriptKillGracePeriod(Config config) {
+        return config.hasPath("script_kill_grace_period")
+                ? config.getDuration("script_kill_grace_period")
+                : Duration.ofSeconds(10);
+    }
+
+    @Provides
+    @Named("scriptShellMode")
+    public String scriptShellMode(Config config) {
+        return config.hasPath("script_shell_mode")
+                ? config.getString("script_shell_mode")
+                : "source-profile";
+    }
+
     @Provides
     @Named("startupPersistFile")
     public String startupPersistFile(Config config) {
         return config.getString("startup_persist_result_file");
     }
 
-    @Provides
+    @Provides @Singleton
     @Named("startupScriptRunner")
     public ScriptRunner startupScriptRunner(ScriptRunnerFactory scriptRunnerFactory, Config config) {
 
@@ -50,10 +74,14 @@ public class ShredderConfigModule extends AbstractModule {
         Duration startupScriptsTimeout = config.hasPath("startup_scripts_timeout")
                 ? config.getDuration("startup_scripts_timeout")
                 : Duration.ofHours(1);
-        return scriptRunnerFactory.create(startupScriptsPath, startupScriptsPriority, startupScriptsTimeout.toMillis());
+        int startupScriptsParallelism = config.hasPath("startup_scripts_parallelism")
+                ? config.getInt("startup_scripts_parallelism")
+                : 1;
+        return scriptRunnerFactory.create(startupScriptsPath, startupScriptsPriority, startupScriptsTimeout.toMillis(),
+                startupScriptsParallelism);
     }
 
-    @Provides
+    @Provides @Singleton
     @Named("shutdownScriptRunner")
     public ScriptRunner shutdownScriptRunner(
             ScriptRunnerFactory scriptRunnerFactory,
@@ -66,7 +94,103 @@ public class ShredderConfigModule extends AbstractModule {
         Duration shutdownScriptsTimeout = config.hasPath("shutdown_scripts_timeout")
                 ? config.getDuration("shutdown_scripts_timeout")
                 : Duration.ofHours(1);
-        return scriptRunnerFactory.create(shutdownScriptsPath, shutdownScriptsPriority, shutdownScriptsTimeout.toMillis());
+        int shutdownScriptsParallelism = config.hasPath("shutdown_scripts_parallelism")
+                ? config.getInt("shutdown_scripts_parallelism")
+                : 1;
+        return scriptRunnerFactory.create(shutdownScriptsPath, shutdownScriptsPriority, shutdownScriptsTimeout.toMillis(),
+                shutdownScriptsParallelism);
+    }
+
+    @Provides
+    @Named("shutdownBudget")
+    public Duration getShutdownBudget(Config config) {
+        return config.hasPath("shutdown_budget")
+                ? config.getDuration("shutdown_budget")
+                : Duration.ZERO;
+    }
+
+    @Provides
+    @Named("spotEnabled")
+    public boolean spotEnabled(Config config) {
+        return config.hasPath("spot.enabled") && config.getBoolean("spot.enabled");
+    }
+
+    @Provides
+    @Named("spotTriggerWatcher")
+    public TriggerWatcher spotTriggerWatcher(@Named("spotEnabled") boolean spotEnabled,
+                                             @Named("instanceId") String instanceId,
+                                             ObjectMapper objectMapper,
+                                             Config config) {
+        if (!spotEnabled) {
+            return new NoopTriggerWatcher();
+        }
+        return new SpotInterruptionWatcher(ImdsTriggerWatcher.DEFAULT_ENDPOINT, instanceId, objectMapper,
+                config.hasPath("spot.poll_interval")
+                        ? config.getDuration("spot.poll_interval")
+                        : SpotInterruptionWatcher.DEFAULT_POLL_INTERVAL,
+                ImdsTriggerWatcher.DEFAULT_TOKEN_TTL);
+    }
+
+    /**
+     * Runs the spot-safe shutdown scripts, in parallel, within the spot budget.
+     */
+    @Provides @Singleton
+    @Named("spotScriptRunner")
+    public ScriptRunner spotScriptRunner(ScriptRunnerFactory scriptRunnerFactory,
+                                         @Named("spotBudget") Duration spotBudget,
+                                         Config config) {
+        String shutdownScriptsPriority = config.hasPath("shutdown_scripts_priority")
+                ? config.getString("shutdown_scripts_priority")
+                : "";
+        int spotParallelism = config.hasPath("spot.parallelism")
+                ? config.getInt("spot.parallelism")
+                : 8;
+        return scriptRunnerFactory.create(config.getString("shutdown_scripts_path"), shutdownScriptsPriority,
+                spotBudget.toMillis(), spotParallelism);
+    }
+
+    @Provides
+    @Named("spotBudget")
+    public Duration getSpotBudget(Config config) {
+        return config.hasPath("spot.budget")
+                ? config.getDuration("spot.budget")
+                : Duration.ofSeconds(90);
+    }
+
+    @Provides
+    @Named("spotReserve")
+    public Duration getSpotReserve(Config config) {
+        return config.hasPath("spot.reserve")
+                ? config.getDuration("spot.reserve")
+                : Duration.ofSeconds(15);
+    }
+
+    @Provides
+    @Named("heartbeatTimeoutFraction")
+    public double getHeartbeatTimeoutFraction(Config config) {
+        double fraction = config.hasPath("heartbeat_timeout_fraction")
+                ? config.getDouble("heartbeat_timeout_fraction")
+                : HeartbeatScheduler.DEFAULT_TIMEOUT_FRACTION;
+        // a heartbeat sent once per HeartbeatTimeout or less often comes too late
+        if (!(fraction > 0 && fraction < 1)) {
+            throw new IllegalArgumentException("heartbeat_timeout_fraction must be between 0 and 1 (exclusive), got "
+                    + fraction + ".");
+        }
+        return fraction;
+    }
+
+    @Provides
+    public LifecycleRetryPolicy getLifecycleRetryPolicy(Config config) {
+        return new LifecycleRetryPolicy(
+                config.hasPath("lifecycle_retry.base_delay")
+                        ? config.getDuration("lifecycle_retry.base_delay")
+                        : LifecycleRetryPolicy.DEFAULT_BASE_DELAY,
+                config.hasPath("lifecycle_retry.max_delay")
+                        ? config.getDuration("lifecycle_retry.max_delay")
+                        : LifecycleRetryPolicy.DEFAULT_MAX_DELAY,
+                config.hasPath("lifecycle_retry.max_duration")
+                        ? config.getDuration("lifecycle_retry.max_duration")
+                        : LifecycleRetryPolicy.DEFAULT_MAX_DURATION);
     }
 
     @Provides
@@ -12,9 +12,14 @@
 
 package com.adobe.aam.shredder.ec2.di;
 
+import com.adobe.aam.shredder.core.aws.AwsClientRegistry;
+import com.adobe.aam.shredder.core.command.ScriptMetricsListener;
+import com.adobe.aam.shredder.core.trigger.TriggerRaceListener;
 import com.adobe.aam.shredder.ec2.monitoring.CloudWatchSender.CloudWatchFactory;
 import com.adobe.aam.shredder.ec2.monitoring.MonitoringService;
 import com.adobe.aam.shredder.ec2.monitoring.MonitoringServiceNoop;
+import com.adobe.aam.shredder.ec2.monitoring.ScriptMetricsPublisher;
+import com.adobe.aam.shredder.ec2.monitoring.TriggerRacePublisher;
 import com.amazonaws.services.cloudwatch.AmazonCloudWatch;
 import com.amazonaws.services.cloudwatch.AmazonCloudWatchClientBuilder;
 import com.google.inject.AbstractModule;
@@ -33,11 +38,23 @@ public class ShredderMonitorModule extends AbstractModule {
     @Provides
     public MonitoringService monitoringService(@Named("sendCloudWatchMetrics") boolean sendMetrics,
                                                @Named("region") String region,
-                                               CloudWatchFactory factory) {
+                                               CloudWatchFactory factory,
+                                               AwsClientRegistry clients) {
         if (sendMetrics) {
-            AmazonCloudWatch cloudWatch = AmazonCloudWatchClientBuilder.standard().withRegion(region).build();
+            AmazonCloudWatch cloudWatch = clients.get(AmazonCloudWatch.class, region,
+                    AmazonCloudWatchClientBuilder::standard);
             return factory.create(cloudWatch);
         }
         return new MonitoringServiceNoop();
     }
+
+    @Provides
+    public ScriptMetricsListener scriptMetricsListener(ScriptMetricsPublisher publisher) {
+        return publisher;
+    }
+
+    @Provides
+    public TriggerRaceListener triggerRaceListener(TriggerRacePublisher publisher) {
+        return publisher;
+    }
 }
@@ -12,8 +12,9 @@
 
 package com.adobe.aam.shredder.ec2.di;
 
+import com.adobe.aam.shredder.ec2.aws.HeartbeatScheduler;
+import com.adobe.aam.shredder.ec2.aws.HeartbeatScheduler.Schedule;
 import com.adobe.aam.shredder.ec2.aws.InstanceDetailsRetriever;
-import com.adobe.aam.shredder.ec2.aws.LifecycleHandler;
 import com.adobe.aam.shredder.ec2.log.ShredderLogUploader;
 import com.adobe.aam.shredder.ec2.log.StartupResultPersist;
 import com.adobe.aam.shredder.ec2.notifier.Notifier;
@@ -26,36 +27,33 @@ import com.adobe.aam.shredder.ec2.service.startup.StartupScriptRunner;
 import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
 import com.typesafe.config.Config;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import javax.inject.Named;
 import java.io.IOException;
 import java.time.Duration;
+import java.util.function.Supplier;
 
 public class StartupModule extends AbstractModule {
 
-    private static final Logger LOG = LoggerFactory.getLogger(StartupModule.class);
-
     @Override
     public void configure() {
     }
 
     @Provides
     public StartupService monitoringService(Config config,
-                                            @Named("heartbeatLambda") Runnable heartbeatLambda,
+                                            @Named("startupHeartbeats") Supplier<Schedule> startupHeartbeats,
                                             StartupCommandsRunner startupCommandsRunner,
                                             ShredderLogUploader shredderLogUploader,
                                             Notifier notifier,
                                             StartupResultPersist startupResultPersist) throws IOException {
 
 
-        StartupRunner runner = getStartupRunner(config, heartbeatLambda, startupCommandsRunner);
+        StartupRunner runner = getStartupRunner(config, startupHeartbeats, startupCommandsRunner);
         return new StartupService(runner, shredderLogUploader, notifier, startupResultPersist);
     }
 
     private StartupRunner getStartupRunner(Config config,
-                                           Runnable heartbeatLambda,
+                                           Supplier<Schedule> startupHeartbeats,
                                            StartupCommandsRunner startupCommandsRunner) throws IOException {
         String startupMode = config.getString("startup.mode");
         switch (startupMode) {
@@ -64,22 +62,19 @@ public class StartupModule extends AbstractModule {
             case "wait-external-http-signal":
                 int serverPort = config.getInt("startup.external_signal.http.port");
                 Duration timeoutMs = config.getDuration("startup.external_signal.timeout");
-                return new StartupExternalSignalReceiver(serverPort, timeoutMs, heartbeatLambda);
+                return new StartupExternalSignalReceiver(serverPort, timeoutMs, startupHeartbeats);
             default:
                 return new NoStartupRunner();
         }
     }
 
+    /**
+     * Keeps the launching lifecycle action, if any, alive while the startup runs.
+     */
     @Provides
-    @Named("heartbeatLambda")
-    public Runnable getHeartbeatLambda(InstanceDetailsRetriever instanceDetailsRetriever,
-                                       LifecycleHandler lifecycleHandler) {
-        return instanceDetailsRetriever.getInstanceDetails()
-                .<Runnable>map(trigger -> () -> lifecycleHandler.sendHeartbeat(trigger))
-                .orElse(this::noHeartbeat);
-    }
-
-    private void noHeartbeat() {
-        LOG.info("Could not connect to the startup lifecycle hook. No heartbeat being sent.");
+    @Named("startupHeartbeats")
+    public Supplier<Schedule> getStartupHeartbeats(InstanceDetailsRetriever instanceDetailsRetriever,
+                                                   HeartbeatScheduler heartbeatScheduler) {
+        return () -> heartbeatScheduler.start(instanceDetailsRetriever.getInstanceDetails());
     }
 }
@@ -12,6 +12,7 @@
 
 package com.adobe.aam.shredder.ec2.monitoring;
 
+import com.adobe.aam.shredder.core.command.ScriptMetrics;
 import com.adobe.aam.shredder.ec2.aws.InstanceDetails;
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.services.cloudwatch.AmazonCloudWatch;
@@ -23,12 +24,18 @@ import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import javax.inject.Named;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
 
 public class CloudWatchSender implements MonitoringService {
 
     private static final Logger LOG = LoggerFactory.getLogger(CloudWatchSender.class);
+    // the PutMetricData limit
+    static final int MAX_METRIC_DATA_PER_REQUEST = 20;
     private final AmazonCloudWatch cloudWatch;
     private final String appName;
     private final String cloudWatchNamespace;
@@ -65,6 +72,114 @@ public class CloudWatchSender implements MonitoringService {
         }
     }
 
+    /**
+     * Sends the resources used by the scripts, with the script file name as an extra dimension, in as few requests as
+     * possible. Values which could not be measured are skipped.
+     */
+    @Override
+    public void sendScriptMetrics(InstanceDetails message, List<ScriptMetrics> metrics) {
+        Date timestamp = new Date();
+        List<MetricDatum> data = new ArrayList<>();
+        for (ScriptMetrics script : metrics) {
+            Collection<Dimension> dimensions = getMetricDimensions(message);
+            dimensions.add(new Dimension()
+                    .withName("script")
+                    .withValue(Paths.get(script.getCommand()).getFileName().toString()));
+
+            addDatum(data, dimensions, timestamp, "scriptWallTime", script.getWallTimeMs(), StandardUnit.Milliseconds);
+            addDatum(data, dimensions, timestamp, "scriptUserCpu", script.getUserCpuMs(), StandardUnit.Milliseconds);
+            addDatum(data, dimensions, timestamp, "scriptSystemCpu", script.getSystemCpuMs(),
+                    StandardUnit.Milliseconds);
+            addDatum(data, dimensions, timestamp, "scriptPeakRss", script.getPeakRssBytes(), StandardUnit.Bytes);
+            addDatum(data, dimensions, timestamp, "scriptReadBytes", script.getReadBytes(), StandardUnit.Bytes);
+            addDatum(data, dimensions, timestamp, "scriptWriteBytes", script.getWrittenBytes(), StandardUnit.Bytes);
+            if (!script.isTimedOut()) {
+                addDatum(data, dimensions, timestamp, "scriptExitCode", script.getExitCode(), StandardUnit.None);
+            }
+        }
+
+        LOG.info("Sending {} CloudWatch metrics for {} scripts", data.size(), metrics.size());
+        for (List<MetricDatum> batch : Lists.partition(data, MAX_METRIC_DATA_PER_REQUEST)) {
+            PutMetricDataRequest request = new PutMetricDataRequest()
+                    .withNamespace(cloudWatchNamespace)
+                    .withMetricData(batch);
+            try {
+                cloudWatch.putMetricData(request);
+            } catch (AmazonClientException e) {
+                LOG.warn("Unable to send CloudWatch script metrics for {}, {}", message, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Sends the outcome of a COMPLETE lifecycle action call, with the number of attempts and the time it took,
+     * retries included, and the action result (CONTINUE or ABANDON) as an extra dimension.
+     */
+    @Override
+    public void sendLifecycleActionMetrics(InstanceDetails message, String actionResult, boolean successful,
+                                           long attempts, long latencyMs) {
+        Collection<Dimension> dimensions = getMetricDimensions(message);
+        dimensions.add(new Dimension().withName("actionResult").withValue(actionResult));
+
+        Date timestamp = new Date();
+        List<MetricDatum> data = new ArrayList<>();
+        addDatum(data, dimensions, timestamp, successful ? "lifecycleActionSucceeded" : "lifecycleActionFailed", 1,
+                StandardUnit.Count);
+        addDatum(data, dimensions, timestamp, "lifecycleActionAttempts", attempts, StandardUnit.Count);
+        addDatum(data, dimensions, timestamp, "lifecycleActionLatency", latencyMs, StandardUnit.Milliseconds);
+
+        LOG.info("Sending {} CloudWatch metrics for the {} lifecycle action", data.size(), actionResult);
+        PutMetricDataRequest request = new PutMetricDataRequest()
+                .withNamespace(cloudWatchNamespace)
+                .withMetricData(data);
+        try {
+            cloudWatch.putMetricData(request);
+        } catch (AmazonClientException e) {
+            LOG.warn("Unable to send CloudWatch lifecycle action metrics for {}, {}", message, e.getMessage());
+        }
+    }
+
+    /**
+     * Sends which trigger source won a race, and its lead time over each of the other sources. The sources which
+     * didn't deliver within the race window have no lead time.
+     */
+    @Override
+    public void sendTriggerRace(InstanceDetails message, String winner, Map<String, Long> leadTimesMs) {
+        Date timestamp = new Date();
+        List<MetricDatum> data = new ArrayList<>();
+        Collection<Dimension> dimensions = getMetricDimensions(message);
+        dimensions.add(new Dimension().withName("source").withValue(winner));
+        addDatum(data, dimensions, timestamp, "triggerSourceWon", 1, StandardUnit.Count);
+        leadTimesMs.forEach((source, leadTimeMs) -> {
+            Collection<Dimension> leadDimensions = new ArrayList<>(dimensions);
+            leadDimensions.add(new Dimension().withName("over").withValue(source));
+            addDatum(data, leadDimensions, timestamp, "triggerSourceLead", leadTimeMs, StandardUnit.Milliseconds);
+        });
+
+        LOG.info("Sending {} CloudWatch metrics for the trigger race won by {}", data.size(), winner);
+        PutMetricDataRequest request = new PutMetricDataRequest()
+                .withNamespace(cloudWatchNamespace)
+                .withMetricData(data);
+        try {
+            cloudWatch.putMetricData(request);
+        } catch (AmazonClientException e) {
+            LOG.warn("Unable to send CloudWatch trigger race metrics for {}, {}", message, e.getMessage());
+        }
+    }
+
+    private static void addDatum(List<MetricDatum> data, Collection<Dimension> dimensions, Date timestamp,
+                                 String metricName, long value, StandardUnit unit) {
+        if (value < 0) {
+            return;
+        }
+        data.add(new MetricDatum()
+                .withMetricName(metricName)
+                .withUnit(unit)
+                .withValue((double) value)
+                .withDimensions(dimensions)
+                .withTimestamp(timestamp));
+    }
+
     private Collection<Dimension> getMetricDimensions(InstanceDetails instanceDetails) {
         Dimension dimension1 = new Dimension()
                 .withName("asgName")
@@ -12,9 +12,20 @@
 
 package com.adobe.aam.shredder.ec2.monitoring;
 
+import com.adobe.aam.shredder.core.command.ScriptMetrics;
 import com.adobe.aam.shredder.ec2.aws.InstanceDetails;
 
+import java.util.List;
+import java.util.Map;
+
 public interface MonitoringService {
 
     void sendMetric(InstanceDetails message, String metricName);
+
+    void sendScriptMetrics(InstanceDetails message, List<ScriptMetrics> metrics);
+
+    void sendLifecycleActionMetrics(InstanceDetails message, String actionResult, boolean successful, long attempts,
+                                    long latencyMs);
+
+    void sendTriggerRace(InstanceDetails message, String winner, Map<String, Long> leadTimesMs);
 }
@@ -12,12 +12,32 @@
 
 package com.adobe.aam.shredder.ec2.monitoring;
 
+import com.adobe.aam.shredder.core.command.ScriptMetrics;
 import com.adobe.aam.shredder.ec2.aws.InstanceDetails;
 
+import java.util.List;
+import java.util.Map;
+
 public class MonitoringServiceNoop implements MonitoringService {
 
     @Override
     public void sendMetric(InstanceDetails message, String metricName) {
 
     }
+
+    @Override
+    public void sendScriptMetrics(InstanceDetails message, List<ScriptMetrics> metrics) {
+
+    }
+
+    @Override
+    public void sendLifecycleActionMetrics(InstanceDetails message, String actionResult, boolean successful,
+                                           long attempts, long latencyMs) {
+
+    }
+
+    @Override
+    public void sendTriggerRace(InstanceDetails message, String winner, Map<String, Long> leadTimesMs) {
+
+    }
 }
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+package com.adobe.aam.shredder.ec2.monitoring;
+
+import com.adobe.aam.shredder.core.command.ScriptMetrics;
+import com.adobe.aam.shredder.core.command.ScriptMetricsListener;
+import com.adobe.aam.shredder.ec2.aws.InstanceDetails;
+import com.adobe.aam.shredder.ec2.aws.InstanceDetailsRetriever;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the resources used by each script through the {@link MonitoringService}, in the background, so that the
+ * next script (or the lifecycle action) doesn't wait for CloudWatch. The metrics of the scripts which finished while
+ * a request was in flight are sent together. The instance details are looked up once, not for every script.
+ * <p>
+ * The sender thread is not a daemon, so that the metrics still pending on shutdown are sent, but it stops once idle.
+ */
+@Singleton
+public class ScriptMetricsPublisher implements ScriptMetricsListener {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ScriptMetricsPublisher.class);
+    private static final long SENDER_KEEP_ALIVE_MS = 1000;
+
+    private final MonitoringService monitoringService;
+    private final InstanceDetailsRetriever instanceDetailsRetriever;
+    private final Queue<ScriptMetrics> pending = new ConcurrentLinkedQueue<>();
+    private final ThreadPoolExecutor sender = new ThreadPoolExecutor(1, 1,
+            SENDER_KEEP_ALIVE_MS, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+            new ThreadFactoryBuilder().setNameFormat("script-metrics-%d").build());
+    private volatile InstanceDetails instanceDetails;
+
+    @Inject
+    public ScriptMetricsPublisher(MonitoringService monitoringService,
+                                  InstanceDetailsRetriever instanceDetailsRetriever) {
+        this.monitoringService = monitoringService;
+        this.instanceDetailsRetriever = instanceDetailsRetriever;
+        sender.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void onScriptFinished(ScriptMetrics metrics) {
+        pending.add(metrics);
+        sender.execute(this::sendPending);
+    }
+
+    private void sendPending() {
+        List<ScriptMetrics> batch = new ArrayList<>();
+        for (ScriptMetrics metrics = pending.poll(); metrics != null; metrics = pending.poll()) {
+            batch.add(metrics);
+        }
+        if (batch.isEmpty()) {
+            // already sent along with the metrics of an earlier script
+            return;
+        }
+
+        try {
+            getInstanceDetails().ifPresent(details -> monitoringService.sendScriptMetrics(details, batch));
+        } catch (RuntimeException e) {
+            LOG.warn("Unable to publish the metrics of {} scripts. {}", batch.size(), e.getMessage());
+        }
+    }
+
+    private Optional<InstanceDetails> getInstanceDetails() {
+        if (instanceDetails == null) {
+            instanceDetailsRetriever.getInstanceDetails().ifPresent(details -> instanceDetails = details);
+        }
+        return Optional.ofNullable(instanceDetails);
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+package com.adobe.aam.shredder.ec2.monitoring;
+
+import com.adobe.aam.shredder.core.trigger.TriggerRaceListener;
+import com.adobe.aam.shredder.ec2.aws.InstanceDetailsRetriever;
+
+import javax.inject.Inject;
+import java.util.Map;
+
+/**
+ * Publishes the outcome of the races between the trigger sources through the {@link MonitoringService}.
+ */
+public class TriggerRacePublisher implements TriggerRaceListener {
+
+    private final MonitoringService monitoringService;
+    private final InstanceDetailsRetriever instanceDetailsRetriever;
+
+    @Inject
+    public TriggerRacePublisher(MonitoringService monitoringService,
+                                InstanceDetailsRetriever instanceDetailsRetriever) {
+        this.monitoringService = monitoringService;
+        this.instanceDetailsRetriever = instanceDetailsRetriever;
+    }
+
+    @Override
+    public void onRaceFinished(String winner, Map<String, Long> leadTimesMs) {
+        instanceDetailsRetriever.getInstanceDetails()
+                .ifPresent(details -> monitoringService.sendTriggerRace(details, winner, leadTimesMs));
+    }
+}
@@ -12,7 +12,7 @@
 
 package com.adobe.aam.shredder.ec2.runner;
 
-import com.adobe.aam.shredder.ec2.aws.LifecycleHandler;
+import com.adobe.aam.shredder.ec2.aws.HeartbeatScheduler;
 import com.adobe.aam.shredder.ec2.aws.LifecycleHook;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -25,13 +25,13 @@ public class BlockOnShutdownFailure {
 
     private static final Logger LOG = LoggerFactory.getLogger(BlockOnShutdownFailure.class);
     private final long maxWaitTimeMs;
-    private final LifecycleHandler lifecycleHandler;
+    private final HeartbeatScheduler heartbeatScheduler;
 
     @Inject
     public BlockOnShutdownFailure(@Named("maxWaitTimeOnShutdownFailure") Duration maxWaitTime,
-                                  LifecycleHandler lifecycleHandler) {
+                                  HeartbeatScheduler heartbeatScheduler) {
         this.maxWaitTimeMs = maxWaitTime.toMillis();
-        this.lifecycleHandler = lifecycleHandler;
+        this.heartbeatScheduler = heartbeatScheduler;
     }
 
     public void blockOnShutdownFailure(LifecycleHook trigger) {
@@ -40,15 +40,11 @@ public class BlockOnShutdownFailure {
         }
 
         LOG.info("Blocking execution for {}ms", maxWaitTimeMs);
-        int heartbeatIntervalMs = 60 * 1000;
-        long startTimeMs = System.currentTimeMillis();
-        while (System.currentTimeMillis() - startTimeMs <= maxWaitTimeMs) {
-            lifecycleHandler.sendHeartbeat(trigger);
-            try {
-                Thread.sleep(heartbeatIntervalMs);
-            } catch (InterruptedException e) {
-                LOG.error("Block interrupted.", e);
-            }
+        try (HeartbeatScheduler.Schedule ignored = heartbeatScheduler.start(trigger)) {
+            Thread.sleep(maxWaitTimeMs);
+        } catch (InterruptedException e) {
+            LOG.error("Block interrupted.", e);
+            Thread.currentThread().interrupt();
         }
     }
 }
@@ -12,26 +12,63 @@
 
 package com.adobe.aam.shredder.ec2.runner;
 
+import com.adobe.aam.shredder.core.command.Deadline;
 import com.adobe.aam.shredder.core.command.ScriptRunner;
+import com.adobe.aam.shredder.ec2.aws.HeartbeatScheduler;
 import com.adobe.aam.shredder.ec2.aws.LifecycleHandler;
 import com.adobe.aam.shredder.ec2.trigger.ShutdownLifecycleHookMessage;
 
 import javax.inject.Inject;
 import javax.inject.Named;
+import java.time.Duration;
+import java.util.Optional;
 
 public class ShutdownCommandsRunner {
 
     private final LifecycleHandler lifecycleHandler;
+    private final HeartbeatScheduler heartbeatScheduler;
     private final ScriptRunner shutdownScriptRunner;
+    private final Duration shutdownBudget;
 
     @Inject
     public ShutdownCommandsRunner(LifecycleHandler lifecycleHandler,
-                                  @Named("shutdownScriptRunner") ScriptRunner shutdownScriptRunner) {
+                                  HeartbeatScheduler heartbeatScheduler,
+                                  @Named("shutdownScriptRunner") ScriptRunner shutdownScriptRunner,
+                                  @Named("shutdownBudget") Duration shutdownBudget) {
         this.lifecycleHandler = lifecycleHandler;
+        this.heartbeatScheduler = heartbeatScheduler;
         this.shutdownScriptRunner = shutdownScriptRunner;
+        this.shutdownBudget = shutdownBudget;
     }
 
     public boolean getRunShutdownScriptsResult(ShutdownLifecycleHookMessage trigger) {
-        return shutdownScriptRunner.runScripts(() -> lifecycleHandler.sendHeartbeat(trigger));
+        try (HeartbeatScheduler.Schedule ignored = heartbeatScheduler.start(trigger)) {
+            return shutdownScriptRunner.runScripts(HeartbeatScheduler.SCHEDULED, getRunKey(trigger),
+                    getDeadline(trigger));
+        }
+    }
+
+    /**
+     * The configured shutdown budget, if any, otherwise the global timeout of the lifecycle hook, after which the
+     * Auto Scale Group carries on with the termination no matter how many heartbeats were sent.
+     */
+    private Deadline getDeadline(ShutdownLifecycleHookMessage trigger) {
+        Optional<Duration> budget = shutdownBudget.isZero()
+                ? lifecycleHandler.getGlobalTimeout(trigger)
+                : Optional.of(shutdownBudget);
+        return budget
+                .map(duration -> Deadline.at(trigger.getStartTime().plus(duration)))
+                .orElse(Deadline.none());
+    }
+
+    /**
+     * The same lifecycle action is delivered again if the daemon dies before running all the shutdown scripts, see
+     * {@link com.adobe.aam.shredder.ec2.trigger.ShutdownTriggerListener}, and the scripts which already succeeded are
+     * skipped.
+     */
+    private static String getRunKey(ShutdownLifecycleHookMessage trigger) {
+        return trigger.getLifecycleActionToken() != null
+                ? trigger.getLifecycleActionToken()
+                : trigger.getEc2InstanceId() + "/" + trigger.getLifecycleHookName();
     }
 }
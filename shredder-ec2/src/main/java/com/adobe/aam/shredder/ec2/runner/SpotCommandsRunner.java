@@ -0,0 +1,67 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+package com.adobe.aam.shredder.ec2.runner;
+
+import com.adobe.aam.shredder.core.command.Deadline;
+import com.adobe.aam.shredder.core.command.ScriptHeader;
+import com.adobe.aam.shredder.core.command.ScriptRunner;
+import com.adobe.aam.shredder.ec2.trigger.SpotNoticeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Fast path for a Spot instance being reclaimed: only the spot-safe shutdown scripts run, in parallel, under a hard
+ * deadline. The progress is recorded under the same key for all the notices of the instance, so that the scripts
+ * which already succeeded when the rebalance recommendation came are not run again on the interruption.
+ */
+@Singleton
+public class SpotCommandsRunner {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SpotCommandsRunner.class);
+
+    private final ScriptRunner spotScriptRunner;
+    private final Duration spotBudget;
+    private final Duration spotReserve;
+
+    @Inject
+    public SpotCommandsRunner(@Named("spotScriptRunner") ScriptRunner spotScriptRunner,
+                              @Named("spotBudget") Duration spotBudget,
+                              @Named("spotReserve") Duration spotReserve) {
+        this.spotScriptRunner = spotScriptRunner;
+        this.spotBudget = spotBudget;
+        this.spotReserve = spotReserve;
+    }
+
+    public boolean runSpotSafeScripts(SpotNoticeMessage notice) {
+        LOG.info("Running the spot-safe scripts for the Spot {} notice.", notice.getNotice());
+        return spotScriptRunner.runScripts(() -> { }, "spot/" + notice.getEc2InstanceId(), getDeadline(notice),
+                ScriptHeader::isSpotSafe);
+    }
+
+    /**
+     * The spot budget, cut short so that the reserve is left before the instance is reclaimed, eg. to upload the logs.
+     */
+    private Deadline getDeadline(SpotNoticeMessage notice) {
+        Instant deadline = Instant.now().plus(spotBudget);
+        Instant latest = notice.getInterruptionTime()
+                .map(time -> time.minus(spotReserve))
+                .orElse(deadline);
+        return Deadline.at(deadline.isBefore(latest) ? deadline : latest);
+    }
+}
@@ -13,27 +13,31 @@
 package com.adobe.aam.shredder.ec2.runner;
 
 import com.adobe.aam.shredder.core.command.ScriptRunner;
+import com.adobe.aam.shredder.ec2.aws.HeartbeatScheduler;
 import com.google.inject.Inject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Named;
+import java.util.function.Supplier;
 
 public class StartupCommandsRunner {
     private static final Logger LOG = LoggerFactory.getLogger(StartupCommandsRunner.class);
 
-    private final Runnable heartbeatLambda;
+    private final Supplier<HeartbeatScheduler.Schedule> startupHeartbeats;
     private final ScriptRunner startupScriptRunner;
 
     @Inject
-    public StartupCommandsRunner(@Named("heartbeatLambda") Runnable heartbeatLambda,
+    public StartupCommandsRunner(@Named("startupHeartbeats") Supplier<HeartbeatScheduler.Schedule> startupHeartbeats,
                                  @Named("startupScriptRunner") ScriptRunner startupScriptRunner) {
-        this.heartbeatLambda = heartbeatLambda;
+        this.startupHeartbeats = startupHeartbeats;
         this.startupScriptRunner = startupScriptRunner;
     }
 
     public boolean getRunStartupScriptsResult() {
         LOG.info("Running startup scripts from: {}", startupScriptRunner.getScriptsPath());
-        return startupScriptRunner.runScripts(heartbeatLambda);
+        try (HeartbeatScheduler.Schedule ignored = startupHeartbeats.get()) {
+            return startupScriptRunner.runScripts(HeartbeatScheduler.SCHEDULED);
+        }
     }
 }
@@ -25,6 +25,7 @@ import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import javax.inject.Named;
+import java.util.concurrent.CompletableFuture;
 
 public class ShutdownService {
 
@@ -55,10 +56,21 @@ public class ShutdownService {
         this.lifecycleHandler = lifecycleHandler;
     }
 
+    /**
+     * Starts listening for the shutdown trigger right away, so that it can preempt the startup.
+     */
+    public CompletableFuture<ShutdownLifecycleHookMessage> listenForShutdownTrigger() {
+        return shutdownTriggerListener.startListening();
+    }
+
     public boolean getShutdownResult(boolean startupSuccessful) {
-        ShutdownLifecycleHookMessage trigger = shutdownTriggerListener.listenForShutdownTrigger();
+        return getShutdownResult(startupSuccessful, shutdownTriggerListener.listenForShutdownTrigger());
+    }
 
+    public boolean getShutdownResult(boolean startupSuccessful, ShutdownLifecycleHookMessage trigger) {
         boolean shutdownSuccessful = shouldShutdown(startupSuccessful, trigger);
+        // only now, so that the trigger is delivered again if the daemon dies while running the shutdown scripts
+        shutdownTriggerListener.acknowledge();
         shredderLogUploader.uploadShutdownLogs(shutdownSuccessful);
         notifier.notifyMonitoringServiceAboutShutdown(shutdownSuccessful);
         if (shutdownSuccessful) {
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+package com.adobe.aam.shredder.ec2.service;
+
+import com.adobe.aam.shredder.core.aws.trigger.TriggerWatcher;
+import com.adobe.aam.shredder.ec2.log.ShredderLogUploader;
+import com.adobe.aam.shredder.ec2.notifier.Notifier;
+import com.adobe.aam.shredder.ec2.runner.SpotCommandsRunner;
+import com.adobe.aam.shredder.ec2.trigger.SpotNoticeMessage;
+import io.reactivex.schedulers.Schedulers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+
+/**
+ * Reacts to the Spot notices in the background, next to the lifecycle hooks: a rebalance recommendation starts
+ * draining the instance early, with the spot-safe scripts, and an interruption runs the spot-safe scripts which are
+ * left before the instance is reclaimed. Spot instances are reclaimed without any lifecycle action to complete.
+ */
+public class SpotInterruptionService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SpotInterruptionService.class);
+
+    private final boolean spotEnabled;
+    private final TriggerWatcher spotTriggerWatcher;
+    private final Provider<SpotCommandsRunner> spotCommandsRunnerProvider;
+    private final ShredderLogUploader shredderLogUploader;
+    private final Notifier notifier;
+    private SpotCommandsRunner spotCommandsRunner;
+
+    @Inject
+    public SpotInterruptionService(@Named("spotEnabled") boolean spotEnabled,
+                                   @Named("spotTriggerWatcher") TriggerWatcher spotTriggerWatcher,
+                                   Provider<SpotCommandsRunner> spotCommandsRunnerProvider,
+                                   ShredderLogUploader shredderLogUploader,
+                                   Notifier notifier) {
+        this.spotEnabled = spotEnabled;
+        this.spotTriggerWatcher = spotTriggerWatcher;
+        this.spotCommandsRunnerProvider = spotCommandsRunnerProvider;
+        this.shredderLogUploader = shredderLogUploader;
+        this.notifier = notifier;
+    }
+
+    /**
+     * Nothing is set up when Spot notices are disabled, not even the script runner. Otherwise the runner is built
+     * once, before watching, and serves every notice.
+     */
+    public void start() {
+        if (!spotEnabled) {
+            return;
+        }
+        spotCommandsRunner = spotCommandsRunnerProvider.get();
+
+        // the notices are handled one at a time: an interruption received while draining waits for the drain, and
+        // only runs the scripts that didn't succeed
+        spotTriggerWatcher.requestTriggers("", SpotNoticeMessage.class)
+                .subscribeOn(Schedulers.io())
+                .subscribe(this::handle, t -> LOG.error("Stopped watching for Spot notices.", t));
+    }
+
+    private void handle(SpotNoticeMessage notice) {
+        if (!notice.isInterruption()) {
+            LOG.info("Spot rebalance recommendation received. Draining the instance early.");
+            spotCommandsRunner.runSpotSafeScripts(notice);
+            return;
+        }
+
+        LOG.warn("Spot interruption: the instance will {} at {}.", notice.getAction(), notice.getTime());
+        boolean successful = spotCommandsRunner.runSpotSafeScripts(notice);
+        shredderLogUploader.uploadShutdownLogs(successful);
+        notifier.notifyMonitoringServiceAboutShutdown(successful);
+    }
+}
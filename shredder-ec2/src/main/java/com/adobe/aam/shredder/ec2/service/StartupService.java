@@ -22,6 +22,9 @@ import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class StartupService {
 
@@ -42,13 +45,25 @@ public class StartupService {
     }
 
     public boolean getStartupResult() throws IOException {
+        return getStartupResult(new CompletableFuture<>());
+    }
+
+    /**
+     * Runs the startup, unless it already ran. If the shutdown trigger arrives in the meantime, the startup is
+     * interrupted, which kills the running script, and is considered failed so that the shutdown can start right
+     * away. A preempted startup is not persisted.
+     */
+    public boolean getStartupResult(CompletableFuture<?> shutdownTrigger) throws IOException {
         Result previousStartup = startupResultPersist.getPreviousStartupResult();
         switch (previousStartup) {
             case STARTUP_NOT_RUN:
                 LOG.info("Running startup scripts.");
-                boolean startupSuccessful = runStartup();
-                startupResultPersist.persist(startupSuccessful);
-                return startupSuccessful;
+                Optional<Boolean> startupSuccessful = runStartupUnlessPreempted(shutdownTrigger);
+                if (!startupSuccessful.isPresent()) {
+                    return false;
+                }
+                startupResultPersist.persist(startupSuccessful.get());
+                return startupSuccessful.get();
             case SUCCESSFUL:
                 LOG.info("Startup scripts already ran successfully in the past. Skipping.");
                 return true;
@@ -58,13 +73,44 @@ public class StartupService {
         }
     }
 
-    private boolean runStartup() {
-        boolean startupSuccessful = startupRunner.getStartupResult();
+    /**
+     * @return empty if the startup was preempted by the shutdown trigger
+     */
+    private Optional<Boolean> runStartupUnlessPreempted(CompletableFuture<?> shutdownTrigger) {
+        Thread startupThread = Thread.currentThread();
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicBoolean preempted = new AtomicBoolean();
+        shutdownTrigger.thenRun(() -> {
+            synchronized (running) {
+                if (running.get()) {
+                    LOG.warn("Shutdown trigger received during startup. Interrupting the startup.");
+                    preempted.set(true);
+                    startupThread.interrupt();
+                }
+            }
+        });
+
+        boolean startupSuccessful;
+        try {
+            startupSuccessful = startupRunner.getStartupResult();
+        } finally {
+            synchronized (running) {
+                running.set(false);
+                // the interrupt may have been swallowed or may still be pending: either way, it is handled here
+                Thread.interrupted();
+            }
+        }
+
+        if (preempted.get()) {
+            LOG.warn("Startup preempted by the shutdown trigger.");
+            shredderLogUploader.uploadStartupLogs(false);
+            return Optional.empty();
+        }
         LOG.info("Startup successful: {}", startupSuccessful);
         shredderLogUploader.uploadStartupLogs(startupSuccessful);
         notifier.notifyMonitoringServiceAboutStartup(startupSuccessful);
         notifier.notifyAutoScaleGroup(startupSuccessful);
 
-        return startupSuccessful;
+        return Optional.of(startupSuccessful);
     }
 }
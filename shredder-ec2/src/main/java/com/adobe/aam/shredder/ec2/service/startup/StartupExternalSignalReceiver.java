@@ -12,6 +12,7 @@
 
 package com.adobe.aam.shredder.ec2.service.startup;
 
+import com.adobe.aam.shredder.ec2.aws.HeartbeatScheduler;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
@@ -22,13 +23,10 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.net.InetSocketAddress;
 import java.time.Duration;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
-
-import static com.adobe.aam.shredder.core.aws.servergroup.AutoScaleGroupHelper.HEARTBEAT_INTERVAL_MS;
+import java.util.function.Supplier;
 
 public class StartupExternalSignalReceiver implements StartupRunner {
 
@@ -38,13 +36,14 @@ public class StartupExternalSignalReceiver implements StartupRunner {
     private final HttpServer server;
     private final int httpPort;
     private final Duration timeout;
-    private final Runnable heartbeat;
+    private final Supplier<HeartbeatScheduler.Schedule> heartbeats;
 
-    public StartupExternalSignalReceiver(int httpPort, Duration timeout, Runnable heartbeat) throws IOException {
+    public StartupExternalSignalReceiver(int httpPort, Duration timeout,
+                                         Supplier<HeartbeatScheduler.Schedule> heartbeats) throws IOException {
         this.server = HttpServer.create(new InetSocketAddress(httpPort), 0);
         this.httpPort = httpPort;
         this.timeout = timeout;
-        this.heartbeat = heartbeat;
+        this.heartbeats = heartbeats;
     }
 
     @Override
@@ -55,24 +54,14 @@ public class StartupExternalSignalReceiver implements StartupRunner {
         server.setExecutor(null); // creates a default executor
         server.start();
 
-        Timer heartbeatTimer = startHeartbeatTimer();
-        boolean startupSuccessful = waitHttpResult();
-        heartbeatTimer.cancel();
+        boolean startupSuccessful;
+        try (HeartbeatScheduler.Schedule ignored = heartbeats.get()) {
+            startupSuccessful = waitHttpResult();
+        }
         server.stop(0);
         return startupSuccessful;
     }
 
-    private Timer startHeartbeatTimer() {
-        TimerTask task = new TimerTask() {
-            public void run() {
-                heartbeat.run();
-            }
-        };
-        Timer heartbeatTimer = new Timer("HeartbeatTimer");
-        heartbeatTimer.schedule(task, 0, HEARTBEAT_INTERVAL_MS);
-        return heartbeatTimer;
-    }
-
     private boolean waitHttpResult() {
         LOG.info("Waiting up to {} minutes for an external HTTP signal to be received on port {}, /startup-ok or /startup-fail",
                 timeout.toMinutes(), httpPort);
@@ -32,6 +32,7 @@ public class LifecycleHookMessage implements TriggerMessage, LifecycleHook {
     private String lifecycleActionToken;
     private String lifecycleTransition;
     private String ec2InstanceId;
+    private String time;
 
     public String getLifecycleHookName() {
         return lifecycleHookName;
@@ -52,9 +53,19 @@ public class LifecycleHookMessage implements TriggerMessage, LifecycleHook {
     public String getEc2InstanceId() {
         return ec2InstanceId;
     }
+
+    /**
+     * @return when the lifecycle action started, in ISO-8601 format
+     */
+    public String getTime() {
+        return time;
+    }
     
     @JsonIgnore
     public Type getType() {
+        if (getLifecycleTransition() == null) {
+            return UNKNOWN;
+        }
         switch (getLifecycleTransition()) {
             case "autoscaling:EC2_INSTANCE_TERMINATING":
                 return TERMINATING;
@@ -73,6 +84,7 @@ public class LifecycleHookMessage implements TriggerMessage, LifecycleHook {
                 ", lifecycleActionToken='" + getLifecycleActionToken() + '\'' +
                 ", lifecycleTransition='" + getLifecycleTransition() + '\'' +
                 ", ec2InstanceId='" + getEc2InstanceId() + '\'' +
+                ", time='" + getTime() + '\'' +
                 ", type='" + getType() + '\'' +
                 '}';
     }
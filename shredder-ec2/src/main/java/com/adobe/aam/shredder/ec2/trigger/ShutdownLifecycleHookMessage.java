@@ -15,6 +15,8 @@ package com.adobe.aam.shredder.ec2.trigger;
 import com.adobe.aam.shredder.core.trigger.TriggerMessage;
 import com.adobe.aam.shredder.ec2.aws.LifecycleHook;
 
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.util.Optional;
 
 public class ShutdownLifecycleHookMessage implements TriggerMessage, LifecycleHook {
@@ -22,11 +24,15 @@ public class ShutdownLifecycleHookMessage implements TriggerMessage, LifecycleHo
     private final String ec2InstanceId;
     private final String lifecycleHookName;
     private final String autoScaleGroupname;
+    private final String lifecycleActionToken;
+    private final Instant startTime;
 
     private ShutdownLifecycleHookMessage(LifecycleHookMessage message) {
         ec2InstanceId = message.getEc2InstanceId();
         lifecycleHookName = message.getLifecycleHookName();
         autoScaleGroupname = message.getAutoScalingGroupName();
+        lifecycleActionToken = message.getLifecycleActionToken();
+        startTime = parseTime(message.getTime());
     }
 
     /**
@@ -52,4 +58,23 @@ public class ShutdownLifecycleHookMessage implements TriggerMessage, LifecycleHo
     public String getAutoScalingGroupName() {
         return autoScaleGroupname;
     }
+
+    public String getLifecycleActionToken() {
+        return lifecycleActionToken;
+    }
+
+    /**
+     * @return when the lifecycle action started, or when the message was received if the message has no time
+     */
+    public Instant getStartTime() {
+        return startTime;
+    }
+
+    private static Instant parseTime(String time) {
+        try {
+            return time != null ? Instant.parse(time) : Instant.now();
+        } catch (DateTimeParseException e) {
+            return Instant.now();
+        }
+    }
 }
@@ -13,20 +13,31 @@
 package com.adobe.aam.shredder.ec2.trigger;
 
 import com.adobe.aam.shredder.core.aws.trigger.TriggerWatcher;
+import com.adobe.aam.shredder.core.trigger.ReceivedTrigger;
+import com.google.common.collect.ImmutableMap;
 import com.google.inject.Inject;
+import io.reactivex.disposables.Disposable;
 import io.reactivex.schedulers.Schedulers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Named;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
+/**
+ * The lifecycle message is only acknowledged once the shutdown was handled, see {@link #acknowledge()}: if the daemon
+ * dies in the meantime, the message is delivered again, by the watchers which support it, once the daemon is back.
+ */
 public class ShutdownTriggerListener {
     private static final Logger LOG = LoggerFactory.getLogger(ShutdownTriggerListener.class);
 
     private final TriggerWatcher triggerWatcher;
     private final String instanceId;
     private String queueName;
+    private CompletableFuture<ShutdownLifecycleHookMessage> trigger;
+    private ReceivedTrigger<LifecycleHookMessage> received;
+    private Disposable subscription;
 
     @Inject
     ShutdownTriggerListener(TriggerWatcher triggerWatcher,
@@ -38,14 +49,51 @@ public class ShutdownTriggerListener {
     }
 
     public ShutdownLifecycleHookMessage listenForShutdownTrigger() {
-         return triggerWatcher
-                .requestTriggers(queueName, LifecycleHookMessage.class)
-                .filter(trigger -> instanceId.equals(trigger.getEc2InstanceId()))
-                .map(ShutdownLifecycleHookMessage::of)
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .doOnNext(trigger -> LOG.info("Received shutdown trigger: {}", trigger))
+        return startListening().join();
+    }
+
+    /**
+     * Starts listening without blocking, eg. while the startup scripts are still running. The queue is watched until
+     * the trigger is acknowledged.
+     */
+    public synchronized CompletableFuture<ShutdownLifecycleHookMessage> startListening() {
+        if (trigger != null) {
+            return trigger;
+        }
+        trigger = new CompletableFuture<>();
+        subscription = triggerWatcher
+                .receiveTriggers(queueName, LifecycleHookMessage.class, ImmutableMap.of("EC2InstanceId", instanceId))
                 .subscribeOn(Schedulers.io())
-                .blockingFirst();
+                .subscribe(this::handle, trigger::completeExceptionally);
+        return trigger;
+    }
+
+    /**
+     * Acknowledges the shutdown trigger, once the shutdown was handled, and stops listening.
+     */
+    public synchronized void acknowledge() {
+        if (received != null) {
+            received.ack();
+        }
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    private synchronized void handle(ReceivedTrigger<LifecycleHookMessage> message) {
+        // the messages of other instances are normally filtered out already, by SNS or the watcher
+        LifecycleHookMessage lifecycleMessage = message.getTrigger();
+        Optional<ShutdownLifecycleHookMessage> shutdownTrigger = instanceId.equals(lifecycleMessage.getEc2InstanceId())
+                ? ShutdownLifecycleHookMessage.of(lifecycleMessage)
+                : Optional.empty();
+        if (!shutdownTrigger.isPresent() || received != null) {
+            // nothing to do, or the trigger of the shutdown which is already being handled
+            message.ack();
+            return;
+        }
+
+        LOG.info("Received shutdown trigger: {}", shutdownTrigger.get());
+        received = message;
+        trigger.complete(shutdownTrigger.get());
     }
 }
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+package com.adobe.aam.shredder.ec2.trigger;
+
+import com.adobe.aam.shredder.core.aws.trigger.SpotInterruptionWatcher;
+import com.adobe.aam.shredder.core.trigger.TriggerMessage;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Optional;
+
+/**
+ * A Spot interruption notice or rebalance recommendation, see {@link SpotInterruptionWatcher}.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class SpotNoticeMessage implements TriggerMessage {
+
+    private String ec2InstanceId;
+    private String notice;
+    private String action;
+    private String time;
+
+    public String getEc2InstanceId() {
+        return ec2InstanceId;
+    }
+
+    public String getNotice() {
+        return notice;
+    }
+
+    /**
+     * @return what happens to the instance when it is reclaimed (terminate, stop or hibernate), for an interruption
+     */
+    public String getAction() {
+        return action;
+    }
+
+    public String getTime() {
+        return time;
+    }
+
+    @JsonIgnore
+    public boolean isInterruption() {
+        return SpotInterruptionWatcher.INTERRUPTION.equals(notice);
+    }
+
+    /**
+     * @return when the instance is reclaimed, for an interruption
+     */
+    @JsonIgnore
+    public Optional<Instant> getInterruptionTime() {
+        try {
+            return isInterruption() && time != null ? Optional.of(Instant.parse(time)) : Optional.empty();
+        } catch (DateTimeParseException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SpotNoticeMessage{" +
+                "ec2InstanceId='" + ec2InstanceId + '\'' +
+                ", notice='" + notice + '\'' +
+                ", action='" + action + '\'' +
+                ", time='" + time + '\'' +
+                '}';
+    }
+}
@@ -10,9 +10,11 @@
  * governing permissions and limitations under the License.
  */
 
+import com.adobe.aam.shredder.core.command.ScriptMetrics
 import com.adobe.aam.shredder.ec2.monitoring.CloudWatchSender
 import com.adobe.aam.shredder.ec2.aws.InstanceDetails
 import com.adobe.aam.shredder.ec2.trigger.LifecycleHookMessage
+import com.amazonaws.AmazonClientException
 import com.amazonaws.services.cloudwatch.AmazonCloudWatch
 import com.amazonaws.services.cloudwatch.AmazonCloudWatchClientBuilder
 import com.amazonaws.services.cloudwatch.model.Dimension
@@ -50,6 +52,103 @@ class CloudWatchTest extends Specification {
                                                        dimension("environment", "env")] as Set
     }
 
+    def "test sending the resources used by a script to CloudWatch"() {
+        given:
+        List<PutMetricDataRequest> requests = []
+        def cloudWatch = Mock(AmazonCloudWatch) {
+            putMetricData(_) >> { args ->
+                requests << args[0]
+                return null
+            }
+        }
+        def cloudWatchSender = new CloudWatchSender(cloudWatch, "appName", "namespace", "env")
+        def instanceDetails = Mock(InstanceDetails) {
+            getAutoScalingGroupName() >> "asgName"
+            getRegionName() >> "regionName"
+        }
+        def metrics = scriptMetrics("/opt/scripts/10-stop.sh", false, 3, -1)
+
+        when:
+        cloudWatchSender.sendScriptMetrics(instanceDetails, [metrics])
+
+        then: "the values which could not be measured are skipped"
+        requests.size() == 1
+        requests[0].namespace == "namespace"
+        requests[0].metricData*.metricName == ["scriptWallTime", "scriptUserCpu", "scriptSystemCpu",
+                                               "scriptReadBytes", "scriptWriteBytes", "scriptExitCode"]
+        requests[0].metricData.find { it.metricName == "scriptExitCode" }.value == 3.0
+        requests[0].metricData.every { it.dimensions.contains(dimension("script", "10-stop.sh")) }
+        requests[0].metricData.every { it.dimensions.contains(dimension("asgName", "asgName")) }
+    }
+
+    def "test the exit code of a script which timed out is not sent"() {
+        given:
+        List<PutMetricDataRequest> requests = []
+        def cloudWatch = Mock(AmazonCloudWatch) {
+            putMetricData(_) >> { args ->
+                requests << args[0]
+                return null
+            }
+        }
+        def cloudWatchSender = new CloudWatchSender(cloudWatch, "appName", "namespace", "env")
+
+        when:
+        cloudWatchSender.sendScriptMetrics(Mock(InstanceDetails), [scriptMetrics("stop.sh", true, -1, 1024)])
+
+        then:
+        requests*.metricData.flatten()*.metricName == ["scriptWallTime", "scriptUserCpu", "scriptSystemCpu",
+                                                       "scriptPeakRss", "scriptReadBytes", "scriptWriteBytes"]
+    }
+
+    def "test the metrics of several scripts are sent in requests of at most 20 metrics"() {
+        given:
+        List<PutMetricDataRequest> requests = []
+        def cloudWatch = Mock(AmazonCloudWatch) {
+            putMetricData(_) >> { args ->
+                requests << args[0]
+                return null
+            }
+        }
+        def cloudWatchSender = new CloudWatchSender(cloudWatch, "appName", "namespace", "env")
+        def scripts = (1..5).collect { scriptMetrics("script-" + it + ".sh", false, 0, 1024) }
+
+        when:
+        cloudWatchSender.sendScriptMetrics(Mock(InstanceDetails), scripts)
+
+        then: "7 metrics per script"
+        requests*.metricData*.size() == [20, 15]
+        requests*.metricData.flatten().collect { it.dimensions.find { it.name == "script" }.value }.unique() ==
+                (1..5).collect { "script-" + it + ".sh" }
+    }
+
+    def "test a CloudWatch failure is not propagated"() {
+        given:
+        def cloudWatch = Mock(AmazonCloudWatch) {
+            putMetricData(_) >> { throw new AmazonClientException("throttled") }
+        }
+        def cloudWatchSender = new CloudWatchSender(cloudWatch, "appName", "namespace", "env")
+
+        when:
+        cloudWatchSender.sendScriptMetrics(Mock(InstanceDetails), [scriptMetrics("stop.sh", false, 0, 1024)])
+
+        then:
+        noExceptionThrown()
+    }
+
+    ScriptMetrics scriptMetrics(String command, boolean timedOut, int exitCode, long peakRssBytes) {
+        return Stub(ScriptMetrics) {
+            getCommand() >> command
+            isTimedOut() >> timedOut
+            getExitCode() >> exitCode
+            getWallTimeMs() >> 2000
+            getUserCpuMs() >> 300
+            getSystemCpuMs() >> 40
+            getPeakRssBytes() >> peakRssBytes
+            getReadBytes() >> 0
+            getWrittenBytes() >> 4096
+        }
+    }
+
     Dimension dimension(String name, String value) {
         return new Dimension()
                 .withName(name)
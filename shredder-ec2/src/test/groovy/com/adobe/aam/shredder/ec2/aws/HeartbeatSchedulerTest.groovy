@@ -0,0 +1,180 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+package com.adobe.aam.shredder.ec2.aws
+
+import com.adobe.aam.shredder.core.aws.servergroup.AutoScaleGroupHelper
+import com.adobe.aam.shredder.ec2.di.ShredderConfigModule
+import com.typesafe.config.ConfigFactory
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+import static com.adobe.aam.shredder.core.aws.servergroup.AutoScaleGroupHelper.HEARTBEAT_INTERVAL_MS
+
+class HeartbeatSchedulerTest extends Specification {
+
+    def heartbeats = new AtomicInteger()
+    def lifecycleHandler = Mock(LifecycleHandler) {
+        sendHeartbeat(_) >> { heartbeats.incrementAndGet() }
+    }
+    def lookupsEntered = new CountDownLatch(2)
+    def lookedUp = new CountDownLatch(1)
+    def lookups = new AtomicInteger()
+    // a one hour HeartbeatTimeout, so that only the heartbeat sent right away is seen
+    def asgHelper = Mock(AutoScaleGroupHelper) {
+        getLifecycleHook("asg", "hook") >> {
+            lookups.incrementAndGet()
+            lookupsEntered.countDown()
+            lookedUp.await(5, TimeUnit.SECONDS)
+            Optional.of(new com.amazonaws.services.autoscaling.model.LifecycleHook().withHeartbeatTimeout(3600))
+        }
+    }
+    def scheduler = new HeartbeatScheduler(lifecycleHandler, asgHelper, 0.25)
+    def action = Stub(LifecycleHook) {
+        getEc2InstanceId() >> "i-1"
+        getAutoScalingGroupName() >> "asg"
+        getLifecycleHookName() >> "hook"
+    }
+
+    def "the requesters of an action share its schedule until the last one closes it"() {
+        setup:
+        lookedUp.countDown()
+
+        when:
+        def first = scheduler.start(action)
+        def second = scheduler.start(action)
+        first.close()
+        def third = scheduler.start(action)
+
+        then:
+        awaitHeartbeats(1)
+        lookups.get() == 1
+
+        when:
+        second.close()
+        third.close()
+        def fourth = scheduler.start(action)
+
+        then:
+        awaitHeartbeats(2)
+        lookups.get() == 2
+
+        cleanup:
+        fourth?.close()
+    }
+
+    def "concurrent starts racing over the lookup of the hook get a single schedule"() {
+        setup:
+        def pool = Executors.newFixedThreadPool(2)
+
+        when:
+        def pending = (1..2).collect { pool.submit({ scheduler.start(action) } as Callable) }
+        def bothLookedUp = lookupsEntered.await(5, TimeUnit.SECONDS)
+        lookedUp.countDown()
+        def schedules = pending*.get(5, TimeUnit.SECONDS)
+
+        then:
+        bothLookedUp
+        awaitHeartbeats(1)
+
+        cleanup:
+        schedules*.close()
+        pool.shutdown()
+    }
+
+    def "closing a schedule twice releases it once"() {
+        setup:
+        lookedUp.countDown()
+
+        when:
+        def first = scheduler.start(action)
+        def second = scheduler.start(action)
+        first.close()
+        first.close()
+        def third = scheduler.start(action)
+
+        then:
+        awaitHeartbeats(1)
+        lookups.get() == 1
+
+        cleanup:
+        second.close()
+        third.close()
+    }
+
+    def "no heartbeat is sent without a lifecycle action"() {
+        when:
+        scheduler.start(Optional.empty()).close()
+        Thread.sleep(100)
+
+        then:
+        heartbeats.get() == 0
+    }
+
+    @Unroll("the heartbeats of a #timeout s HeartbeatTimeout are sent every #expected ms")
+    def "the heartbeat interval is a fraction of the HeartbeatTimeout, with a floor and a fallback"() {
+        setup:
+        def helper = Stub(AutoScaleGroupHelper) {
+            getLifecycleHook("asg", "hook") >> Optional.ofNullable(timeout).map {
+                new com.amazonaws.services.autoscaling.model.LifecycleHook().withHeartbeatTimeout(it)
+            }
+        }
+
+        expect:
+        new HeartbeatScheduler(lifecycleHandler, helper, 0.25).getIntervalMs(action) == expected
+
+        where:
+        timeout | expected
+        3600    | 900_000
+        60      | 15_000
+        30      | 7_500
+        10      | 5_000
+        null    | HEARTBEAT_INTERVAL_MS
+    }
+
+    @Unroll("rejects a heartbeat_timeout_fraction of #fraction")
+    def "the heartbeat timeout fraction must be between 0 and 1"() {
+        when:
+        new ShredderConfigModule().getHeartbeatTimeoutFraction(
+                ConfigFactory.parseMap([heartbeat_timeout_fraction: fraction]))
+
+        then:
+        thrown(IllegalArgumentException)
+
+        where:
+        fraction << [0, 1, 1.5, -0.25]
+    }
+
+    def "accepts the default heartbeat timeout fraction"() {
+        expect:
+        new ShredderConfigModule().getHeartbeatTimeoutFraction(ConfigFactory.empty()) ==
+                HeartbeatScheduler.DEFAULT_TIMEOUT_FRACTION
+    }
+
+    /**
+     * Waits for the heartbeats sent right away by the schedules, then checks that no other schedule sent any.
+     */
+    private boolean awaitHeartbeats(int expected) {
+        def deadline = System.currentTimeMillis() + 5000
+        while (heartbeats.get() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10)
+        }
+        Thread.sleep(100)
+        heartbeats.get() == expected
+    }
+}
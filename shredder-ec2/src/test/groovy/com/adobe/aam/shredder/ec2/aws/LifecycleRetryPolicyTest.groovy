@@ -0,0 +1,81 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+package com.adobe.aam.shredder.ec2.aws
+
+import com.amazonaws.AmazonClientException
+import com.amazonaws.AmazonServiceException
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.time.Duration
+
+import static com.adobe.aam.shredder.ec2.aws.LifecycleRetryPolicy.Failure.CLIENT_ERROR
+import static com.adobe.aam.shredder.ec2.aws.LifecycleRetryPolicy.Failure.REJECTED
+import static com.adobe.aam.shredder.ec2.aws.LifecycleRetryPolicy.Failure.SERVER_ERROR
+import static com.adobe.aam.shredder.ec2.aws.LifecycleRetryPolicy.Failure.THROTTLED
+
+class LifecycleRetryPolicyTest extends Specification {
+
+    def policy = new LifecycleRetryPolicy(Duration.ofMillis(100), Duration.ofSeconds(2), Duration.ofMinutes(1))
+
+    @Unroll("classifies #errorCode (#statusCode) as #expected")
+    def "classifies the AWS errors"(errorCode, statusCode, expected) {
+        given:
+        def e = new AmazonServiceException("failed")
+        e.errorCode = errorCode
+        e.statusCode = statusCode
+        e.errorType = statusCode >= 500
+                ? AmazonServiceException.ErrorType.Service
+                : AmazonServiceException.ErrorType.Client
+
+        expect:
+        LifecycleRetryPolicy.classify(e) == expected
+        policy.isRetryable(e) == (expected != REJECTED)
+
+        where:
+        errorCode              | statusCode | expected
+        "Throttling"           | 400        | THROTTLED
+        "RequestLimitExceeded" | 503        | THROTTLED
+        "InternalFailure"      | 500        | SERVER_ERROR
+        "ServiceUnavailable"   | 503        | SERVER_ERROR
+        "ValidationError"      | 400        | REJECTED
+        "AccessDenied"         | 403        | REJECTED
+    }
+
+    def "retries when the service can't be reached"() {
+        expect:
+        LifecycleRetryPolicy.classify(new AmazonClientException("Unable to execute HTTP request")) == CLIENT_ERROR
+        !policy.isRetryable(new IllegalStateException())
+    }
+
+    def "waits a random delay under an exponentially growing ceiling, capped by the max delay"() {
+        given:
+        def failure = new AmazonClientException("timeout")
+
+        expect:
+        (1..50).every { policy.getDelayMs(1, failure) in 0..100 }
+        (1..50).every { policy.getDelayMs(3, failure) in 0..400 }
+        (1..50).every { policy.getDelayMs(40, failure) in 0..2000 }
+        (1..200).collect { policy.getDelayMs(3, failure) }.unique().size() > 1
+    }
+
+    def "backs off from a larger base when throttled"() {
+        given:
+        def throttled = new AmazonServiceException("Rate exceeded")
+        throttled.errorCode = "Throttling"
+
+        expect:
+        (1..50).every { policy.getDelayMs(1, throttled) in 0..400 }
+        (1..200).any { policy.getDelayMs(1, throttled) > 100 }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+package com.adobe.aam.shredder.ec2.monitoring
+
+import com.adobe.aam.shredder.core.command.ScriptMetrics
+import com.adobe.aam.shredder.ec2.aws.InstanceDetails
+import com.adobe.aam.shredder.ec2.aws.InstanceDetailsRetriever
+import spock.lang.Specification
+
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class ScriptMetricsPublisherTest extends Specification {
+
+    def details = Mock(InstanceDetails)
+    def retriever = Mock(InstanceDetailsRetriever)
+    def sent = new CopyOnWriteArrayList<List<ScriptMetrics>>()
+    def firstSendStarted = new CountDownLatch(1)
+    def firstSendReleased = new CountDownLatch(1)
+    def monitoringService = Mock(MonitoringService) {
+        sendScriptMetrics(_, _) >> { InstanceDetails message, List<ScriptMetrics> metrics ->
+            firstSendStarted.countDown()
+            firstSendReleased.await(5, TimeUnit.SECONDS)
+            sent << metrics
+        }
+    }
+    def publisher = new ScriptMetricsPublisher(monitoringService, retriever)
+
+    def "the metrics are sent in the background, those of the scripts finished meanwhile together"() {
+        given:
+        retriever.getInstanceDetails() >> Optional.of(details)
+
+        when: "the first request is in flight while two more scripts finish"
+        publisher.onScriptFinished(metrics("first.sh"))
+        def inFlight = firstSendStarted.await(5, TimeUnit.SECONDS)
+        publisher.onScriptFinished(metrics("second.sh"))
+        publisher.onScriptFinished(metrics("third.sh"))
+        firstSendReleased.countDown()
+        awaitSent(2)
+
+        then:
+        inFlight
+        sent.collect { it*.command } == [["first.sh"], ["second.sh", "third.sh"]]
+    }
+
+    def "the metrics are dropped when the instance details can't be looked up"() {
+        given:
+        retriever.getInstanceDetails() >> Optional.empty()
+
+        when:
+        publisher.onScriptFinished(metrics("first.sh"))
+        awaitSent(1)
+
+        then:
+        sent.isEmpty()
+    }
+
+    private void awaitSent(int requests) {
+        def deadline = System.currentTimeMillis() + 5000
+        while (sent.size() < requests && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10)
+        }
+        Thread.sleep(100)
+    }
+
+    private ScriptMetrics metrics(String command) {
+        Stub(ScriptMetrics) {
+            getCommand() >> command
+        }
+    }
+}
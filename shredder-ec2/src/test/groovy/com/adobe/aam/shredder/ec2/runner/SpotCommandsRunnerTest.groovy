@@ -0,0 +1,91 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+package com.adobe.aam.shredder.ec2.runner
+
+import com.adobe.aam.shredder.core.command.Deadline
+import com.adobe.aam.shredder.core.command.ScriptRunner
+import com.adobe.aam.shredder.ec2.trigger.SpotNoticeMessage
+import com.fasterxml.jackson.databind.MapperFeature
+import com.fasterxml.jackson.databind.ObjectMapper
+import spock.lang.Specification
+
+import java.time.Duration
+import java.time.Instant
+
+import static com.adobe.aam.shredder.core.aws.trigger.SpotInterruptionWatcher.INTERRUPTION
+import static com.adobe.aam.shredder.core.aws.trigger.SpotInterruptionWatcher.REBALANCE_RECOMMENDATION
+
+class SpotCommandsRunnerTest extends Specification {
+
+    def mapper = new ObjectMapper().configure(MapperFeature.ACCEPT_CASE_INSENSITIVE_PROPERTIES, true)
+    def budget = Duration.ofSeconds(90)
+    def reserve = Duration.ofSeconds(20)
+    Deadline deadline
+    String runKey
+    def scriptRunner = Mock(ScriptRunner) {
+        runScripts(_, _, _, _) >> { heartbeat, key, scriptDeadline, selection ->
+            runKey = key
+            deadline = scriptDeadline
+            true
+        }
+    }
+    def runner = new SpotCommandsRunner(scriptRunner, budget, reserve)
+
+    def "test a rebalance recommendation gets the whole budget"() {
+        when:
+        def start = System.currentTimeMillis()
+        def successful = runner.runSpotSafeScripts(notice(REBALANCE_RECOMMENDATION, Instant.now().plusSeconds(30)))
+
+        then:
+        successful
+        runKey == "spot/i-1"
+        deadline.getEpochMs() >= start + budget.toMillis()
+        deadline.getEpochMs() <= System.currentTimeMillis() + budget.toMillis()
+    }
+
+    def "test an interruption far enough away gets the whole budget"() {
+        when:
+        def start = System.currentTimeMillis()
+        runner.runSpotSafeScripts(notice(INTERRUPTION, Instant.now().plus(budget).plus(reserve).plusSeconds(60)))
+
+        then:
+        deadline.getEpochMs() >= start + budget.toMillis()
+        deadline.getEpochMs() <= System.currentTimeMillis() + budget.toMillis()
+    }
+
+    def "test an interruption within the budget leaves the reserve before the instance is reclaimed"() {
+        setup:
+        def interruption = Instant.ofEpochSecond(Instant.now().plusSeconds(60).getEpochSecond())
+
+        when:
+        runner.runSpotSafeScripts(notice(INTERRUPTION, interruption))
+
+        then:
+        deadline.getEpochMs() == interruption.minus(reserve).toEpochMilli()
+    }
+
+    def "test an interruption without a valid time gets the whole budget"() {
+        when:
+        def start = System.currentTimeMillis()
+        runner.runSpotSafeScripts(mapper.convertValue([EC2InstanceId: "i-1", Notice: INTERRUPTION, Time: "soon"],
+                SpotNoticeMessage))
+
+        then:
+        deadline.getEpochMs() >= start + budget.toMillis()
+    }
+
+    private SpotNoticeMessage notice(String kind, Instant time) {
+        mapper.convertValue([EC2InstanceId: "i-1", Notice: kind, Action: "terminate", Time: time.toString()],
+                SpotNoticeMessage)
+    }
+}
@@ -74,6 +74,7 @@ class ShutdownServiceTest extends Specification {
 
         then:
         shutDownSuccessful == expectedShutDownSuccessful
+        1 * shutdownTriggerListener.acknowledge()
 
         and:
         logsWereUploaded.get() == expectedLogsUploaded
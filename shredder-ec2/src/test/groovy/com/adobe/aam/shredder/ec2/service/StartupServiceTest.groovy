@@ -21,6 +21,8 @@ import spock.lang.Specification
 import spock.lang.Unroll
 import spock.util.concurrent.BlockingVariable
 
+import java.util.concurrent.CompletableFuture
+
 import static com.adobe.aam.shredder.ec2.log.StartupResultPersist.Result.STARTUP_NOT_RUN
 
 class StartupServiceTest extends Specification {
@@ -69,4 +71,38 @@ class StartupServiceTest extends Specification {
         true                 | true                      | true                | true
         false                | false                     | true                | true
     }
+
+    def "a shutdown trigger received during startup preempts it"() {
+        given:
+        def startupCommandsRunner = Mock(StartupCommandsRunner) {
+            getRunStartupScriptsResult() >> {
+                try {
+                    Thread.sleep(10000)
+                    return true
+                } catch (InterruptedException e) {
+                    return false
+                }
+            }
+        }
+        def notifier = Mock(Notifier)
+        def startupResultPersist = Mock(StartupResultPersist) {
+            getPreviousStartupResult() >> STARTUP_NOT_RUN
+        }
+        def startupService = new StartupService(new StartupScriptRunner(startupCommandsRunner),
+                Mock(ShredderLogUploader), notifier, startupResultPersist)
+        def shutdownTrigger = new CompletableFuture()
+
+        when:
+        Thread.start {
+            Thread.sleep(100)
+            shutdownTrigger.complete("trigger")
+        }
+        def startupSuccessful = startupService.getStartupResult(shutdownTrigger)
+
+        then:
+        !startupSuccessful
+        !Thread.currentThread().isInterrupted()
+        0 * notifier.notifyAutoScaleGroup(_)
+        0 * startupResultPersist.persist(_)
+    }
 }
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2019 Adobe Systems Incorporated. All rights reserved.
+ * This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License. You may obtain a copy
+ * of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ * OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+package com.adobe.aam.shredder.ec2.trigger
+
+import com.fasterxml.jackson.databind.MapperFeature
+import com.fasterxml.jackson.databind.ObjectMapper
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.time.Instant
+
+import static com.adobe.aam.shredder.core.aws.trigger.SpotInterruptionWatcher.INTERRUPTION
+import static com.adobe.aam.shredder.core.aws.trigger.SpotInterruptionWatcher.REBALANCE_RECOMMENDATION
+
+class SpotNoticeMessageTest extends Specification {
+
+    def mapper = new ObjectMapper().configure(MapperFeature.ACCEPT_CASE_INSENSITIVE_PROPERTIES, true)
+
+    @Unroll("test the interruption time of a #notice notice at #time")
+    def "test the interruption time"(notice, time, expected) {
+        when:
+        def message = mapper.convertValue([EC2InstanceId: "i-1", Notice: notice, Action: "terminate", Time: time],
+                SpotNoticeMessage)
+
+        then:
+        message.getInterruptionTime() == Optional.ofNullable(expected).map { Instant.parse(it) }
+
+        where:
+        notice                   | time                   | expected
+        INTERRUPTION             | "2020-10-27T08:24:00Z" | "2020-10-27T08:24:00Z"
+        INTERRUPTION             | "not a time"           | null
+        INTERRUPTION             | null                   | null
+        REBALANCE_RECOMMENDATION | "2020-10-27T08:22:00Z" | null
+    }
+
+    def "test unknown fields are ignored"() {
+        when:
+        def message = mapper.convertValue([EC2InstanceId: "i-1", Notice: INTERRUPTION, Source: "spot"],
+                SpotNoticeMessage)
+
+        then:
+        message.getEc2InstanceId() == "i-1"
+        message.isInterruption()
+    }
+}